@@ -18,8 +18,12 @@ function handleRequest(e) {
     switch(action) {
       case 'read':
         return readData(sheetName);
+      case 'readSince':
+        return readSince(sheetName, e.parameter);
       case 'write':
         return writeData(sheetName, e.parameter);
+      case 'writeBatch':
+        return writeBatch(sheetName, e.parameter);
       case 'update':
         return updateData(sheetName, e.parameter);
       case 'find':
@@ -75,9 +79,171 @@ function writeData(sheetName, params) {
   });
   
   sheet.appendRow(newRow);
+  touchRows_(sheet, [sheet.getLastRow()]);
   return createResponse('success', 'נתונים נשמרו בהצלחה');
 }
 
+// כתיבה מרוכזת מתור הסנכרון של האפליקציה:
+// rows = מערך JSON של שורות, key = שם עמודת המזהה. שורה קיימת מתעדכנת, חדשה נוספת בסוף.
+function writeBatch(sheetName, params) {
+  const lock = LockService.getScriptLock();
+  lock.waitLock(20000);
+  try {
+    const sheet = SpreadsheetApp.getActiveSpreadsheet().getSheetByName(sheetName);
+    if (!sheet) {
+      return createResponse('error', 'גיליון לא נמצא');
+    }
+
+    const rows = JSON.parse(params.rows || '[]');
+    const keyHeader = params.key;
+    const stampColumn = ensureStampColumn_(sheet, true);
+    const now = Date.now();
+    const data = sheet.getDataRange().getValues();
+    const headers = data[0];
+    const keyColumn = headers.indexOf(keyHeader);
+    if (keyColumn === -1) {
+      return createResponse('error', 'עמודת מזהה לא נמצאה');
+    }
+
+    const rowIndexByKey = {};
+    for (let i = 1; i < data.length; i++) {
+      rowIndexByKey[String(data[i][keyColumn])] = i;
+    }
+
+    const appended = [];
+    let updated = 0;
+    rows.forEach(row => {
+      const key = String(row[keyHeader]);
+      const existing = rowIndexByKey[key];
+      if (existing !== undefined) {
+        const values = data[existing];
+        headers.forEach((header, index) => {
+          if (row[header] !== undefined) values[index] = row[header];
+        });
+        values[stampColumn] = now;
+        sheet.getRange(existing + 1, 1, 1, headers.length).setValues([values]);
+        updated++;
+      } else {
+        const values = headers.map(header => {
+          if (header === STAMP_HEADER) return now;
+          if (row[header] !== undefined) return row[header];
+          if (header.includes('תאריך')) return new Date();
+          return '';
+        });
+        appended.push(values);
+      }
+    });
+
+    if (appended.length) {
+      sheet.getRange(sheet.getLastRow() + 1, 1, appended.length, headers.length).setValues(appended);
+    }
+    return createResponse('success', { updated: updated, appended: appended.length });
+  } finally {
+    lock.releaseLock();
+  }
+}
+
+// ------------------------------
+// קריאה מצטברת: עמודת _updatedAt (זמן עדכון אחרון במילישניות) מסומנת בכל כתיבה דרך הסקריפט
+// ובכל עריכה ידנית (onEdit). readSince מחזיר רק שורות שעודכנו מאז ה-cursor, ואת רשימת כל
+// המזהים כדי שהאפליקציה תוכל למחוק שורות שנמחקו מהגיליון.
+// ------------------------------
+
+const STAMP_HEADER = '_updatedAt';
+
+// מחזיר את אינדקס עמודת _updatedAt (מבוסס 0), ויוצר אותה אם חסרה.
+// שורות קיימות מקבלות 1 כדי שקריאה ראשונה (since=0) תחזיר את כולן.
+// היצירה נעשית תחת נעילת הסקריפט של writeBatch, כדי ששתי בקשות מקבילות לא יוסיפו שתי עמודות
+// ו-writeBatch לא יכתוב בזמן שהעמודה מתמלאת. locked = הקורא כבר מחזיק בנעילה.
+function ensureStampColumn_(sheet, locked) {
+  const existing = stampColumnIndex_(sheet);
+  if (existing !== -1) return existing;
+
+  const lock = locked ? null : LockService.getScriptLock();
+  if (lock) lock.waitLock(20000);
+  try {
+    // ייתכן שבקשה אחרת יצרה את העמודה בזמן ההמתנה לנעילה.
+    const created = stampColumnIndex_(sheet);
+    if (created !== -1) return created;
+
+    const lastCol = sheet.getLastColumn();
+    sheet.getRange(1, lastCol + 1).setValue(STAMP_HEADER);
+    const dataRows = sheet.getLastRow() - 1;
+    if (dataRows > 0) {
+      sheet.getRange(2, lastCol + 1, dataRows, 1).setValues(Array.from({ length: dataRows }, () => [1]));
+    }
+    SpreadsheetApp.flush();
+    return lastCol;
+  } finally {
+    if (lock) lock.releaseLock();
+  }
+}
+
+function stampColumnIndex_(sheet) {
+  const headers = sheet.getRange(1, 1, 1, sheet.getLastColumn()).getValues()[0];
+  return headers.indexOf(STAMP_HEADER);
+}
+
+function touchRows_(sheet, rowNumbers) {
+  const column = ensureStampColumn_(sheet) + 1;
+  const now = Date.now();
+  rowNumbers.forEach(r => {
+    if (r > 1) sheet.getRange(r, column).setValue(now);
+  });
+}
+
+// טריגר פשוט: עריכה ידנית בגיליון מסמנת את השורות שנערכו.
+function onEdit(e) {
+  const range = e && e.range;
+  if (!range) return;
+  const sheet = range.getSheet();
+  const headers = sheet.getRange(1, 1, 1, sheet.getLastColumn()).getValues()[0];
+  const column = headers.indexOf(STAMP_HEADER);
+  if (column === -1 || range.getColumn() === column + 1) return;
+  const rows = [];
+  for (let r = range.getRow(); r < range.getRow() + range.getNumRows(); r++) rows.push(r);
+  touchRows_(sheet, rows);
+}
+
+function readSince(sheetName, params) {
+  const sheet = SpreadsheetApp.getActiveSpreadsheet().getSheetByName(sheetName);
+  if (!sheet) {
+    return createResponse('error', 'גיליון לא נמצא');
+  }
+
+  const since = Number(params.since || 0);
+  const stampColumn = ensureStampColumn_(sheet);
+  const data = sheet.getDataRange().getValues();
+  const headers = data[0];
+  const keyColumn = headers.findIndex(h => String(h).includes('מזהה'));
+  // בלי עמודת מזהה אי אפשר למזג: מחזירים הכל.
+  const full = since <= 0 || keyColumn === -1;
+
+  let cursor = since;
+  const rows = [];
+  const keys = [];
+  data.slice(1).forEach(row => {
+    const stamp = Number(row[stampColumn]) || 0;
+    cursor = Math.max(cursor, stamp);
+    if (keyColumn !== -1) keys.push(String(row[keyColumn]));
+    // >= : שורה שנכתבה באותה מילישנייה של ה-cursor נשלחת שוב (המיזוג לפי מזהה, כך שזה בטוח).
+    if (!full && stamp < since) return;
+    const obj = {};
+    headers.forEach((header, index) => {
+      if (index !== stampColumn) obj[header] = row[index];
+    });
+    rows.push(obj);
+  });
+
+  return createResponse('success', {
+    full: full,
+    cursor: cursor,
+    key: keyColumn === -1 ? null : headers[keyColumn],
+    keys: keyColumn === -1 ? null : keys,
+    rows: rows
+  });
+}
+
 function updateData(sheetName, params) {
   const sheet = SpreadsheetApp.getActiveSpreadsheet().getSheetByName(sheetName);
   if (!sheet) {
@@ -103,6 +269,7 @@ function updateData(sheetName, params) {
       sheet.getRange(rowIndex + 1, index + 1).setValue(params[header]);
     }
   });
+  touchRows_(sheet, [rowIndex + 1]);
   
   return createResponse('success', 'נתונים עודכנו בהצלחה');
 }
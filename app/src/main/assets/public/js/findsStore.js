@@ -1,4 +1,5 @@
 const KEY_FINDS = 'tt.finds.v1';
+const PAGE_SIZE = 200;
 
 function readJson(key, fallback) {
   try {
@@ -11,27 +12,167 @@ function readJson(key, fallback) {
   }
 }
 
+// Bumped on every local write; the browser fallback has no change log, so any change means reload.
+let localSeq = 0;
+
 function writeJson(key, value) {
   localStorage.setItem(key, JSON.stringify(value));
+  localSeq++;
 }
 
-export function getFinds() {
+function parseFind(raw) {
+  if (!raw) return null;
+  try {
+    return JSON.parse(raw);
+  } catch {
+    return null;
+  }
+}
+
+// In the app, finds live in the native SQLite store; in a plain browser they stay in localStorage.
+let nativeReady = null;
+
+function hasNativeStore() {
+  if (nativeReady !== null) return nativeReady;
+  const a = window.Android;
+  nativeReady = !!(a && typeof a.findsGet === 'function' && typeof a.findsImport === 'function');
+  if (nativeReady) migrateLocalFinds();
+  return nativeReady;
+}
+
+// One-time move of the localStorage array into the native store.
+// The local copy is only removed after the import succeeded; a retried import skips existing finds.
+function migrateLocalFinds() {
+  const raw = localStorage.getItem(KEY_FINDS);
+  if (!raw) return;
+  const imported = window.Android.findsImport(raw);
+  if (imported >= 0) localStorage.removeItem(KEY_FINDS);
+}
+
+function localFinds() {
   const arr = readJson(KEY_FINDS, []);
   return Array.isArray(arr) ? arr : [];
 }
 
+// Newest first.
+export function listFinds(offset = 0, limit = PAGE_SIZE) {
+  if (hasNativeStore()) {
+    try {
+      const arr = JSON.parse(window.Android.findsList(offset, limit) || '[]');
+      return Array.isArray(arr) ? arr : [];
+    } catch {
+      return [];
+    }
+  }
+  return localFinds().slice(offset, offset + limit);
+}
+
+function toSummary(f) {
+  return {
+    id: f.id,
+    site: f.site || '',
+    plot: f.plot || '',
+    layer: f.layer || '',
+    datetimeText: f.datetimeText || '',
+    createdAt: f.createdAt || '',
+    description: f.description || '',
+    mediaCount: f.media?.length || 0
+  };
+}
+
+// Page of list-card summaries, newest first: { items, next, total, seq }.
+// Pass null for the first page, then the previous page's `next` (null at the end).
+export function listFindSummaries(cursor = null, limit = 50) {
+  if (hasNativeStore()) {
+    try {
+      return JSON.parse(window.Android.findsSummaries(cursor || '', limit));
+    } catch {
+      return { items: [], next: null, total: 0, seq: 0 };
+    }
+  }
+  const finds = localFinds();
+  const offset = Number(cursor) || 0;
+  const end = offset + limit;
+  return {
+    items: finds.slice(offset, end).map(toSummary),
+    next: end < finds.length ? String(end) : null,
+    total: finds.length,
+    seq: localSeq
+  };
+}
+
+// Writes after `seq`: { seq, reset, changes: [{ seq, id, op: 'put' | 'delete' }] }.
+// On reset the caller should reload from the first page.
+export function findChangesSince(seq) {
+  if (hasNativeStore()) {
+    try {
+      return JSON.parse(window.Android.findsChangesSince(seq));
+    } catch {
+      return { seq, reset: true, changes: [] };
+    }
+  }
+  return { seq: localSeq, reset: seq !== localSeq, changes: [] };
+}
+
+export function findSummaryById(id) {
+  const f = getFindById(id);
+  return f ? toSummary(f) : null;
+}
+
+// Find ids matching every word of `query` (prefixes, Hebrew-aware), best match first.
+export function searchFinds(query, limit = 100) {
+  if (hasNativeStore()) {
+    try {
+      const ids = JSON.parse(window.Android.findsSearch(query, limit) || '[]');
+      return Array.isArray(ids) ? ids : [];
+    } catch {
+      return [];
+    }
+  }
+  const words = String(query || '').toLowerCase().split(/\s+/).filter(Boolean);
+  if (!words.length) return [];
+  return localFinds()
+    .filter(f => {
+      const text = [f.id, f.site, f.plot, f.layer, f.location, f.description].join(' ').toLowerCase();
+      return words.every(w => text.includes(w));
+    })
+    .slice(0, limit)
+    .map(f => f.id);
+}
+
+export function countFinds() {
+  if (hasNativeStore()) return window.Android.findsCount();
+  return localFinds().length;
+}
+
+export function getFinds() {
+  if (!hasNativeStore()) return localFinds();
+  const all = [];
+  for (;;) {
+    const page = listFinds(all.length, PAGE_SIZE);
+    all.push(...page);
+    if (page.length < PAGE_SIZE) return all;
+  }
+}
+
 export function getFindById(id) {
-  return getFinds().find(f => f?.id === id) || null;
+  if (hasNativeStore()) return parseFind(window.Android.findsGet(id));
+  return localFinds().find(f => f?.id === id) || null;
 }
 
 export function addFind(find) {
-  const finds = getFinds();
+  if (hasNativeStore()) {
+    window.Android.findsPut(JSON.stringify(find));
+    return;
+  }
+  const finds = localFinds();
   finds.unshift(find);
   writeJson(KEY_FINDS, finds);
 }
 
 export function updateFind(updated) {
-  const finds = getFinds();
+  if (hasNativeStore()) return window.Android.findsUpdate(JSON.stringify(updated));
+  const finds = localFinds();
   const idx = finds.findIndex(f => f?.id === updated?.id);
   if (idx === -1) return false;
   finds[idx] = updated;
@@ -40,7 +181,8 @@ export function updateFind(updated) {
 }
 
 export function deleteFindById(id) {
-  const finds = getFinds();
+  if (hasNativeStore()) return window.Android.findsDelete(id);
+  const finds = localFinds();
   const next = finds.filter(f => f?.id !== id);
   if (next.length === finds.length) return false;
   writeJson(KEY_FINDS, next);
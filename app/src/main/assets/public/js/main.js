@@ -1,12 +1,23 @@
-import { clearUser, getScriptUrl, getUser, setScriptUrl, setUser } from './storage.js';
+import { clearUser, getScriptUrl, getUser, pushScriptUrlToNative, setScriptUrl, setUser } from './storage.js';
 import { requestAllPermissions } from './permissions.js';
 import { byId, setStatus, setText, showScreen } from './ui.js';
 import { getAllIsraelSites, addIsraelSite } from './sites.js';
-import { addFind, deleteFindById, getFindById, getFinds, newFindId, updateFind } from './findsStore.js';
-import { filesToMediaItems } from './media.js';
+import {
+  addFind,
+  deleteFindById,
+  findChangesSince,
+  findSummaryById,
+  getFindById,
+  listFindSummaries,
+  newFindId,
+  searchFinds,
+  updateFind
+} from './findsStore.js';
+import { deleteNativeMediaItem, filesToMediaItems, getNativeMediaItem } from './media.js';
+import { connectNativeEvents } from './nativeEvents.js';
 import { deleteMediaItem, getMediaItem, putMediaItems } from './mediaStore.js';
 import { startHebrewTranscription } from './speech.js';
-import { speakHebrew } from './speechUtterance.js';
+import { speakHebrew, prewarmPrompts } from './speechUtterance.js';
 import { applyI18nToDom, getLang, setLang, t } from './i18n.js';
 
 let currentMedia = [];
@@ -20,6 +31,11 @@ function setQrStatus(text) {
   }
 }
 
+function qrImageUrl(id) {
+  // Served natively by NativeImageWebViewClient (streamed, cacheable, off the JS bridge)
+  return `/_native/qr/${encodeURIComponent(id)}.png`;
+}
+
 function updateFindQr() {
   const id = (byId('find-id')?.value || '').trim();
   const img = byId('find-qr-image');
@@ -28,39 +44,39 @@ function updateFindQr() {
   const canRender = !!(window.Android && typeof window.Android.getQrPngDataUrl === 'function');
   const canPrint = !!(window.Android && typeof window.Android.printFindQrToSk58 === 'function');
 
-  if (!id) {
+  const clearQr = status => {
+    img.onload = null;
+    img.onerror = null;
     img.removeAttribute('src');
     img.hidden = true;
-    setQrStatus(t('qr_enter_id'));
+    setQrStatus(status);
     printBtn.disabled = true;
+  };
+
+  if (!id) {
+    clearQr(t('qr_enter_id'));
     return;
   }
 
   if (!canRender) {
-    img.removeAttribute('src');
-    img.hidden = true;
-    setQrStatus(t('qr_android_only'));
-    printBtn.disabled = true;
+    clearQr(t('qr_android_only'));
     return;
   }
 
-  try {
-    const dataUrl = window.Android.getQrPngDataUrl(id);
-    if (dataUrl && String(dataUrl).startsWith('data:image/')) {
-      img.src = dataUrl;
-      img.hidden = false;
-      setQrStatus('');
-      printBtn.disabled = !canPrint;
-      return;
-    }
-  } catch {
-    // ignore
-  }
+  const src = qrImageUrl(id);
+  if (img.getAttribute('src') === src && !img.hidden) return;
 
-  img.removeAttribute('src');
-  img.hidden = true;
-  setQrStatus(t('qr_failed'));
-  printBtn.disabled = true;
+  img.onload = () => {
+    if (img.getAttribute('src') !== src) return;
+    img.hidden = false;
+    setQrStatus('');
+    printBtn.disabled = !canPrint;
+  };
+  img.onerror = () => {
+    if (img.getAttribute('src') !== src) return;
+    clearQr(t('qr_failed'));
+  };
+  img.src = src;
 }
 
 function populateSites() {
@@ -250,8 +266,10 @@ function openViewer(item) {
   viewer.hidden = false;
 }
 
-function getMediaSrc(item) {
+// Native items are files served from /_native/media/; thumb picks the small grid image.
+function getMediaSrc(item, { thumb = false } = {}) {
   if (!item) return '';
+  if (item.native) return (thumb && item.thumbUrl) || item.displayUrl || '';
   if (item.dataUrl) return item.dataUrl;
   if (item.blob) {
     const existing = objectUrlById.get(item.id);
@@ -311,7 +329,9 @@ function renderMediaGrid(media) {
       const ok = confirm(t('confirm_delete_media'));
       if (!ok) return;
 
-      if (item.stored) {
+      if (item.native) {
+        deleteNativeMediaItem(item.id);
+      } else if (item.stored) {
         try {
           await deleteMediaItem(item.id);
         } catch {
@@ -325,7 +345,7 @@ function renderMediaGrid(media) {
       renderMediaGrid(media);
     });
 
-    if (item.kind === 'video') {
+    if (item.kind === 'video' && !(item.native && item.thumbUrl)) {
       const v = document.createElement('video');
       v.className = 'thumb__media';
       v.src = getMediaSrc(item);
@@ -336,8 +356,9 @@ function renderMediaGrid(media) {
     } else {
       const img = document.createElement('img');
       img.className = 'thumb__media';
-      img.src = getMediaSrc(item);
+      img.src = getMediaSrc(item, { thumb: true });
       img.alt = '';
+      img.decoding = 'async';
       wrap.appendChild(img);
     }
 
@@ -347,85 +368,218 @@ function renderMediaGrid(media) {
   });
 }
 
-function renderFindsList() {
-  const list = byId('finds-list');
-  const finds = getFinds();
+// Finds list: summaries are loaded a page at a time as the user scrolls, and later
+// renders apply the store's change feed to the existing cards instead of rebuilding the list.
+const FINDS_PAGE_SIZE = 50;
+const findsView = {
+  ready: false,
+  seq: 0,
+  next: null,
+  loading: false,
+  cards: new Map(),
+  observer: null,
+  sentinel: null
+};
+
+function createFindCard(f) {
+  const card = document.createElement('div');
+  card.className = 'find';
+  card.tabIndex = 0;
+  card.role = 'button';
+  card.dataset.createdAt = f.createdAt || '';
+  card.addEventListener('click', () => startEditFind(f.id));
+  card.addEventListener('keydown', ev => {
+    if (ev.key === 'Enter' || ev.key === ' ') startEditFind(f.id);
+  });
 
-  if (!finds.length) {
-    list.textContent = t('finds_empty');
-    return;
-  }
+  const top = document.createElement('div');
+  top.className = 'find__top';
 
-  list.innerHTML = '';
+  const id = document.createElement('div');
+  id.className = 'find__id';
+  id.textContent = f.id;
 
-  finds.forEach(f => {
-    const card = document.createElement('div');
-    card.className = 'find';
-    card.tabIndex = 0;
-    card.role = 'button';
-    card.addEventListener('click', () => startEditFind(f.id));
-    card.addEventListener('keydown', ev => {
-      if (ev.key === 'Enter' || ev.key === ' ') startEditFind(f.id);
-    });
+  const actions = document.createElement('div');
+  actions.className = 'find__actions';
+
+  const del = document.createElement('button');
+  del.className = 'find__delete';
+  del.type = 'button';
+  del.title = t('delete_title');
+  del.innerHTML =
+    '<svg viewBox="0 0 24 24" aria-hidden="true"><path fill="currentColor" d="M9 3h6l1 2h4v2H4V5h4l1-2zm1 7h2v9h-2v-9zm4 0h2v9h-2v-9zM7 10h2v9H7v-9z"/></svg>';
+  del.addEventListener('click', ev => {
+    ev.preventDefault();
+    ev.stopPropagation();
+    const ok = confirm(t('confirm_delete_find'));
+    if (!ok) return;
+    const deleted = deleteFindById(f.id);
+    if (!deleted) {
+      alert(t('delete_failed_missing'));
+      return;
+    }
+    renderFindsList();
+  });
 
-    const top = document.createElement('div');
-    top.className = 'find__top';
+  actions.appendChild(del);
 
-    const id = document.createElement('div');
-    id.className = 'find__id';
-    id.textContent = f.id;
+  const dt = document.createElement('div');
+  dt.className = 'find__meta';
+  dt.textContent = f.datetimeText || '';
 
-    const actions = document.createElement('div');
-    actions.className = 'find__actions';
+  top.appendChild(id);
+  top.appendChild(actions);
+  top.appendChild(dt);
 
-    const del = document.createElement('button');
-    del.className = 'find__delete';
-    del.type = 'button';
-    del.title = t('delete_title');
-    del.innerHTML =
-      '<svg viewBox="0 0 24 24" aria-hidden="true"><path fill="currentColor" d="M9 3h6l1 2h4v2H4V5h4l1-2zm1 7h2v9h-2v-9zm4 0h2v9h-2v-9zM7 10h2v9H7v-9z"/></svg>';
-    del.addEventListener('click', ev => {
-      ev.preventDefault();
-      ev.stopPropagation();
-      const ok = confirm(t('confirm_delete_find'));
-      if (!ok) return;
-      const deleted = deleteFindById(f.id);
-      if (!deleted) {
-        alert(t('delete_failed_missing'));
-        return;
-      }
-      renderFindsList();
-    });
+  const meta = document.createElement('div');
+  meta.className = 'find__meta';
+  meta.textContent = t('find_card_meta', {
+    site: f.site,
+    plot: f.plot,
+    layer: f.layer,
+    mediaCount: f.mediaCount ?? (f.media?.length || 0)
+  });
 
-    actions.appendChild(del);
+  const desc = document.createElement('div');
+  desc.className = 'find__meta';
+  desc.textContent = t('find_card_desc', { description: f.description });
 
-    const dt = document.createElement('div');
-    dt.className = 'find__meta';
-    dt.textContent = f.datetimeText || '';
+  card.appendChild(top);
+  card.appendChild(meta);
+  card.appendChild(desc);
+  return card;
+}
 
-    top.appendChild(id);
-    top.appendChild(actions);
-    top.appendChild(dt);
+function updateFindsEmptyState() {
+  const list = byId('finds-list');
+  const empty = !findsView.cards.size && !findsView.next;
+  let note = list.querySelector('.finds__empty');
+  if (empty && !note) {
+    note = document.createElement('div');
+    note.className = 'finds__empty';
+    note.textContent = t('finds_empty');
+    list.prepend(note);
+  } else if (!empty && note) {
+    note.remove();
+  }
+}
 
-    const meta = document.createElement('div');
-    meta.className = 'find__meta';
-    meta.textContent = t('find_card_meta', {
-      site: f.site,
-      plot: f.plot,
-      layer: f.layer,
-      mediaCount: f.media?.length || 0
+function loadNextFindsPage() {
+  if (findsView.loading || !findsView.next) return;
+  findsView.loading = true;
+  try {
+    const page = listFindSummaries(findsView.next === true ? null : findsView.next, FINDS_PAGE_SIZE);
+    const frag = document.createDocumentFragment();
+    (page.items || []).forEach(f => {
+      if (findsView.cards.has(f.id)) return;
+      const card = createFindCard(f);
+      findsView.cards.set(f.id, card);
+      frag.appendChild(card);
     });
+    findsView.sentinel.before(frag);
+    findsView.next = page.next || null;
+    if (findsView.seq === null) findsView.seq = page.seq;
+  } finally {
+    findsView.loading = false;
+  }
+  updateFindsEmptyState();
+}
+
+function resetFindsList() {
+  const list = byId('finds-list');
+  findsView.observer?.disconnect();
+  list.innerHTML = '';
+  findsView.cards.clear();
+  findsView.seq = null;
+  findsView.next = true;
+
+  findsView.sentinel = document.createElement('div');
+  findsView.sentinel.className = 'finds__sentinel';
+  list.appendChild(findsView.sentinel);
+
+  findsView.observer = new IntersectionObserver(entries => {
+    if (entries.some(e => e.isIntersecting)) loadNextFindsPage();
+  }, { rootMargin: '600px 0px' });
+  findsView.observer.observe(findsView.sentinel);
+
+  findsView.ready = true;
+  loadNextFindsPage();
+}
+
+// Places a new or changed card by createdAt among the loaded cards (newest first).
+function placeFindCard(summary) {
+  const old = findsView.cards.get(summary.id);
+  const card = createFindCard(summary);
+  findsView.cards.set(summary.id, card);
+  if (old) {
+    old.replaceWith(card);
+    return;
+  }
+  const created = summary.createdAt || '';
+  for (const other of byId('finds-list').querySelectorAll('.find')) {
+    if ((other.dataset.createdAt || '') <= created) {
+      other.before(card);
+      return;
+    }
+  }
+  // Older than everything loaded: it arrives with a later page unless the list is complete.
+  if (findsView.next) {
+    findsView.cards.delete(summary.id);
+    return;
+  }
+  findsView.sentinel.before(card);
+}
 
-    const desc = document.createElement('div');
-    desc.className = 'find__meta';
-    desc.textContent = t('find_card_desc', { description: f.description });
+function applyFindChanges() {
+  const feed = findChangesSince(findsView.seq);
+  if (feed.reset) {
+    resetFindsList();
+    return;
+  }
+  // Last op per id wins.
+  const latest = new Map();
+  (feed.changes || []).forEach(c => latest.set(c.id, c.op));
+  latest.forEach((op, id) => {
+    if (op === 'delete') {
+      findsView.cards.get(id)?.remove();
+      findsView.cards.delete(id);
+      return;
+    }
+    const summary = findSummaryById(id);
+    if (summary) placeFindCard(summary);
+  });
+  findsView.seq = feed.seq;
+  updateFindsEmptyState();
+}
 
-    card.appendChild(top);
-    card.appendChild(meta);
-    card.appendChild(desc);
+const FINDS_SEARCH_LIMIT = 100;
 
-    list.appendChild(card);
+function renderFindsSearch(query) {
+  const list = byId('finds-list');
+  findsView.observer?.disconnect();
+  findsView.ready = false;
+  list.innerHTML = '';
+  const ids = searchFinds(query, FINDS_SEARCH_LIMIT);
+  const frag = document.createDocumentFragment();
+  ids.forEach(id => {
+    const summary = findSummaryById(id);
+    if (summary) frag.appendChild(createFindCard(summary));
   });
+  list.appendChild(frag);
+  if (!ids.length) list.textContent = t('finds_empty');
+}
+
+function renderFindsList({ reset = false } = {}) {
+  const query = (byId('finds-search')?.value || '').trim();
+  if (query) {
+    renderFindsSearch(query);
+    return;
+  }
+  if (reset || !findsView.ready || findsView.seq === null) {
+    resetFindsList();
+    return;
+  }
+  applyFindChanges();
 }
 
 async function startAddFind() {
@@ -504,6 +658,11 @@ async function startEditFind(findId) {
   const refs = Array.isArray(find.media) ? find.media : [];
   for (const ref of refs) {
     if (!ref?.id) continue;
+    if (ref.native) {
+      const handle = getNativeMediaItem(ref.id);
+      currentMedia.push(handle ? { ...handle, stored: true } : { ...ref, stored: false });
+      continue;
+    }
     try {
       const stored = await getMediaItem(ref.id);
       if (stored?.blob) {
@@ -530,8 +689,16 @@ async function startEditFind(findId) {
   showScreen('screen-add-find');
 }
 
+// Startup milestones for the native trace (Android.getStartupTrace).
+function markStartup(name) {
+  if (window.Android && typeof window.Android.markStartup === 'function') {
+    window.Android.markStartup(name);
+  }
+}
+
 function boot() {
   showScreen('screen-splash');
+  pushScriptUrlToNative();
 
   window.setTimeout(() => {
     const user = getUser();
@@ -539,11 +706,13 @@ function boot() {
       setHello(user);
       fillHome(user);
       showScreen('screen-home');
+      markStartup('ui-ready');
       return;
     }
     const scriptUrl = getScriptUrl();
     if (scriptUrl) byId('script-url').value = scriptUrl;
     showScreen('screen-login');
+    markStartup('ui-ready');
   }, 3000);
 }
 
@@ -598,6 +767,55 @@ function wireReset() {
   });
 }
 
+function wireFindsSearch() {
+  const input = byId('finds-search');
+  let debounce = null;
+  input?.addEventListener('input', () => {
+    if (debounce) clearTimeout(debounce);
+    debounce = setTimeout(() => renderFindsList({ reset: true }), 120);
+  });
+}
+
+// Native ZIP export of all finds, media and QR images; shared from the device when done.
+function wireFindsExport() {
+  if (!(window.Android && typeof window.Android.exportFinds === 'function')) return;
+  byId('finds-export').hidden = false;
+  const button = byId('btn-export-finds');
+  let running = false;
+
+  window.__ttExportProgress = p => {
+    if (p.state === 'running') {
+      const mb = (p.bytes / (1024 * 1024)).toFixed(1);
+      setStatus('export-status', `מייצא… ${p.done}/${p.total} ממצאים (${mb} MB)`);
+      return;
+    }
+    running = false;
+    button.textContent = 'ייצוא ממצאים ותמונות (ZIP)';
+    if (p.state === 'done') {
+      const mb = (p.bytes / (1024 * 1024)).toFixed(1);
+      const lines = [`הייצוא הושלם: ${p.finds} ממצאים, ${p.mediaFiles} קבצי מדיה (${mb} MB)`];
+      if (p.missingMedia) lines.push(`${p.missingMedia} קבצי מדיה לא נמצאו במכשיר`);
+      setStatus('export-status', lines);
+      window.Android.shareExport();
+    } else if (p.state === 'cancelled') {
+      setStatus('export-status', 'הייצוא בוטל');
+    } else {
+      setStatus('export-status', `הייצוא נכשל: ${p.error || ''}`);
+    }
+  };
+
+  button.addEventListener('click', () => {
+    if (running) {
+      window.Android.cancelExport();
+      return;
+    }
+    if (!window.Android.exportFinds('__ttExportProgress')) return;
+    running = true;
+    button.textContent = 'ביטול ייצוא';
+    setStatus('export-status', 'מייצא…');
+  });
+}
+
 function wireNavigation() {
   byId('btn-go-add-find').addEventListener('click', () => {
     startAddFind();
@@ -741,9 +959,43 @@ async function stopQrScan({ showHero = true } = {}) {
   }
 }
 
+async function openScannedFind(value) {
+  setStatus('scan-status', t('scan_scanned', { value }));
+  const existing = getFindById(value);
+  if (existing) {
+    await startEditFind(value);
+  } else {
+    await startAddFind();
+    byId('find-id').value = value;
+    updateFindQr();
+  }
+}
+
+// Native camera scanner (Android.startQrScan): decodes camera frames on the device, so it works
+// where the WebView has no BarcodeDetector.
+function startNativeQrScan() {
+  const callbackName = '__qrScanCallback';
+  window[callbackName] = (e) => {
+    if (e?.type === 'result' && e.text) {
+      void openScannedFind(e.text);
+    } else if (e?.type === 'error') {
+      setStatus('scan-status', t('scan_open_failed', { message: e.error || t('error_generic') }));
+    } else {
+      setStatus('scan-status', '');
+    }
+  };
+  setStatus('scan-status', t('scan_opening_camera'));
+  window.Android.startQrScan(callbackName);
+}
+
 async function startQrScan() {
   await stopQrScan({ showHero: true });
 
+  if (window.Android && typeof window.Android.startQrScan === 'function') {
+    startNativeQrScan();
+    return;
+  }
+
   if (!navigator.mediaDevices?.getUserMedia) {
     setStatus('scan-status', t('scan_camera_not_supported'));
     return;
@@ -802,16 +1054,7 @@ async function startQrScan() {
         scanRunning = false;
         // Keep hero hidden to avoid flicker before navigation
         await stopQrScan({ showHero: false });
-        setStatus('scan-status', t('scan_scanned', { value }));
-
-        const existing = getFindById(value);
-        if (existing) {
-          await startEditFind(value);
-        } else {
-          await startAddFind();
-          byId('find-id').value = value;
-          updateFindQr();
-        }
+        await openScannedFind(value);
         return;
       }
     } catch {
@@ -935,7 +1178,8 @@ function wireFindSave() {
       id: m.id,
       kind: m.kind,
       mime: m.mime,
-      name: m.name
+      name: m.name,
+      ...(m.native ? { native: true } : {})
     }));
 
     const editId = (byId('find-form').dataset.editId || '').trim();
@@ -1127,7 +1371,11 @@ function wireTranscription() {
   });
 
   async function startVoiceInput() {
-    // Prefer native Android speech recognizer when available
+    // Prefer native continuous dictation, then the one-shot native recognizer
+    if (window.Android && typeof window.Android.startDictation === 'function') {
+      startAndroidDictation();
+      return;
+    }
     if (window.Android && typeof window.Android.startSpeechRecognition === 'function') {
       await startAndroidSpeechRecognition();
       return;
@@ -1214,6 +1462,64 @@ function wireTranscription() {
     });
   }
 
+  // Native continuous dictation: segments accumulate natively until the mic is tapped again
+  // (or 30s without speech), so long descriptions don't need repeated restarts.
+  function startAndroidDictation() {
+    const cbName = `__dictation_${Date.now()}_${Math.random().toString(16).slice(2)}`;
+    let ended = false;
+
+    const finalize = insert => {
+      if (ended) return;
+      ended = true;
+      delete window[cbName];
+      session = null;
+      state = 'idle';
+      micBtn.classList.remove('mic-btn--active');
+      micBtn.classList.remove('mic-btn--speaking');
+      micBtn.classList.add('mic-btn--inactive');
+
+      const textToInsert = (capturedFinal || capturedFallback).trim();
+      if (!insert || !textToInsert) {
+        setDescriptionLive('');
+        if (insert && stopMode !== 'cancel') alert(t('stt_not_captured'));
+        stopMode = 'none';
+        return;
+      }
+      setDescriptionLive(textToInsert);
+      const descriptionField = byId('find-description');
+      if (descriptionField) {
+        descriptionField.focus();
+        descriptionField.setSelectionRange(descriptionField.value.length, descriptionField.value.length);
+      }
+      stopMode = 'none';
+    };
+
+    window[cbName] = ev => {
+      if (ev.text) capturedFallback = ev.text;
+      if (ev.committed) capturedFinal = ev.committed;
+      if (ev.kind === 'partial' || ev.kind === 'segment') {
+        setDescriptionLive(ev.text);
+        return;
+      }
+      if (ev.metrics) console.log('Dictation metrics', ev.metrics);
+      if (ev.kind === 'error') {
+        console.error('Android dictation error', ev.error);
+        if (!capturedFallback && stopMode !== 'cancel') alert(explainAndroidSttError(ev.error));
+      }
+      // Keep whatever was dictated, also after an error.
+      finalize(stopMode !== 'cancel');
+    };
+
+    session = {
+      stop() {
+        window.Android.stopDictation?.();
+        finalize(stopMode === 'insert');
+      }
+    };
+
+    window.Android.startDictation(cbName);
+  }
+
   async function startAndroidSpeechRecognition() {
     const cbName = `__stt_${Date.now()}_${Math.random().toString(16).slice(2)}`;
 
@@ -1399,7 +1705,8 @@ function wireLanguage() {
 
     // Re-render list if visible (includes translated empty state)
     const active = document.querySelector('.screen--active')?.id;
-    if (active === 'screen-finds') renderFindsList();
+    if (active === 'screen-finds') renderFindsList({ reset: true });
+    else findsView.ready = false;
 
     // QR status text depends on language
     updateFindQr();
@@ -1409,6 +1716,8 @@ function wireLanguage() {
 }
 
 document.addEventListener('DOMContentLoaded', () => {
+  connectNativeEvents();
+  prewarmPrompts([t('stt_prompt')]);
   applyI18nToDom();
   populateSites();
   populatePlotAndLayerOptions();
@@ -1417,6 +1726,8 @@ document.addEventListener('DOMContentLoaded', () => {
   wirePermissions();
   wireReset();
   wireNavigation();
+  wireFindsSearch();
+  wireFindsExport();
   wireViewer();
   wireMedia();
   wireFindSave();
@@ -1424,4 +1735,5 @@ document.addEventListener('DOMContentLoaded', () => {
   wireFindQrScan();
   wireTranscription();
   boot();
+  markStartup('web-interactive');
 });
@@ -1,5 +1,61 @@
 import { t } from './i18n.js';
 
+const MAX_BYTES = 15 * 1024 * 1024;
+// Bridge calls are synchronous; keep each one small.
+const CHUNK_BYTES = 512 * 1024;
+
+function newMediaId() {
+  return `M-${Date.now()}-${Math.random().toString(16).slice(2, 8)}`;
+}
+
+export function hasNativeMedia() {
+  return !!(window.Android && typeof window.Android.mediaBegin === 'function');
+}
+
+function readChunkBase64(blob) {
+  return new Promise((resolve, reject) => {
+    const reader = new FileReader();
+    reader.onload = () => {
+      const s = String(reader.result || '');
+      resolve(s.slice(s.indexOf(',') + 1));
+    };
+    reader.onerror = () => reject(reader.error || new Error('File read failed'));
+    reader.readAsDataURL(blob);
+  });
+}
+
+let finishSeq = 0;
+
+// Streams the file into native storage and resolves with its handle
+// ({ id, kind, mime, name, thumbUrl, displayUrl, originalUrl, ... }).
+async function ingestNative(file, id, kind) {
+  if (!window.Android.mediaBegin(id, kind, file.type, file.name || '')) {
+    throw new Error(t('media_add_error'));
+  }
+  try {
+    for (let offset = 0; offset < file.size; offset += CHUNK_BYTES) {
+      const b64 = await readChunkBase64(file.slice(offset, offset + CHUNK_BYTES));
+      if (!window.Android.mediaAppend(id, b64)) throw new Error(t('media_add_error'));
+    }
+  } catch (err) {
+    window.Android.mediaAbort(id);
+    throw err;
+  }
+
+  const result = await new Promise(resolve => {
+    const cbName = `__ttMediaDone${++finishSeq}`;
+    window[cbName] = r => {
+      delete window[cbName];
+      resolve(r);
+    };
+    window.Android.mediaFinish(id, cbName);
+  });
+  if (!result?.ok) throw new Error(result?.error || t('media_add_error'));
+  return { ...result.item, native: true };
+}
+
+// In the app, files go straight to native storage and items carry thumbnail/display URLs instead
+// of blobs, so the WebView never holds full-size photos. Elsewhere items keep the File blob.
 export async function filesToMediaItems(fileList) {
   const files = Array.from(fileList || []);
   const items = [];
@@ -7,13 +63,21 @@ export async function filesToMediaItems(fileList) {
   for (const file of files) {
     if (!file.type.startsWith('image/') && !file.type.startsWith('video/')) continue;
 
-    if (file.size > 15 * 1024 * 1024) {
+    if (file.size > MAX_BYTES) {
       throw new Error(t('file_too_large', { maxMb: 15 }));
     }
 
+    const id = newMediaId();
+    const kind = file.type.startsWith('video/') ? 'video' : 'image';
+
+    if (hasNativeMedia()) {
+      items.push(await ingestNative(file, id, kind));
+      continue;
+    }
+
     items.push({
-      id: `M-${Date.now()}-${Math.random().toString(16).slice(2, 8)}`,
-      kind: file.type.startsWith('video/') ? 'video' : 'image',
+      id,
+      kind,
       mime: file.type,
       name: file.name || '',
       blob: file
@@ -22,3 +86,18 @@ export async function filesToMediaItems(fileList) {
 
   return items;
 }
+
+// Handle of a natively stored item, or null.
+export function getNativeMediaItem(id) {
+  if (!hasNativeMedia()) return null;
+  try {
+    const item = JSON.parse(window.Android.mediaInfo(id));
+    return item ? { ...item, native: true } : null;
+  } catch {
+    return null;
+  }
+}
+
+export function deleteNativeMediaItem(id) {
+  if (hasNativeMedia()) window.Android.mediaDelete(id);
+}
@@ -0,0 +1,55 @@
+// Receives native events (speech, TTS, print jobs, sync, ...) from MainActivity.
+// Native batches everything that happens within one frame into a single message:
+// [{ type, cb, args }, ...]. Each event is passed to window[cb](...args) when the
+// caller registered a callback name, and to onNativeEvent(type) listeners.
+
+const HANDSHAKE = 'tt-events';
+const listeners = new Map();
+
+function dispatch(batch) {
+  for (const ev of batch || []) {
+    const args = Array.isArray(ev.args) ? ev.args : [];
+    const cb = ev.cb ? window[ev.cb] : null;
+    if (typeof cb === 'function') {
+      try {
+        cb(...args);
+      } catch (err) {
+        console.error('Native event callback failed', ev.type, err);
+      }
+    }
+    listeners.get(ev.type)?.forEach(fn => {
+      try {
+        fn(...args);
+      } catch (err) {
+        console.error('Native event listener failed', ev.type, err);
+      }
+    });
+  }
+}
+
+// Also used by native before the port is open (one evaluateJavascript per frame).
+window.__ttNativeEvents = dispatch;
+
+// Calls listener(...args) for every event of this type; returns an unsubscribe function.
+export function onNativeEvent(type, listener) {
+  if (!listeners.has(type)) listeners.set(type, new Set());
+  listeners.get(type).add(listener);
+  return () => listeners.get(type)?.delete(listener);
+}
+
+// Asks native for a WebMessagePort and switches delivery to it.
+export function connectNativeEvents() {
+  if (!(window.Android && typeof window.Android.openEventChannel === 'function')) return;
+  window.addEventListener('message', ev => {
+    if (ev.data !== HANDSHAKE || !ev.ports?.[0]) return;
+    const port = ev.ports[0];
+    port.onmessage = msg => {
+      try {
+        dispatch(JSON.parse(msg.data));
+      } catch (err) {
+        console.error('Bad native event batch', err);
+      }
+    };
+  });
+  window.Android.openEventChannel();
+}
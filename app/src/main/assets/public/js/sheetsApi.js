@@ -45,14 +45,72 @@ export function getConfiguredScriptUrl() {
   return getScriptUrl();
 }
 
-export async function sheetsRead(sheet) {
+function hasNativeReadCache() {
+  return !!(window.Android && typeof window.Android.sheetsRead === 'function');
+}
+
+let readSeq = 0;
+
+// In the app, reads come from a native local copy of the sheet that is refreshed with only the
+// rows changed since the last read. Resolves with the cached rows right away when there are any
+// (otherwise with the first refresh), and calls onUpdate(rows, { changed, removed }) when a
+// background refresh brings changes.
+export async function sheetsRead(sheet, { onUpdate } = {}) {
+  if (hasNativeReadCache()) {
+    return new Promise((resolve, reject) => {
+      const cbName = `__ttSheetsRead${++readSeq}`;
+      let settled = false;
+      window[cbName] = result => {
+        delete window[cbName];
+        if (!settled) {
+          settled = true;
+          if (result.ok) resolve(result.rows);
+          else reject(new Error(result.error || 'Sheets API error'));
+          return;
+        }
+        if (result.ok && (result.changed || result.removed || result.full) && onUpdate) {
+          onUpdate(result.rows, { changed: result.changed, removed: result.removed });
+        }
+      };
+      let cached = null;
+      try {
+        cached = JSON.parse(window.Android.sheetsRead(sheet, cbName));
+      } catch {
+        cached = null;
+      }
+      if (cached && !settled) {
+        settled = true;
+        resolve(cached.rows);
+      }
+    });
+  }
+
   const base = getConfiguredScriptUrl();
   if (!base) throw new Error(t('sheets_missing_script_url'));
   const url = withQuery(base, { action: 'read', sheet });
   return fetchJson(url);
 }
 
-export async function sheetsWrite(sheet, rowObject) {
+function hasNativeOutbox() {
+  return !!(window.Android && typeof window.Android.sheetsEnqueueWrite === 'function');
+}
+
+// The id column the row is matched on (e.g. 'מזהה_ממצא').
+function guessKeyColumn(rowObject) {
+  return Object.keys(rowObject || {}).find(k => k.includes('מזהה')) || '';
+}
+
+// In the app, writes go to the native outbox: they survive being offline, repeated edits to one
+// row are merged, and rows are sent in batches ({ queued: true } is returned right away).
+// Elsewhere this posts one row directly, as before.
+export async function sheetsWrite(sheet, rowObject, { keyColumn } = {}) {
+  const key = keyColumn || guessKeyColumn(rowObject);
+  if (hasNativeOutbox() && key) {
+    const ok = window.Android.sheetsEnqueueWrite(sheet, key, JSON.stringify(rowObject));
+    if (!ok) throw new Error('Sheets outbox rejected the row');
+    return { queued: true };
+  }
+
   const base = getConfiguredScriptUrl();
   if (!base) throw new Error(t('sheets_missing_script_url'));
   const body = new URLSearchParams({ action: 'write', sheet, ...rowObject });
@@ -62,3 +120,29 @@ export async function sheetsWrite(sheet, rowObject) {
     body
   });
 }
+
+// { state, pending, failures, lastError, lastSuccessAt, nextAttemptAt, ... } or null outside the app.
+export function getSheetsSyncStatus() {
+  if (!(window.Android && typeof window.Android.getSheetsSyncStatus === 'function')) return null;
+  try {
+    return JSON.parse(window.Android.getSheetsSyncStatus());
+  } catch {
+    return null;
+  }
+}
+
+// Calls listener(status) on every sync status change; returns an unsubscribe function.
+export function onSheetsSyncStatus(listener) {
+  if (!(window.Android && typeof window.Android.setSheetsSyncCallback === 'function')) return () => {};
+  const cbName = '__ttSheetsSyncStatus';
+  window[cbName] = status => listener(status);
+  window.Android.setSheetsSyncCallback(cbName);
+  return () => {
+    window.Android.setSheetsSyncCallback('');
+    delete window[cbName];
+  };
+}
+
+export function sheetsSyncNow() {
+  window.Android?.sheetsSyncNow?.();
+}
@@ -23,9 +23,10 @@ export function speakHebrew(text) {
     // Prioritize Android native TTS
     if (window.Android && typeof window.Android.speakWithCallback === 'function') {
       console.log('Using Android TTS');
-      const callbackName = 'window.__ttsCallback_' + Date.now();
-      window[callbackName] = () => {
-        console.log('Android TTS finished');
+      const callbackName = '__ttsCallback_' + Date.now();
+      // Called once, with the final state (done / error / stopped).
+      window[callbackName] = (e) => {
+        console.log('Android TTS finished:', e && e.state);
         clearTimeout(timer);
         finish();
         delete window[callbackName];
@@ -65,3 +66,10 @@ export function speakHebrew(text) {
     finish(); // Silent fallback
   });
 }
+
+// Pre-renders fixed prompts on the device so speaking them starts from a cached recording.
+export function prewarmPrompts(prompts) {
+  if (window.Android && typeof window.Android.ttsPrewarm === 'function') {
+    window.Android.ttsPrewarm(JSON.stringify(prompts));
+  }
+}
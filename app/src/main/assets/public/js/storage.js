@@ -26,11 +26,19 @@ export function getScriptUrl() {
   return (localStorage.getItem(KEY_SCRIPT_URL) || '').trim();
 }
 
+// The native sync engine sends queued Sheets writes on its own, so it keeps a copy of the URL.
+export function pushScriptUrlToNative() {
+  if (window.Android && typeof window.Android.setSheetsEndpoint === 'function') {
+    window.Android.setSheetsEndpoint(getScriptUrl());
+  }
+}
+
 export function setScriptUrl(url) {
   const cleaned = (url || '').trim();
   if (!cleaned) {
     localStorage.removeItem(KEY_SCRIPT_URL);
-    return;
+  } else {
+    localStorage.setItem(KEY_SCRIPT_URL, cleaned);
   }
-  localStorage.setItem(KEY_SCRIPT_URL, cleaned);
+  pushScriptUrlToNative();
 }
@@ -0,0 +1,121 @@
+package com.example.titantagpoc;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.webkit.WebMessage;
+import android.webkit.WebMessagePort;
+import android.webkit.WebView;
+
+import org.json.JSONObject;
+
+// One channel for all native -> page events (speech, TTS, print jobs, sync, ...).
+// Events posted from any thread are queued (BridgeEventQueue) and delivered together on the next
+// frame: one WebMessagePort message per frame once the page has opened the channel
+// (js/nativeEvents.js), or one evaluateJavascript call per frame before that.
+// Callback names travel as data, never as script source.
+class BridgeEventChannel {
+
+    private static final String TAG = "BridgeEventChannel";
+    static final String HANDSHAKE = "tt-events";
+    // Frames stop while the activity is hidden; don't let events wait for the next one.
+    private static final long FALLBACK_FLUSH_MS = 50;
+
+    // Used until the page's dispatcher exists: calls window[cb](...args) for each event.
+    private static final String FALLBACK_DISPATCH =
+        "(function(b){var d=window.__ttNativeEvents;if(typeof d==='function'){d(b);return;}"
+            + "for(var i=0;i<b.length;i++){try{var f=b[i].cb&&window[b[i].cb];"
+            + "if(typeof f==='function')f.apply(null,b[i].args);}catch(e){}}})(";
+
+    private final WebView webView;
+    private final Uri origin;
+    private final BridgeEventQueue queue = new BridgeEventQueue();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Choreographer.FrameCallback frameFlush = frameTimeNanos -> flush();
+    private final Runnable fallbackFlush = this::flush;
+
+    // UI thread only.
+    private WebMessagePort port;
+    private long portMessages;
+    private long scriptEvaluations;
+
+    BridgeEventChannel(WebView webView, String localUrl) {
+        this.webView = webView;
+        Uri u = (localUrl == null) ? null : Uri.parse(localUrl);
+        this.origin = (u == null || u.getScheme() == null || u.getHost() == null)
+            ? Uri.EMPTY
+            : Uri.parse(u.getScheme() + "://" + u.getHost() + ((u.getPort() < 0) ? "" : ":" + u.getPort()));
+    }
+
+    // Queues an event. coalesceKey (may be null) lets a newer event replace a waiting one.
+    void post(String type, String coalesceKey, String callbackName, String... rawArgs) {
+        if (queue.add(coalesceKey, BridgeEventQueue.event(type, callbackName, rawArgs))) {
+            main.post(() -> {
+                Choreographer.getInstance().postFrameCallback(frameFlush);
+                main.postDelayed(fallbackFlush, FALLBACK_FLUSH_MS);
+            });
+        }
+    }
+
+    // Called when the page asks for the channel (after every load). Replaces any previous port.
+    void open() {
+        main.post(() -> {
+            closePort();
+            try {
+                WebMessagePort[] ports = webView.createWebMessageChannel();
+                webView.postWebMessage(new WebMessage(HANDSHAKE, new WebMessagePort[]{ ports[1] }), origin);
+                port = ports[0];
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Cannot open event channel, using script callbacks", e);
+                port = null;
+            }
+            flush();
+        });
+    }
+
+    void close() {
+        main.post(this::closePort);
+    }
+
+    // Counters for diagnostics; call on the UI thread for exact port/script counts.
+    JSONObject stats() {
+        JSONObject o = queue.stats();
+        try {
+            o.put("channelOpen", port != null);
+            o.put("portMessages", portMessages);
+            o.put("scriptEvaluations", scriptEvaluations);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    private void flush() {
+        main.removeCallbacks(fallbackFlush);
+        Choreographer.getInstance().removeFrameCallback(frameFlush);
+        String batch = queue.drain();
+        if (batch == null) return;
+        if (port != null) {
+            try {
+                port.postMessage(new WebMessage(batch));
+                portMessages++;
+                return;
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Event port failed, falling back to script callbacks", e);
+                closePort();
+            }
+        }
+        webView.evaluateJavascript(FALLBACK_DISPATCH + batch + ");", null);
+        scriptEvaluations++;
+    }
+
+    private void closePort() {
+        if (port == null) return;
+        try {
+            port.close();
+        } catch (RuntimeException ignored) {
+        }
+        port = null;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.titantagpoc;
+
+import java.util.ArrayList;
+
+import org.json.JSONObject;
+
+// Native -> page events waiting for the next flush, kept serialized.
+// An event with a coalesce key replaces a waiting event with the same key (and moves to the end),
+// so bursts of state updates (partial transcripts, progress, sync status) cost one delivery.
+// Thread-safe; producers call add() from any thread and the flusher calls drain().
+class BridgeEventQueue {
+
+    private final ArrayList<String> events = new ArrayList<>();
+    private final ArrayList<String> keys = new ArrayList<>();
+
+    private long added;
+    private long coalesced;
+    private long batches;
+    private int largestBatch;
+
+    // {type, cb, args}: cb is the window function the page registered for this event (or null);
+    // each raw argument must already be valid JSON.
+    static String event(String type, String callbackName, String... rawArgs) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("{\"type\":").append(JSONObject.quote(type));
+        sb.append(",\"cb\":").append((callbackName == null || callbackName.isEmpty()) ? "null" : JSONObject.quote(callbackName));
+        sb.append(",\"args\":[");
+        for (int i = 0; i < rawArgs.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append((rawArgs[i] == null) ? "null" : rawArgs[i]);
+        }
+        return sb.append("]}").toString();
+    }
+
+    // Returns true if the queue was empty, i.e. the caller should schedule a flush.
+    synchronized boolean add(String coalesceKey, String eventJson) {
+        boolean wasEmpty = events.isEmpty();
+        added++;
+        if (coalesceKey != null) {
+            int i = keys.indexOf(coalesceKey);
+            if (i >= 0) {
+                events.remove(i);
+                keys.remove(i);
+                coalesced++;
+            }
+        }
+        events.add(eventJson);
+        keys.add(coalesceKey);
+        return wasEmpty;
+    }
+
+    // The waiting events as one JSON array, or null if there are none.
+    synchronized String drain() {
+        if (events.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder(events.size() * 64);
+        sb.append('[');
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(events.get(i));
+        }
+        sb.append(']');
+        batches++;
+        largestBatch = Math.max(largestBatch, events.size());
+        events.clear();
+        keys.clear();
+        return sb.toString();
+    }
+
+    synchronized JSONObject stats() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("added", added);
+            o.put("coalesced", coalesced);
+            o.put("batches", batches);
+            o.put("largestBatch", largestBatch);
+            o.put("waiting", events.size());
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+}
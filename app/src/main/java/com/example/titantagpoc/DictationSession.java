@@ -0,0 +1,158 @@
+package com.example.titantagpoc;
+
+import java.util.function.LongSupplier;
+
+import org.json.JSONObject;
+
+// State of one continuous dictation: final segments accumulate here, the current partial is kept
+// only while it changes, and the recognizer's re-arm cycle is timed.
+//   time to first partial: startListening -> first non-empty partial of that segment
+//   restart gap:           end of a segment (result or error) -> recognizer ready again
+// Not thread-safe; MainActivity drives it from the main thread (recognizer callbacks).
+class DictationSession {
+
+    // Consecutive recoverable errors (no match, timeout, busy) tolerated before giving up.
+    static final int MAX_CONSECUTIVE_ERRORS = 5;
+
+    static final class Timing {
+        int count;
+        long last;
+        long total;
+        long max;
+
+        void add(long ms) {
+            count++;
+            last = ms;
+            total += ms;
+            max = Math.max(max, ms);
+        }
+
+        JSONObject toJson() throws Exception {
+            JSONObject o = new JSONObject();
+            o.put("count", count);
+            o.put("lastMs", last);
+            o.put("avgMs", (count == 0) ? 0 : total / count);
+            o.put("maxMs", max);
+            return o;
+        }
+    }
+
+    private final LongSupplier clock;
+    private final long startedAt;
+    private final StringBuilder committed = new StringBuilder();
+    private String partial = "";
+
+    private long listenStartedAt;
+    private boolean firstPartialSeen;
+    private long segmentEndedAt;
+    private long lastActivityAt;
+
+    final Timing firstPartial = new Timing();
+    final Timing restartGap = new Timing();
+    private int segments;
+    private int restarts;
+    private int partialsReceived;
+    private int partialsEmitted;
+    private int consecutiveErrors;
+
+    DictationSession(LongSupplier clock) {
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+        this.lastActivityAt = startedAt;
+    }
+
+    // startListening was called (first time or re-arm).
+    void onListening() {
+        if (listenStartedAt != 0) restarts++;
+        listenStartedAt = clock.getAsLong();
+        firstPartialSeen = false;
+    }
+
+    // onReadyForSpeech: closes the restart gap opened by the previous segment.
+    void onReady() {
+        if (segmentEndedAt != 0) {
+            restartGap.add(clock.getAsLong() - segmentEndedAt);
+            segmentEndedAt = 0;
+        }
+    }
+
+    // Returns true if the partial changed and should be sent to the page.
+    boolean onPartial(String text) {
+        partialsReceived++;
+        String t = (text == null) ? "" : text.trim();
+        if (t.isEmpty() || t.equals(partial)) return false;
+        long now = clock.getAsLong();
+        if (!firstPartialSeen) {
+            firstPartialSeen = true;
+            firstPartial.add(now - listenStartedAt);
+        }
+        partial = t;
+        lastActivityAt = now;
+        partialsEmitted++;
+        return true;
+    }
+
+    // A final result ends the segment. Returns true if it added text.
+    boolean onSegment(String text) {
+        String t = (text == null) ? "" : text.trim();
+        long now = clock.getAsLong();
+        segmentEndedAt = now;
+        partial = "";
+        consecutiveErrors = 0;
+        if (t.isEmpty()) return false;
+        if (committed.length() > 0) committed.append(' ');
+        committed.append(t);
+        segments++;
+        lastActivityAt = now;
+        return true;
+    }
+
+    // Returns true if the recognizer should be re-armed after this error.
+    boolean onError(boolean recoverable) {
+        segmentEndedAt = clock.getAsLong();
+        partial = "";
+        if (!recoverable) return false;
+        consecutiveErrors++;
+        return consecutiveErrors <= MAX_CONSECUTIVE_ERRORS;
+    }
+
+    long idleMs() {
+        return clock.getAsLong() - lastActivityAt;
+    }
+
+    String committed() {
+        return committed.toString();
+    }
+
+    // Committed text followed by the live partial.
+    String text() {
+        if (partial.isEmpty()) return committed.toString();
+        return (committed.length() == 0) ? partial : committed + " " + partial;
+    }
+
+    // {kind, text, committed, partial, metrics}
+    JSONObject event(String kind) {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("kind", kind);
+            o.put("text", text());
+            o.put("committed", committed.toString());
+            o.put("partial", partial);
+            if (!"partial".equals(kind)) o.put("metrics", metrics());
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    JSONObject metrics() throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("durationMs", clock.getAsLong() - startedAt);
+        o.put("segments", segments);
+        o.put("restarts", restarts);
+        o.put("partialsReceived", partialsReceived);
+        o.put("partialsEmitted", partialsEmitted);
+        o.put("firstPartial", firstPartial.toJson());
+        o.put("restartGap", restartGap.toJson());
+        return o;
+    }
+}
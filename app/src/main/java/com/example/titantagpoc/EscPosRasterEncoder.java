@@ -0,0 +1,64 @@
+package com.example.titantagpoc;
+
+// Frames a 1-bpp ESC/POS "GS v 0" raster for a fixed label size; the image itself is written in place
+// by an ImageWriter (a LabelTemplate). The output buffer (header + image + trailer) is allocated once
+// and reused for every job, so callers must finish sending it before the next encode(). Not thread-safe.
+class EscPosRasterEncoder {
+
+    private static final int HEADER_LENGTH = 8;
+
+    private final int widthDots;
+    private final int heightDots;
+    private final int bytesPerRow;
+    private final byte[] buffer;
+
+    // trailer is appended after the image, e.g. a GS J feed to the next label.
+    EscPosRasterEncoder(int widthDots, int heightDots, byte[] trailer) {
+        if (widthDots <= 0 || heightDots <= 0) throw new IllegalArgumentException("Label size must be positive");
+        this.widthDots = widthDots;
+        this.heightDots = heightDots;
+        this.bytesPerRow = (widthDots + 7) / 8;
+        int imageLength = bytesPerRow * heightDots;
+        byte[] tail = (trailer == null) ? new byte[0] : trailer;
+        int trailerOffset = HEADER_LENGTH + imageLength;
+        this.buffer = new byte[trailerOffset + tail.length];
+
+        buffer[0] = 0x1D; // GS
+        buffer[1] = 0x76; // v
+        buffer[2] = 0x30; // 0
+        buffer[3] = 0x00; // normal density
+        buffer[4] = (byte)(bytesPerRow & 0xFF);
+        buffer[5] = (byte)((bytesPerRow >> 8) & 0xFF);
+        buffer[6] = (byte)(heightDots & 0xFF);
+        buffer[7] = (byte)((heightDots >> 8) & 0xFF);
+        System.arraycopy(tail, 0, buffer, trailerOffset, tail.length);
+    }
+
+    int getWidthDots() {
+        return widthDots;
+    }
+
+    int getHeightDots() {
+        return heightDots;
+    }
+
+    int getBytesPerRow() {
+        return bytesPerRow;
+    }
+
+    // Offset of the first image byte in the returned buffer.
+    static int imageOffset() {
+        return HEADER_LENGTH;
+    }
+
+    interface ImageWriter {
+        // Writes the whole packed image (bytesPerRow * heightDots bytes) at dest[offset].
+        void write(byte[] dest, int offset);
+    }
+
+    // Lets a prepared image (e.g. a LabelTemplate) fill the raster in place and returns the reused buffer.
+    byte[] encode(ImageWriter image) {
+        image.write(buffer, HEADER_LENGTH);
+        return buffer;
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.titantagpoc;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Writes every find into one ZIP, streamed straight to disk:
+//   finds.json                 all finds (the stored JSON, one per line)
+//   finds.csv                  one row per find, UTF-8 with BOM so Excel reads the Hebrew
+//   media/<findId>/<file>      stored media files (native media only; IndexedDB blobs aren't reachable)
+//   qr/<findId>.png            QR label image
+// One scan of the store takes a snapshot of find IDs and nothing else; every section is then written
+// from that snapshot, fetching finds one at a time, so no file I/O runs inside the scan and finds.json,
+// finds.csv, media/ and qr/ always cover the same finds. Finds aren't held in memory (the CSV is staged
+// in a temp file) and files are copied through one small buffer, so the archive size is bounded by
+// disk, not heap.
+class FindsExporter {
+
+    interface FindSource {
+        void forEachJson(Consumer<String> action);
+
+        // null if the find was deleted since.
+        String get(String id);
+    }
+
+    interface MediaSource {
+        // The file to export for a media id, or null if it isn't stored natively.
+        File fileFor(String mediaId);
+    }
+
+    interface Progress {
+        void onProgress(int findsDone, int findsTotal, long bytes);
+    }
+
+    static final class Result {
+        int finds;
+        int mediaFiles;
+        int missingMedia;
+        long bytes;
+    }
+
+    static final class CancelledException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CancelledException() {
+            super("Export cancelled");
+        }
+    }
+
+    static final String[] CSV_COLUMNS = {
+        "id", "site", "plot", "layer", "description", "location", "datetimeText",
+        "createdAt", "createdBy", "updatedAt", "mediaCount"
+    };
+
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    private final FindSource finds;
+    private final MediaSource media;
+    private final NativeImageWebViewClient.QrPngSource qr;
+    private final byte[] buffer = new byte[64 * 1024];
+    private final Set<String> entryNames = new HashSet<>();
+    // The snapshot; finds deleted before finds.json was written are dropped from it.
+    private final List<Snapshot> snapshot = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    private static final class Snapshot {
+        final String id;
+        // Media IDs as of the JSON written to finds.json.
+        final List<String> mediaIds = new ArrayList<>();
+
+        Snapshot(String id) {
+            this.id = id;
+        }
+    }
+
+    private ZipOutputStream zip;
+    private Result result;
+    private long bytesIn;
+    private long lastProgressAt;
+
+    FindsExporter(FindSource finds, MediaSource media, NativeImageWebViewClient.QrPngSource qr) {
+        this.finds = finds;
+        this.media = media;
+        this.qr = qr;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    // Writes to a temp file next to out and renames it when complete.
+    Result export(File out, Progress progress) throws IOException {
+        File tmp = new File(out.getPath() + ".tmp");
+        File csv = new File(out.getPath() + ".csv.tmp");
+        result = new Result();
+        entryNames.clear();
+        bytesIn = 0;
+        try (ZipOutputStream z = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024))) {
+            zip = z;
+            takeSnapshot();
+            writeJson(csv);
+            writeCsv(csv);
+            writeFiles(progress);
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        } finally {
+            zip = null;
+            csv.delete();
+            snapshot.clear();
+        }
+        if (!tmp.renameTo(out)) {
+            tmp.delete();
+            throw new IOException("Failed to create " + out);
+        }
+        result.bytes = out.length();
+        return result;
+    }
+
+    // Only collects IDs: the store is read without holding anything but the cursor.
+    private void takeSnapshot() throws IOException {
+        Set<String> seen = new HashSet<>();
+        try {
+            finds.forEachJson(json -> {
+                if (cancelled) throw new Tunnel(new CancelledException());
+                JSONObject f = parse(json);
+                String id = (f == null) ? "" : f.optString("id", "").trim();
+                if (!id.isEmpty() && seen.add(id)) snapshot.add(new Snapshot(id));
+            });
+        } catch (Tunnel t) {
+            throw t.io;
+        }
+    }
+
+    // Also stages finds.csv from the same JSON, so both list exactly the same finds.
+    private void writeJson(File csv) throws IOException {
+        begin("finds.json", Deflater.DEFAULT_COMPRESSION);
+        write("[\n");
+        boolean first = true;
+        try (Writer rows = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csv), StandardCharsets.UTF_8))) {
+            Iterator<Snapshot> it = snapshot.iterator();
+            while (it.hasNext()) {
+                checkCancelled();
+                Snapshot s = it.next();
+                String json = finds.get(s.id);
+                JSONObject f = (json == null) ? null : parse(json);
+                if (f == null) {
+                    it.remove();
+                    continue;
+                }
+                if (!first) write(",\n");
+                first = false;
+                write(json);
+                rows.write(csvRow(f) + "\r\n");
+                JSONArray refs = f.optJSONArray("media");
+                for (int i = 0; refs != null && i < refs.length(); i++) {
+                    JSONObject ref = refs.optJSONObject(i);
+                    s.mediaIds.add((ref == null) ? "" : ref.optString("id", ""));
+                }
+            }
+        }
+        write("\n]\n");
+        zip.closeEntry();
+    }
+
+    private void writeCsv(File staged) throws IOException {
+        begin("finds.csv", Deflater.DEFAULT_COMPRESSION);
+        write("\uFEFF");
+        write(String.join(",", CSV_COLUMNS) + "\r\n");
+        try (InputStream in = new FileInputStream(staged)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                zip.write(buffer, 0, n);
+                bytesIn += n;
+            }
+        }
+        zip.closeEntry();
+    }
+
+    private void writeFiles(Progress progress) throws IOException {
+        int total = snapshot.size();
+        int done = 0;
+        for (Snapshot s : snapshot) {
+            checkCancelled();
+            String id = s.id;
+            String dir = safeName(id);
+
+            for (String mediaId : s.mediaIds) {
+                File file = mediaId.isEmpty() ? null : media.fileFor(mediaId);
+                if (file == null || !file.isFile()) {
+                    result.missingMedia++;
+                    continue;
+                }
+                // Photos and videos are already compressed.
+                begin("media/" + dir + "/" + file.getName(), Deflater.NO_COMPRESSION);
+                try (InputStream in = new FileInputStream(file)) {
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        checkCancelled();
+                        zip.write(buffer, 0, n);
+                        bytesIn += n;
+                        reportProgress(progress, done, total, false);
+                    }
+                }
+                zip.closeEntry();
+                result.mediaFiles++;
+            }
+
+            byte[] png;
+            try {
+                png = qr.qrPng(id);
+            } catch (Exception e) {
+                png = null;
+            }
+            if (png != null) {
+                begin("qr/" + dir + ".png", Deflater.NO_COMPRESSION);
+                zip.write(png);
+                bytesIn += png.length;
+                zip.closeEntry();
+            }
+
+            result.finds++;
+            done++;
+            reportProgress(progress, done, total, done == total);
+        }
+    }
+
+    private void reportProgress(Progress progress, int done, int total, boolean force) {
+        if (progress == null) return;
+        long now = System.currentTimeMillis();
+        if (!force && now - lastProgressAt < PROGRESS_INTERVAL_MS) return;
+        lastProgressAt = now;
+        progress.onProgress(done, total, bytesIn);
+    }
+
+    // forEachJson takes a plain Consumer; IOExceptions are tunnelled out and rethrown.
+    private static final class Tunnel extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final IOException io;
+
+        Tunnel(IOException io) {
+            super(io);
+            this.io = io;
+        }
+    }
+
+    private void begin(String name, int level) throws IOException {
+        String unique = name;
+        for (int n = 2; !entryNames.add(unique); n++) {
+            int dot = name.lastIndexOf('.');
+            unique = (dot > name.lastIndexOf('/')) ? name.substring(0, dot) + "-" + n + name.substring(dot) : name + "-" + n;
+        }
+        zip.setLevel(level);
+        zip.putNextEntry(new ZipEntry(unique));
+    }
+
+    private void write(String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        zip.write(b);
+        bytesIn += b.length;
+    }
+
+    private void checkCancelled() throws IOException {
+        if (cancelled) throw new CancelledException();
+    }
+
+    private static JSONObject parse(String json) {
+        try {
+            return new JSONObject(json);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static String csvRow(JSONObject f) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            if (i > 0) sb.append(',');
+            String c = CSV_COLUMNS[i];
+            String v;
+            if ("mediaCount".equals(c)) {
+                JSONArray m = f.optJSONArray("media");
+                v = Integer.toString((m == null) ? 0 : m.length());
+            } else {
+                v = f.isNull(c) ? "" : f.optString(c, "");
+            }
+            sb.append(csvField(v));
+        }
+        return sb.toString();
+    }
+
+    static String csvField(String v) {
+        if (v.indexOf(',') < 0 && v.indexOf('"') < 0 && v.indexOf('\n') < 0 && v.indexOf('\r') < 0) return v;
+        return '"' + v.replace("\"", "\"\"") + '"';
+    }
+
+    // Find ids are user-editable; keep them from escaping their directory.
+    static String safeName(String id) {
+        String s = id.replaceAll("[^\\p{L}\\p{N}._-]", "_");
+        if (s.startsWith(".")) s = "_" + s.substring(1);
+        return s.isEmpty() ? "_" : s;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.titantagpoc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.json.JSONObject;
+
+// In-memory inverted index over finds, kept in step with FindsStore.
+// Terms are HebrewNormalizer tokens plus their particle-stripped variants, kept sorted so every
+// query word is a prefix match (search-as-you-type). All query words must match; a find's score
+// is the sum over words of its best field weight, discounted for prefix and variant matches.
+class FindsSearchIndex {
+
+    static final String FIELD_ID = "id";
+    static final String FIELD_SITE = "site";
+    static final String FIELD_PLOT = "plot";
+    static final String FIELD_LAYER = "layer";
+    static final String FIELD_LOCATION = "location";
+    static final String FIELD_DESCRIPTION = "description";
+    static final String FIELD_NOTES = "notes";
+
+    private static final Map<String, Float> FIELD_WEIGHTS = new HashMap<>();
+    static {
+        FIELD_WEIGHTS.put(FIELD_ID, 4f);
+        FIELD_WEIGHTS.put(FIELD_SITE, 2f);
+        FIELD_WEIGHTS.put(FIELD_PLOT, 2f);
+        FIELD_WEIGHTS.put(FIELD_LAYER, 2f);
+        FIELD_WEIGHTS.put(FIELD_LOCATION, 1f);
+        FIELD_WEIGHTS.put(FIELD_DESCRIPTION, 1f);
+        FIELD_WEIGHTS.put(FIELD_NOTES, 1f);
+    }
+
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float VARIANT_FACTOR = 0.7f;
+    private static final float EXACT_ID_BONUS = 100f;
+
+    // term -> (find id -> weight)
+    private final TreeMap<String, Map<String, Float>> postings = new TreeMap<>();
+    // find id -> its terms, for updates and removal
+    private final Map<String, Set<String>> docTerms = new HashMap<>();
+
+    // Searchable fields of a find as stored by the web app. Dictated text lands in description;
+    // "notes" is indexed too when present.
+    static Map<String, String> fieldsOf(JSONObject find) {
+        Map<String, String> f = new LinkedHashMap<>();
+        for (String name : FIELD_WEIGHTS.keySet()) f.put(name, find.optString(name, ""));
+        return f;
+    }
+
+    // Adds or replaces a find.
+    synchronized void put(String id, Map<String, String> fields) {
+        remove(id);
+        Map<String, Float> weights = new HashMap<>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            Float fieldWeight = FIELD_WEIGHTS.get(field.getKey());
+            if (fieldWeight == null) continue;
+            for (String token : HebrewNormalizer.tokenize(field.getValue())) {
+                int i = 0;
+                for (String term : HebrewNormalizer.variants(token)) {
+                    float w = (i++ == 0) ? fieldWeight : fieldWeight * VARIANT_FACTOR;
+                    weights.merge(term, w, Math::max);
+                }
+            }
+        }
+        for (Map.Entry<String, Float> e : weights.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(id, e.getValue());
+        }
+        docTerms.put(id, new HashSet<>(weights.keySet()));
+    }
+
+    synchronized boolean remove(String id) {
+        Set<String> terms = docTerms.remove(id);
+        if (terms == null) return false;
+        for (String term : terms) {
+            Map<String, Float> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(id);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+        return true;
+    }
+
+    synchronized void clear() {
+        postings.clear();
+        docTerms.clear();
+    }
+
+    synchronized int size() {
+        return docTerms.size();
+    }
+
+    synchronized int termCount() {
+        return postings.size();
+    }
+
+    // Find ids, best match first (ties: larger id first, i.e. newer FIND-<millis> ids).
+    synchronized List<String> search(String query, int limit) {
+        List<String> tokens = HebrewNormalizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        Map<String, Float> total = null;
+        for (String token : tokens) {
+            Map<String, Float> scores = scoreToken(token);
+            if (total == null) {
+                total = scores;
+            } else {
+                total.keySet().retainAll(scores.keySet());
+                for (Map.Entry<String, Float> e : total.entrySet()) e.setValue(e.getValue() + scores.get(e.getKey()));
+            }
+            if (total.isEmpty()) return Collections.emptyList();
+        }
+
+        String exact = query.trim();
+        if (total.containsKey(exact)) total.put(exact, total.get(exact) + EXACT_ID_BONUS);
+
+        List<Map.Entry<String, Float>> ranked = new ArrayList<>(total.entrySet());
+        ranked.sort((a, b) -> {
+            int c = Float.compare(b.getValue(), a.getValue());
+            return (c != 0) ? c : b.getKey().compareTo(a.getKey());
+        });
+        List<String> out = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) out.add(ranked.get(i).getKey());
+        return out;
+    }
+
+    // Best weight per find for one query word, over its variants and the terms they prefix.
+    private Map<String, Float> scoreToken(String token) {
+        Map<String, Float> scores = new HashMap<>();
+        int i = 0;
+        for (String variant : HebrewNormalizer.variants(token)) {
+            float factor = (i++ == 0) ? 1f : VARIANT_FACTOR;
+            NavigableMap<String, Map<String, Float>> range =
+                postings.subMap(variant, true, variant + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Map<String, Float>> term : range.entrySet()) {
+                float quality = term.getKey().equals(variant) ? factor : factor * PREFIX_FACTOR;
+                for (Map.Entry<String, Float> doc : term.getValue().entrySet()) {
+                    scores.merge(doc.getKey(), doc.getValue() * quality, Math::max);
+                }
+            }
+        }
+        return scores;
+    }
+}
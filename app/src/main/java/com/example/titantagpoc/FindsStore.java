@@ -0,0 +1,307 @@
+package com.example.titantagpoc;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Persistent finds store (SQLite), keyed by find id.
+// Each find is kept as the JSON object the web app produced, plus the columns we query on.
+// Listing is newest first: createdAt (ISO-8601 UTC sorts as text), then insertion order.
+// Every write is also appended to a change log, so the list UI can apply deltas instead of reloading.
+class FindsStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "FindsStore";
+    private static final String DB_NAME = "finds.db";
+    private static final int DB_VERSION = 2;
+
+    static final String TABLE = "finds";
+    static final String CHANGES = "find_changes";
+    static final int MAX_PAGE = 500;
+
+    static final String OP_PUT = "put";
+    static final String OP_DELETE = "delete";
+    // Too many changes to replay (e.g. the localStorage import): reload the list.
+    static final String OP_RESET = "reset";
+
+    // Change log entries kept; a reader further behind than this gets a reset.
+    private static final int MAX_CHANGES = 1000;
+    private static final int SUMMARY_TEXT_CHARS = 200;
+
+    FindsStore(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + "id TEXT PRIMARY KEY NOT NULL, "
+            + "created_at TEXT NOT NULL DEFAULT '', "
+            + "updated_at INTEGER NOT NULL, "
+            + "json TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX finds_created ON " + TABLE + " (created_at)");
+        createChanges(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) createChanges(db);
+    }
+
+    private static void createChanges(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + CHANGES + " ("
+            + "seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + "id TEXT NOT NULL, "
+            + "op TEXT NOT NULL)");
+    }
+
+    // null when missing
+    String get(String id) {
+        if (id == null) return null;
+        try (Cursor c = getReadableDatabase().query(TABLE, new String[]{ "json" }, "id = ?",
+                new String[]{ id }, null, null, null)) {
+            return c.moveToFirst() ? c.getString(0) : null;
+        }
+    }
+
+    boolean contains(String id) {
+        return get(id) != null;
+    }
+
+    // Insert or replace. Returns false when the JSON has no id.
+    boolean put(JSONObject find) {
+        ContentValues v = values(find);
+        if (v == null) return false;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (db.insertWithOnConflict(TABLE, null, v, SQLiteDatabase.CONFLICT_REPLACE) == -1) return false;
+            recordChange(db, v.getAsString("id"), OP_PUT);
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Replace an existing find only. Returns false when it doesn't exist.
+    boolean update(JSONObject find) {
+        ContentValues v = values(find);
+        if (v == null) return false;
+        String id = v.getAsString("id");
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (db.update(TABLE, v, "id = ?", new String[]{ id }) == 0) return false;
+            recordChange(db, id, OP_PUT);
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    boolean delete(String id) {
+        if (id == null) return false;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (db.delete(TABLE, "id = ?", new String[]{ id }) == 0) return false;
+            recordChange(db, id, OP_DELETE);
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    int count() {
+        try (Cursor c = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + TABLE, null)) {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        }
+    }
+
+    // Newest first; limit is capped at MAX_PAGE.
+    List<String> list(int offset, int limit) {
+        int n = Math.max(1, Math.min(MAX_PAGE, limit));
+        List<String> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(TABLE, new String[]{ "json" }, null, null, null, null,
+                "created_at DESC, rowid DESC", Math.max(0, offset) + "," + n)) {
+            while (c.moveToNext()) out.add(c.getString(0));
+        }
+        return out;
+    }
+
+    // Every find's JSON, in no particular order (for rebuilding derived indexes).
+    // Returns the change-log position read just before the scan: everything up to it is in the scan,
+    // and changesSince() of it lists whatever the scan may have missed (or already seen).
+    // No transaction: under WAL the query reads a snapshot on a reader connection and writers go on.
+    long forEachJson(Consumer<String> action) {
+        SQLiteDatabase db = getReadableDatabase();
+        long seq = latestSeq(db);
+        try (Cursor c = db.query(TABLE, new String[]{ "json" }, null, null, null, null, null)) {
+            while (c.moveToNext()) action.accept(c.getString(0));
+        }
+        return seq;
+    }
+
+    // One-time import of the web app's localStorage array (newest first, as findsStore.js kept it).
+    // Finds that already exist are left alone, so a retried migration is harmless. Returns the number imported.
+    int importArray(JSONArray finds) {
+        SQLiteDatabase db = getWritableDatabase();
+        int imported = 0;
+        db.beginTransaction();
+        try {
+            // Oldest first, so rowid order matches the original order for finds without createdAt.
+            for (int i = finds.length() - 1; i >= 0; i--) {
+                ContentValues v = values(finds.optJSONObject(i));
+                if (v == null) continue;
+                if (db.insertWithOnConflict(TABLE, null, v, SQLiteDatabase.CONFLICT_IGNORE) != -1) imported++;
+            }
+            if (imported > 0) recordChange(db, "", OP_RESET);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.i(TAG, "Imported " + imported + " of " + finds.length() + " finds");
+        return imported;
+    }
+
+    // Keyset page of find summaries, newest first.
+    // cursor is null/"" for the first page, else the "next" value of the previous page.
+    // Returns {items:[summary], next: cursor|null, total, seq}; seq is read before the page, so the page
+    // has every change up to it and changesSince(seq) covers the rest (possibly some already in it).
+    JSONObject summaries(String cursor, int limit) throws Exception {
+        int n = Math.max(1, Math.min(MAX_PAGE, limit));
+        String where = null;
+        String[] args = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            int sep = cursor.lastIndexOf('|');
+            String created = cursor.substring(0, sep);
+            String rowid = cursor.substring(sep + 1);
+            where = "created_at < ? OR (created_at = ? AND rowid < CAST(? AS INTEGER))";
+            args = new String[]{ created, created, rowid };
+        }
+
+        SQLiteDatabase db = getReadableDatabase();
+        JSONObject page = new JSONObject();
+        JSONArray items = new JSONArray();
+        String next = null;
+        page.put("seq", latestSeq(db));
+        try (Cursor c = db.query(TABLE, new String[]{ "rowid", "created_at", "json" }, where, args,
+                null, null, "created_at DESC, rowid DESC", String.valueOf(n + 1))) {
+            String lastKey = null;
+            while (c.moveToNext()) {
+                // One row past the page only tells us there is more.
+                if (items.length() == n) {
+                    next = lastKey;
+                    break;
+                }
+                items.put(summary(new JSONObject(c.getString(2))));
+                lastKey = c.getString(1) + "|" + c.getLong(0);
+            }
+        }
+        page.put("total", count());
+        page.put("items", items);
+        page.put("next", next == null ? JSONObject.NULL : next);
+        return page;
+    }
+
+    // Changes after seq, oldest first: {seq, reset, changes:[{seq, id, op}]}.
+    // reset=true means the caller is too far behind (or the store was bulk-loaded) and should reload.
+    JSONObject changesSince(long seq) throws Exception {
+        SQLiteDatabase db = getReadableDatabase();
+        JSONObject o = new JSONObject();
+        JSONArray changes = new JSONArray();
+        long latest = latestSeq(db);
+        // Ahead of the log: the database was recreated.
+        boolean reset = seq > latest;
+        long last = seq;
+        try (Cursor c = db.query(CHANGES, new String[]{ "seq", "id", "op" }, "seq > ?",
+                new String[]{ String.valueOf(seq) }, null, null, "seq", String.valueOf(MAX_CHANGES + 1))) {
+            boolean first = true;
+            while (!reset && c.moveToNext()) {
+                long s = c.getLong(0);
+                String op = c.getString(2);
+                // A gap right after seq means older entries were trimmed.
+                if (first && s != seq + 1) reset = true;
+                first = false;
+                if (changes.length() == MAX_CHANGES || OP_RESET.equals(op)) reset = true;
+                if (reset) break;
+                JSONObject ch = new JSONObject();
+                ch.put("seq", s);
+                ch.put("id", c.getString(1));
+                ch.put("op", op);
+                changes.put(ch);
+                last = s;
+            }
+        }
+        if (reset) {
+            changes = new JSONArray();
+            last = latest;
+        }
+        o.put("seq", last);
+        o.put("reset", reset);
+        o.put("changes", changes);
+        return o;
+    }
+
+    private static long latestSeq(SQLiteDatabase db) {
+        try (Cursor c = db.rawQuery("SELECT IFNULL(MAX(seq), 0) FROM " + CHANGES, null)) {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        }
+    }
+
+    private static void recordChange(SQLiteDatabase db, String id, String op) {
+        ContentValues v = new ContentValues();
+        v.put("id", id);
+        v.put("op", op);
+        long seq = db.insert(CHANGES, null, v);
+        if (seq > MAX_CHANGES) {
+            db.delete(CHANGES, "seq <= ?", new String[]{ String.valueOf(seq - MAX_CHANGES) });
+        }
+    }
+
+    // What a list card needs; the full find is fetched with get() when opened.
+    static JSONObject summary(JSONObject find) throws Exception {
+        JSONObject s = new JSONObject();
+        s.put("id", find.optString("id", ""));
+        s.put("site", find.optString("site", ""));
+        s.put("plot", find.optString("plot", ""));
+        s.put("layer", find.optString("layer", ""));
+        s.put("datetimeText", find.optString("datetimeText", ""));
+        s.put("createdAt", find.optString("createdAt", ""));
+        String description = find.optString("description", "");
+        if (description.length() > SUMMARY_TEXT_CHARS) description = description.substring(0, SUMMARY_TEXT_CHARS) + "…";
+        s.put("description", description);
+        JSONArray media = find.optJSONArray("media");
+        s.put("mediaCount", media == null ? 0 : media.length());
+        return s;
+    }
+
+    private static ContentValues values(JSONObject find) {
+        if (find == null) return null;
+        String id = find.optString("id", "").trim();
+        if (id.isEmpty()) return null;
+        ContentValues v = new ContentValues();
+        v.put("id", id);
+        v.put("created_at", find.optString("createdAt", ""));
+        v.put("updated_at", System.currentTimeMillis());
+        v.put("json", find.toString());
+        return v;
+    }
+}
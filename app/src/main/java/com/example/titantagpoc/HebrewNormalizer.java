@@ -0,0 +1,87 @@
+package com.example.titantagpoc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Text normalization for search (Hebrew first, Latin/digits passed through lower-cased):
+//  - niqqud and cantillation marks are dropped; maqaf and other punctuation split words
+//  - final letters are unified with their regular forms (ך→כ, ם→מ, ן→נ, ף→פ, ץ→צ)
+//  - geresh/gershayim and quotes inside words are dropped (צה"ל → צהל)
+// Prefix particles (ו, ה, ב, ל, כ, מ, ש) are handled by variants(), not by normalize().
+final class HebrewNormalizer {
+
+    // One-letter particles that attach to the following word.
+    private static final String PREFIX_LETTERS = "והבלכמש";
+    private static final int MAX_PREFIX_LETTERS = 2;
+    private static final int MIN_STEM_LENGTH = 2;
+
+    private HebrewNormalizer() {
+    }
+
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isHebrewMark(c) || isInWordQuote(c)) continue;
+            sb.append(finalToRegular(c));
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // Normalized words: runs of letters and digits.
+    static List<String> tokenize(String text) {
+        String s = normalize(text);
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(s.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    // The token itself, then the token with up to two leading particles removed
+    // (והבית → והבית, הבית, בית). Non-Hebrew tokens have no variants.
+    static Set<String> variants(String token) {
+        Set<String> out = new LinkedHashSet<>();
+        out.add(token);
+        String t = token;
+        for (int i = 0; i < MAX_PREFIX_LETTERS; i++) {
+            if (t.length() - 1 < MIN_STEM_LENGTH || PREFIX_LETTERS.indexOf(t.charAt(0)) < 0) break;
+            t = t.substring(1);
+            out.add(t);
+        }
+        return out;
+    }
+
+    private static boolean isHebrewMark(char c) {
+        // U+0591..U+05C7: cantillation and niqqud; the punctuation among them splits words instead.
+        if (c < 0x0591 || c > 0x05C7) return false;
+        return c != 0x05BE && c != 0x05C0 && c != 0x05C3 && c != 0x05C6;
+    }
+
+    // Geresh/gershayim (and the ASCII quotes typed for them) are part of the word.
+    private static boolean isInWordQuote(char c) {
+        return c == '׳' || c == '״' || c == '"' || c == '\'';
+    }
+
+    private static char finalToRegular(char c) {
+        switch (c) {
+            case 'ך': return 'כ';
+            case 'ם': return 'מ';
+            case 'ן': return 'נ';
+            case 'ף': return 'פ';
+            case 'ץ': return 'צ';
+            default: return c;
+        }
+    }
+}
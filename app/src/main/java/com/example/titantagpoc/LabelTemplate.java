@@ -0,0 +1,323 @@
+package com.example.titantagpoc;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A label layout compiled once into a packed 1-bpp image (MSB-first rows, as ESC/POS raster wants):
+// the static layer (rule between QR and text) is drawn at construction, and the glyphs used for
+// IDs and dates are rasterized once into an atlas. render() copies the static image and ORs in
+// the QR module grid and the job's glyphs; no text is laid out or drawn per label.
+//   +---------+ | FIND-
+//   |   QR    | | 1718000000000-
+//   |         | | AB12CD
+//   |         | | <site>
+//   +---------+ | 12.06.2024
+// The line height is chosen at compile time so a full-length find ID always fits its lines.
+// Site names go through the rasterizer as whole strings (they may be Hebrew and need bidi); the
+// result is cached per name, since a dig prints many labels for the same site.
+// Not thread-safe; MainActivity renders under labelEncoderLock.
+class LabelTemplate {
+
+    static final class Spec {
+        final String name;
+        final int widthMm;
+        final int heightMm;
+        final int qrMm;
+        final int gapMm;
+        // false: QR only, centred as before templates existed.
+        final boolean text;
+
+        Spec(String name, int widthMm, int heightMm, int qrMm, int gapMm, boolean text) {
+            this.name = name;
+            this.widthMm = widthMm;
+            this.heightMm = heightMm;
+            this.qrMm = qrMm;
+            this.gapMm = gapMm;
+            this.text = text;
+        }
+    }
+
+    // 58 mm printers have a 48 mm (384 dot) print line.
+    static final Spec[] SPECS = {
+        new Spec("45x30", 45, 30, 20, 15, true),
+        new Spec("48x40", 48, 40, 28, 15, true),
+        new Spec("40x25", 40, 25, 18, 12, true),
+        new Spec("45x30-qr", 45, 30, 20, 15, false),
+        new Spec("30x20-qr", 30, 20, 16, 10, false),
+    };
+
+    static Spec spec(String name) {
+        for (Spec s : SPECS) {
+            if (s.name.equals(name)) return s;
+        }
+        return SPECS[0];
+    }
+
+    // 1-bpp image, rows packed MSB-first.
+    static final class Bitmap1 {
+        final int width;
+        final int height;
+        final int bytesPerRow;
+        final byte[] bits;
+
+        Bitmap1(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.bytesPerRow = (width + 7) / 8;
+            this.bits = new byte[bytesPerRow * height];
+        }
+
+        void set(int x, int y) {
+            bits[y * bytesPerRow + (x >> 3)] |= (byte) (0x80 >> (x & 7));
+        }
+
+        boolean get(int x, int y) {
+            return (bits[y * bytesPerRow + (x >> 3)] & (0x80 >> (x & 7))) != 0;
+        }
+    }
+
+    interface TextRasterizer {
+        // text drawn in black on a heightDots-high 1-bpp bitmap, as wide as it needs.
+        Bitmap1 render(String text, int heightDots);
+    }
+
+    // Characters of find IDs (FIND-<millis>-<base36>) and dates; rasterized with the template.
+    static final String ATLAS_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_./: ";
+    private static final int MAX_ID_LINES = 3;
+    // Longest find ID (findsStore.js newFindId: FIND-<millis>-<6 hex>), in the characters it may contain.
+    private static final String ID_DIGITS = "0123456789ABCDEF";
+    private static final int ID_MILLIS_CHARS = 13;
+    private static final int ID_SUFFIX_CHARS = 6;
+    private static final int MIN_LINE_MM_X4 = 7; // 1.75 mm
+    private static final int MAX_CACHED_SITES = 16;
+
+    final Spec spec;
+    final int widthDots;
+    final int heightDots;
+    final int bytesPerRow;
+    final int gapDots;
+    private final int qrLeft;
+    private final int qrTop;
+    private final int qrBox;
+    private final int textLeft;
+    private final int textRight;
+    private int lineHeight;
+
+    private final TextRasterizer rasterizer;
+    private final byte[] base;
+    private final Map<Character, Bitmap1> atlas = new HashMap<>();
+    private final LinkedHashMap<String, Bitmap1> sites = new LinkedHashMap<String, Bitmap1>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bitmap1> eldest) {
+            return size() > MAX_CACHED_SITES;
+        }
+    };
+    // One packed QR row, built per module row and copied to each dot row of that module.
+    private final byte[] qrRow;
+
+    LabelTemplate(Spec spec, int dotsPerMm, TextRasterizer rasterizer) {
+        this.spec = spec;
+        this.rasterizer = rasterizer;
+        this.widthDots = spec.widthMm * dotsPerMm;
+        this.heightDots = spec.heightMm * dotsPerMm;
+        this.bytesPerRow = (widthDots + 7) / 8;
+        this.gapDots = spec.gapMm * dotsPerMm;
+        this.base = new byte[bytesPerRow * heightDots];
+        this.qrRow = new byte[bytesPerRow];
+
+        int margin = dotsPerMm;
+        qrBox = Math.max(40, Math.min(spec.qrMm * dotsPerMm, heightDots));
+        qrTop = 0;
+        if (spec.text && rasterizer != null) {
+            qrLeft = 0;
+            textLeft = qrBox + 2 * margin;
+            textRight = widthDots - margin;
+            // ID lines, site and date share the height beside the QR.
+            lineHeight = Math.min(3 * dotsPerMm, qrBox / (MAX_ID_LINES + 2));
+            for (int y = 0; y < qrBox; y++) setRun(base, y * bytesPerRow, qrBox + margin, 1);
+            compileAtlas(Math.max(1, MIN_LINE_MM_X4 * dotsPerMm / 4));
+        } else {
+            qrLeft = Math.max(0, (widthDots - qrBox) / 2);
+            textLeft = textRight = widthDots;
+            lineHeight = 0;
+        }
+    }
+
+    int qrSizeDots() {
+        return qrBox;
+    }
+
+    int lineHeightDots() {
+        return lineHeight;
+    }
+
+    // Rasterizes the atlas, shrinking the text until the widest possible find ID fits MAX_ID_LINES
+    // lines of the column (or the text reaches minLine dots high).
+    private void compileAtlas(int minLine) {
+        while (true) {
+            atlas.clear();
+            for (int i = 0; i < ATLAS_CHARS.length(); i++) glyph(ATLAS_CHARS.charAt(i));
+            String widest = widestIdSample();
+            if (lineHeight <= minLine || String.join("", wrapId(widest)).equals(widest)) return;
+            lineHeight--;
+        }
+    }
+
+    private String widestIdSample() {
+        char w = ID_DIGITS.charAt(0);
+        for (int i = 1; i < ID_DIGITS.length(); i++) {
+            if (glyph(ID_DIGITS.charAt(i)).width > glyph(w).width) w = ID_DIGITS.charAt(i);
+        }
+        StringBuilder sb = new StringBuilder("FIND-");
+        for (int i = 0; i < ID_MILLIS_CHARS; i++) sb.append(w);
+        sb.append('-');
+        for (int i = 0; i < ID_SUFFIX_CHARS; i++) sb.append(w);
+        return sb.toString();
+    }
+
+    // Writes the label image (bytesPerRow * heightDots bytes) at dest[offset].
+    // modules: the QR module grid (one bit per module, no quiet zone). site and date may be empty.
+    void render(BitMatrix modules, String findId, String site, String date, byte[] dest, int offset) {
+        System.arraycopy(base, 0, dest, offset, base.length);
+        blitQr(modules, dest, offset);
+        if (lineHeight == 0) return;
+
+        int y = qrTop;
+        for (String line : wrapId(findId)) {
+            drawGlyphs(line, textLeft, y, dest, offset);
+            y += lineHeight;
+        }
+        y = qrTop + MAX_ID_LINES * lineHeight;
+        if (site != null && !site.trim().isEmpty()) {
+            drawBitmap(siteBitmap(site.trim()), textLeft, y, dest, offset);
+        }
+        y += lineHeight;
+        if (date != null && !date.isEmpty()) drawGlyphs(date, textLeft, y, dest, offset);
+    }
+
+    // Largest whole number of dots per module that fits the QR box, centred in it.
+    private void blitQr(BitMatrix modules, byte[] dest, int offset) {
+        int n = modules.getWidth();
+        int scale = qrBox / n;
+        if (scale <= 0) return;
+        int pad = (qrBox - n * scale) / 2;
+        int left = qrLeft + pad;
+        int top = qrTop + pad;
+        for (int my = 0; my < modules.getHeight(); my++) {
+            Arrays.fill(qrRow, (byte) 0);
+            for (int mx = 0; mx < n; mx++) {
+                if (modules.get(mx, my)) setRun(qrRow, 0, left + mx * scale, scale);
+            }
+            for (int dy = 0; dy < scale; dy++) {
+                int y = top + my * scale + dy;
+                if (y >= heightDots) return;
+                int row = offset + y * bytesPerRow;
+                for (int i = 0; i < bytesPerRow; i++) dest[row + i] |= qrRow[i];
+            }
+        }
+    }
+
+    // Breaks the ID into at most MAX_ID_LINES lines that fit the text column, preferring to break
+    // after a '-' when the rest still fits the lines left, else filling each line. What doesn't fit
+    // on the last line is cut.
+    String[] wrapId(String id) {
+        String text = (id == null) ? "" : id;
+        String[] lines = wrapId(text, true);
+        if (!String.join("", lines).equals(text)) lines = wrapId(text, false);
+        return lines;
+    }
+
+    private String[] wrapId(String id, boolean atDash) {
+        String[] lines = new String[0];
+        String rest = id;
+        int width = textRight - textLeft;
+        while (!rest.isEmpty() && lines.length < MAX_ID_LINES) {
+            int fit = 0;
+            int used = 0;
+            while (fit < rest.length()) {
+                int w = glyph(rest.charAt(fit)).width;
+                if (used + w > width) break;
+                used += w;
+                fit++;
+            }
+            if (fit == 0) break;
+            int cut = fit;
+            if (atDash && fit < rest.length() && lines.length < MAX_ID_LINES - 1) {
+                int dash = rest.lastIndexOf('-', fit - 1);
+                int linesLeft = MAX_ID_LINES - lines.length - 1;
+                if (dash > 0 && textWidth(rest.substring(dash + 1)) <= linesLeft * width) cut = dash + 1;
+            }
+            lines = Arrays.copyOf(lines, lines.length + 1);
+            lines[lines.length - 1] = rest.substring(0, cut);
+            rest = rest.substring(cut);
+        }
+        return lines;
+    }
+
+    private int textWidth(String text) {
+        int w = 0;
+        for (int i = 0; i < text.length(); i++) w += glyph(text.charAt(i)).width;
+        return w;
+    }
+
+    private Bitmap1 glyph(char c) {
+        Bitmap1 g = atlas.get(c);
+        if (g == null) {
+            g = rasterizer.render(String.valueOf(c), lineHeight);
+            atlas.put(c, g);
+        }
+        return g;
+    }
+
+    private Bitmap1 siteBitmap(String site) {
+        Bitmap1 b = sites.get(site);
+        if (b == null) {
+            b = rasterizer.render(site, lineHeight);
+            sites.put(site, b);
+        }
+        return b;
+    }
+
+    private void drawGlyphs(String text, int x, int y, byte[] dest, int offset) {
+        for (int i = 0; i < text.length() && x < textRight; i++) {
+            Bitmap1 g = glyph(text.charAt(i));
+            drawBitmap(g, x, y, dest, offset);
+            x += g.width;
+        }
+    }
+
+    // ORs src into the label at (x, y), a byte at a time, clipped to the text column.
+    private void drawBitmap(Bitmap1 src, int x, int y, byte[] dest, int offset) {
+        int shift = x & 7;
+        int rows = Math.min(src.height, heightDots - y);
+        int maxX = Math.min(textRight, x + src.width);
+        for (int sy = 0; sy < rows; sy++) {
+            int srcRow = sy * src.bytesPerRow;
+            int destRow = offset + (y + sy) * bytesPerRow;
+            for (int sx = 0; sx < src.bytesPerRow; sx++) {
+                int b = src.bits[srcRow + sx] & 0xff;
+                if (b == 0) continue;
+                int dx = x + (sx << 3);
+                if (dx >= maxX) break;
+                // Dots past the clip edge in this byte are masked off.
+                int visible = maxX - dx;
+                if (visible < 8) b &= 0xff << (8 - visible);
+                dest[destRow + (dx >> 3)] |= (byte) (b >>> shift);
+                if (shift != 0 && (dx >> 3) + 1 < bytesPerRow) {
+                    dest[destRow + (dx >> 3) + 1] |= (byte) (b << (8 - shift));
+                }
+            }
+        }
+    }
+
+    // Sets len bits starting at bit x of the packed row at row[offset].
+    private static void setRun(byte[] row, int offset, int x, int len) {
+        for (int i = x; i < x + len; i++) {
+            row[offset + (i >> 3)] |= (byte) (0x80 >> (i & 7));
+        }
+    }
+}
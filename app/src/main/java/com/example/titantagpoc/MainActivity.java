@@ -2,28 +2,34 @@ package com.example.titantagpoc;
 
 import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.Color;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
-import android.speech.tts.TextToSpeech;
-import android.speech.tts.UtteranceProgressListener;
 import android.util.Log;
 import android.util.Base64;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.webkit.JavascriptInterface;
 import android.webkit.WebView;
 import android.widget.Toast;
 
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
 
 import com.getcapacitor.BridgeActivity;
 
@@ -34,64 +40,375 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 public class MainActivity extends BridgeActivity {
     
-    private TextToSpeech tts;
+    // Created on first use, or shortly after the first frame (see onFirstFrame).
+    private volatile TtsManager tts;
+    private List<String> pendingTtsPrompts;
     private SpeechRecognizer speechRecognizer;
     private Intent speechIntent;
     private String speechCallbackName;
     private boolean speechListening = false;
     private boolean speechPendingStart = false;
+    // Continuous dictation (startDictation): the recognizer is re-armed after every segment.
+    private DictationSession dictation;
+    private String dictationCallbackName;
+    private boolean dictationPendingStart = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Metrics.now() at the last startListening, until its first non-empty partial (main thread).
+    private long speechListenStartedAt;
+    private static final long DICTATION_REARM_DELAY_MS = 250;
+    private static final long DICTATION_IDLE_STOP_MS = 30_000;
     private static final String TAG = "MainActivity";
     private static final int REQUEST_TTS_CODE = 1001;
     private static final int REQUEST_BT_PERMISSIONS = 1002;
     private static final int REQUEST_SPEECH_PERMISSION = 1003;
+    private static final int REQUEST_CAMERA_PERMISSION = 1004;
+
+    // Native QR scanning (startQrScan); UI thread.
+    private QrScanner qrScanner;
+    private String qrScanCallbackName;
 
     private String pendingPrintFindId;
+    private List<String> pendingPrintBatchIds;
+    private String pendingPrintBatchCallback;
+
+    private PrinterRegistry printerRegistry;
+    private volatile String lastPrinterName = PRINTER_PREFIX;
+    private final AtomicLong rasterBytesTotal = new AtomicLong();
+    private final AtomicLong wireBytesTotal = new AtomicLong();
+    private final Metrics metrics = new Metrics();
+    private StartupTrace startupTrace;
+    private SharedPreferences capabilities;
+    private volatile Boolean recognitionAvailable;
+    // Set first thing in onDestroy; work still running on startupExecutor checks it before publishing.
+    private volatile boolean destroyed;
+    private final Object lifecycleLock = new Object();
+    private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "startup");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    private PrintQueue printQueue;
+    // Rendered jobs on disk until printed; opened off the main thread at startup, so may be null.
+    private volatile PrintSpool printSpool;
+    // TRUE after a send succeeded, FALSE after one failed, null while unknown (start, probe, new batch).
+    private volatile Boolean printerReachable;
+    // Spool drains run here or on a print queue worker, never on the main thread.
+    private final ScheduledExecutorService spoolExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "print-spool");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Object spoolDrainLock = new Object();
+    private ScheduledFuture<?> spoolProbe;
+    private EscPosRasterEncoder labelEncoder;
+    private LabelTemplate labelTemplate;
+    private final Object labelEncoderLock = new Object();
+    private QrImageCache qrCache;
+    private FindsStore findsStore;
+    private final FindsSearchIndex findsIndex = new FindsSearchIndex();
+    private final Object findsIndexRebuildLock = new Object();
+
+    private SheetsOutbox sheetsOutbox;
+    private SheetsSyncEngine sheetsSync;
+    private volatile String sheetsSyncCallbackName;
+    private SheetsReadCache sheetsReadCache;
+    private MediaPipeline media;
+    private BridgeEventChannel events;
+    private volatile FindsExporter activeExport;
+    private volatile File lastExport;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private volatile String printJobStatusCallbackName;
+    private final Map<Long, PrintBatch> printBatches = new HashMap<>();
+    // Spool jobs a batch asked for again (find ID -> batch IDs); the batches count them when they finish.
+    private final Map<String, List<Long>> spoolJobBatches = new HashMap<>();
+    private long nextPrintBatchId = 1;
+
+    // Print queue batch of jobs requeued from the spool.
+    private static final long SPOOL_BATCH_ID = -1;
+    private static final long SPOOL_PROBE_MS = 60_000;
+    private static final long PRINT_SHUTDOWN_WAIT_MS = 1000;
+    // Error of a job whose label waits in the spool for a printer.
+    private static final String PRINT_HELD = "held";
 
     private static final UUID SPP_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
     private static final String PRINTER_PREFIX = "SK58";
 
+    // Written once per printer connection: ESC @ (init) + ESC 3 0 (no extra feed between raster lines).
+    private static final byte[] PRINTER_SESSION_PREAMBLE = new byte[]{ 0x1B, 0x40, 0x1B, 0x33, 0x00 };
+
     // Target output for labels/QR
     // Assumption: most 58mm printers are 203dpi ~= 8 dots/mm.
     private static final int DOTS_PER_MM = 8;
 
-    // Label size (mm)
-    // User requirement: 3cm (feed/length) x 4.5cm (width)
-    private static final int LABEL_HEIGHT_MM = 30;
-    private static final int LABEL_WIDTH_MM = 45;
+    // Label sizes, QR size and gap feed come from LabelTemplate.SPECS; the default is 45x30 mm.
+    private static final String LABELS_PREFS = "tt.labels";
+    private static final String PREF_LABEL_TEMPLATE = "template";
 
-    // Gap between prints (mm)
-    private static final int GAP_MM = 15; // 1.5cm
+    // QR error correction level used for screen and label rendering.
+    private static final ErrorCorrectionLevel QR_ECC = ErrorCorrectionLevel.M;
 
-    // QR/Barcode size (mm)
-    // Note: QR is always square.
-    private static final int QR_SIZE_MM = 20;
+    // QR PNG size (px) returned to the web UI.
+    private static final int QR_PNG_SIZE_PX = 256;
 
-    // Safety margins: real printers often have non-printable areas and firmware feeds.
-    // Keep a small buffer so the print won't spill into the next label.
-    // 0 = smallest spacing/maximum fill.
-    private static final int SAFE_MARGIN_DOTS = 0;
+    // Rendered QR/raster cache budgets.
+    private static final long QR_CACHE_MEMORY_BYTES = 4L * 1024 * 1024;
+    private static final long QR_CACHE_DISK_BYTES = 32L * 1024 * 1024;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        startupTrace = newStartupTrace();
+        startupTrace.mark("activity-create");
         super.onCreate(savedInstanceState);
-        initTextToSpeech();
+        startupTrace.mark("bridge-created");
+        capabilities = getSharedPreferences(CAPABILITIES_PREFS, MODE_PRIVATE);
+        qrCache = new QrImageCache(new File(getCacheDir(), "qr"), QR_CACHE_MEMORY_BYTES, QR_CACHE_DISK_BYTES);
+        findsStore = new FindsStore(this);
+        media = new MediaPipeline(new File(getFilesDir(), "media"));
+        new Thread(this::rebuildFindsIndex, "finds-index").start();
+        initSheetsSync();
+        printQueue = new PrintQueue(PrintQueue.DEFAULT_CAPACITY, printJobRunner, this::onPrintJobChanged);
+        printerRegistry = new PrinterRegistry(this, SPP_UUID, PRINTER_SESSION_PREAMBLE, metrics,
+            count -> {
+                printQueue.setWorkerCount(count);
+                if (count > 0) requestSpoolDrain();
+            });
         initWebViewInterface();
+        startupTrace.mark("webview-ready");
+
+        // Bluetooth lookups and the first QR encode run off the main thread; TTS waits for the first frame.
+        startupExecutor.execute(this::warmUpInBackground);
+        View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean seen;
+
+            @Override
+            public void onDraw() {
+                if (seen) return;
+                seen = true;
+                // Listeners can't be removed from inside onDraw.
+                mainHandler.post(() -> {
+                    decor.getViewTreeObserver().removeOnDrawListener(this);
+                    onFirstFrame();
+                });
+            }
+        });
+    }
+
+    private static final String CAPABILITIES_PREFS = "tt.capabilities";
+    private static final String CAP_TTS_HEBREW = "ttsHebrew";
+    private static final long DEFERRED_INIT_DELAY_MS = 500;
+    // The first activity of the process measures from process start; a recreated one from its own creation.
+    private static boolean processStartTraced;
+
+    private static synchronized StartupTrace newStartupTrace() {
+        if (processStartTraced) {
+            return new StartupTrace(SystemClock::elapsedRealtime, SystemClock.elapsedRealtime(), "activity");
+        }
+        processStartTraced = true;
+        return new StartupTrace(SystemClock::elapsedRealtime, android.os.Process.getStartElapsedRealtime(), "process");
+    }
+
+    private void warmUpInBackground() {
+        PrintSpool spool = null;
+        try {
+            spool = new PrintSpool(new File(getFilesDir(), "print-spool.bin"), PrintSpool.DEFAULT_SIZE);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open print spool", e);
+        }
+        synchronized (lifecycleLock) {
+            if (destroyed) {
+                // onDestroy has already run: nothing else would ever unmap it.
+                if (spool != null) spool.close();
+                return;
+            }
+            printSpool = spool;
+        }
+        // Its first printer count drains what the spool kept from the last run.
+        if (destroyed) return;
+        printerRegistry.start();
+        startupTrace.mark("printers-ready");
+        recognitionAvailable();
+        try {
+            // Loads and JITs the zxing writer and allocates the label buffer before the first print.
+            encodeQrMatrix("warmup", 0);
+            synchronized (labelEncoderLock) {
+                labelEncoder();
+            }
+            startupTrace.mark("qr-warm");
+        } catch (Exception e) {
+            Log.w(TAG, "QR warm-up failed", e);
+        }
+    }
+
+    private void onFirstFrame() {
+        startupTrace.mark("first-frame");
+        mainHandler.postDelayed(this::tts, DEFERRED_INIT_DELAY_MS);
+    }
+
+    private void setCapability(String key, boolean value) {
+        if (capabilities.contains(key) && capabilities.getBoolean(key, false) == value) return;
+        capabilities.edit().putBoolean(key, value).apply();
+    }
+
+    // A package manager query; asked once per run.
+    private boolean recognitionAvailable() {
+        Boolean a = recognitionAvailable;
+        if (a == null) {
+            a = SpeechRecognizer.isRecognitionAvailable(this);
+            recognitionAvailable = a;
+        }
+        return a;
+    }
+
+    // Named cold-start points in ms: {origin:'process'|'activity', marks:[{name, ms}]}.
+    @JavascriptInterface
+    public String getStartupTrace() {
+        return startupTrace.toJson().toString();
+    }
+
+    // The page marks its own milestones (e.g. 'web-interactive' once its handlers are wired).
+    @JavascriptInterface
+    public void markStartup(String name) {
+        if (name == null || name.trim().isEmpty()) return;
+        if (startupTrace.mark(name.trim()) >= 0 && "web-interactive".equals(name.trim())) {
+            Log.i(TAG, "Startup " + startupTrace.summary());
+            runOnUiThread(this::reportFullyDrawn);
+        }
     }
     
+    private static final String SHEETS_PREFS = "tt.sheets";
+    private static final String PREF_SHEETS_ENDPOINT = "endpoint";
+
+    private void initSheetsSync() {
+        sheetsReadCache = new SheetsReadCache(new File(getFilesDir(), "sheets"));
+        File file = new File(getFilesDir(), "sheets-outbox.json");
+        try {
+            sheetsOutbox = new SheetsOutbox(file);
+        } catch (IOException e) {
+            // Keep the unreadable file for inspection and start a fresh outbox.
+            Log.e(TAG, "Sheets outbox unreadable, starting empty", e);
+            file.renameTo(new File(getFilesDir(), "sheets-outbox.corrupt-" + System.currentTimeMillis()));
+            try {
+                sheetsOutbox = new SheetsOutbox(file);
+            } catch (IOException e2) {
+                Log.e(TAG, "Cannot create sheets outbox", e2);
+                return;
+            }
+        }
+        sheetsSync = new SheetsSyncEngine(sheetsOutbox,
+            status -> sendJsEvent("sync", "sync", sheetsSyncCallbackName, status.toString()));
+
+        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null) {
+            sheetsSync.setOnline(cm.getActiveNetwork() != null);
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    sheetsSync.setOnline(true);
+                }
+
+                @Override
+                public void onLost(Network network) {
+                    sheetsSync.setOnline(cm.getActiveNetwork() != null);
+                }
+            };
+            try {
+                cm.registerDefaultNetworkCallback(networkCallback);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Cannot watch connectivity", e);
+                networkCallback = null;
+            }
+        }
+
+        SharedPreferences prefs = getSharedPreferences(SHEETS_PREFS, MODE_PRIVATE);
+        sheetsSync.setEndpoint(prefs.getString(PREF_SHEETS_ENDPOINT, ""));
+    }
+
     private void initWebViewInterface() {
+        bridge.setWebViewClient(new NativeImageWebViewClient(bridge, this::renderQrPng, media.getDir()));
         bridge.getWebView().addJavascriptInterface(this, "Android");
+        events = new BridgeEventChannel(bridge.getWebView(), bridge.getLocalUrl());
+    }
+
+    // The page calls this once its listener is installed (js/nativeEvents.js); events then arrive
+    // over a WebMessagePort instead of evaluateJavascript.
+    @JavascriptInterface
+    public void openEventChannel() {
+        events.open();
+    }
+
+    @JavascriptInterface
+    public String getEventChannelStats() {
+        return events.stats().toString();
+    }
+
+    // Hot-path timings: {sinceMs, window, stages:{printerLookup, socketConnect, qrRender, rasterEncode,
+    // socketWrite, pngBase64, qrDecode, firstPartial, ttsStart: {count, failures, p50Ms, p95Ms, maxMs, avgMs, bytes}}, bridge}
+    @JavascriptInterface
+    public String getMetrics() {
+        return metricsSnapshot().toString();
+    }
+
+    @JavascriptInterface
+    public void resetMetrics() {
+        metrics.reset();
+    }
+
+    // Writes the snapshot to Android/data/<package>/files/metrics (adb pull-able); returns the path or "".
+    @JavascriptInterface
+    public String dumpMetrics() {
+        File dir = getExternalFilesDir("metrics");
+        if (dir == null) dir = new File(getFilesDir(), "metrics");
+        try {
+            JSONObject o = metricsSnapshot();
+            o.put("capturedAt", System.currentTimeMillis());
+            o.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+            o.put("sdk", Build.VERSION.SDK_INT);
+            o.put("printer", lastPrinterName);
+            return metrics.dump(dir, o).getAbsolutePath();
+        } catch (Exception e) {
+            Log.e(TAG, "Metrics dump failed", e);
+            return "";
+        }
+    }
+
+    private JSONObject metricsSnapshot() {
+        JSONObject o = metrics.snapshot();
+        try {
+            o.put("bridge", events.stats());
+        } catch (Exception ignored) {
+        }
+        return o;
     }
 
     private void toast(String msg) {
@@ -108,37 +425,17 @@ public class MainActivity extends BridgeActivity {
         ActivityCompat.requestPermissions(this, new String[]{ Manifest.permission.BLUETOOTH_CONNECT }, REQUEST_BT_PERMISSIONS);
     }
 
-    private BluetoothDevice findBondedPrinter() {
-        if (!hasBtConnectPermission()) return null;
-        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
-        if (adapter == null) return null;
-
-        Set<BluetoothDevice> bonded;
-        try {
-            bonded = adapter.getBondedDevices();
-        } catch (SecurityException se) {
-            return null;
-        }
-        if (bonded == null) return null;
-        for (BluetoothDevice d : bonded) {
-            String name;
-            try {
-                name = d.getName();
-            } catch (SecurityException se) {
-                continue;
-            }
-            if (name != null && name.startsWith(PRINTER_PREFIX)) return d;
-        }
-        return null;
-    }
-
-    private Bitmap createQrBitmap(String text, int sizePx) throws Exception {
+    private BitMatrix encodeQrMatrix(String text, int sizePx) throws Exception {
         Map<EncodeHintType, Object> hints = new HashMap<>();
-        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.ERROR_CORRECTION, QR_ECC);
         hints.put(EncodeHintType.MARGIN, 0);
 
         QRCodeWriter writer = new QRCodeWriter();
-        BitMatrix matrix = writer.encode(text, BarcodeFormat.QR_CODE, sizePx, sizePx, hints);
+        return writer.encode(text, BarcodeFormat.QR_CODE, sizePx, sizePx, hints);
+    }
+
+    private Bitmap createQrBitmap(String text, int sizePx) throws Exception {
+        BitMatrix matrix = encodeQrMatrix(text, sizePx);
         int w = matrix.getWidth();
         int h = matrix.getHeight();
         Bitmap bmp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
@@ -150,27 +447,65 @@ public class MainActivity extends BridgeActivity {
         return bmp;
     }
 
-    private Bitmap createQrLabelBitmap(String text) throws Exception {
-        int labelHeight = LABEL_HEIGHT_MM * DOTS_PER_MM;
-        int labelWidth = LABEL_WIDTH_MM * DOTS_PER_MM;
-        int margin = SAFE_MARGIN_DOTS;
-
-        int maxQr = Math.min(labelWidth - (margin * 2), labelHeight - (margin * 2));
-        int requestedQr = QR_SIZE_MM * DOTS_PER_MM;
-        int qrSize = Math.max(40, Math.min(requestedQr, maxQr));
-
-        Bitmap qr = createQrBitmap(text, qrSize);
+    // The selected label layout, compiled on first use (glyph atlas included). Use under labelEncoderLock.
+    private LabelTemplate labelTemplate() {
+        if (labelTemplate == null) {
+            String name = getSharedPreferences(LABELS_PREFS, MODE_PRIVATE).getString(PREF_LABEL_TEMPLATE, "");
+            labelTemplate = new LabelTemplate(LabelTemplate.spec(name), DOTS_PER_MM, new PaintTextRasterizer());
+        }
+        return labelTemplate;
+    }
 
-        // Print bitmap size matches the physical label; QR is placed as high as possible (top).
-        Bitmap label = Bitmap.createBitmap(labelWidth, labelHeight, Bitmap.Config.ARGB_8888);
-        label.eraseColor(Color.WHITE);
+    // Label raster + gap feed for the current template. Its buffer is reused for every label,
+    // so use it under labelEncoderLock.
+    private EscPosRasterEncoder labelEncoder() {
+        if (labelEncoder == null) {
+            LabelTemplate t = labelTemplate();
+            byte[] gap = (t.gapDots > 0 && t.gapDots <= 255)
+                ? new byte[]{ 0x1D, 0x4A, (byte)t.gapDots } // GS J n
+                : new byte[0];
+            labelEncoder = new EscPosRasterEncoder(t.widthDots, t.heightDots, gap);
+        }
+        return labelEncoder;
+    }
 
-        int x = Math.max(0, (labelWidth - qr.getWidth()) / 2);
-        int y = margin;
+    // [{name, widthMm, heightMm, qrMm, text, selected}]
+    @JavascriptInterface
+    public String getLabelTemplates() {
+        String current;
+        synchronized (labelEncoderLock) {
+            current = labelTemplate().spec.name;
+        }
+        JSONArray arr = new JSONArray();
+        try {
+            for (LabelTemplate.Spec s : LabelTemplate.SPECS) {
+                JSONObject o = new JSONObject();
+                o.put("name", s.name);
+                o.put("widthMm", s.widthMm);
+                o.put("heightMm", s.heightMm);
+                o.put("qrMm", s.qrMm);
+                o.put("text", s.text);
+                o.put("selected", s.name.equals(current));
+                arr.put(o);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to list label templates", e);
+        }
+        return arr.toString();
+    }
 
-        android.graphics.Canvas canvas = new android.graphics.Canvas(label);
-        canvas.drawBitmap(qr, x, y, null);
-        return label;
+    // Selects the label size for the next jobs; returns false for an unknown name.
+    @JavascriptInterface
+    public boolean setLabelTemplate(String name) {
+        LabelTemplate.Spec spec = LabelTemplate.spec(name);
+        if (!spec.name.equals(name)) return false;
+        getSharedPreferences(LABELS_PREFS, MODE_PRIVATE).edit().putString(PREF_LABEL_TEMPLATE, name).apply();
+        synchronized (labelEncoderLock) {
+            if (labelTemplate != null && labelTemplate.spec == spec) return true;
+            labelTemplate = null;
+            labelEncoder = null;
+        }
+        return true;
     }
 
     private void feedToNextLabelIfSupported(OutputStream os) {
@@ -182,50 +517,33 @@ public class MainActivity extends BridgeActivity {
         }
     }
 
-    private byte[] escPosRasterBytes(Bitmap bmp) {
-        int width = bmp.getWidth();
-        int height = bmp.getHeight();
-        int bytesPerRow = (width + 7) / 8;
-        byte[] image = new byte[bytesPerRow * height];
-
-        for (int y = 0; y < height; y++) {
-            int rowOffset = y * bytesPerRow;
-            for (int x = 0; x < width; x++) {
-                int pixel = bmp.getPixel(x, y);
-                int r = Color.red(pixel);
-                int g = Color.green(pixel);
-                int b = Color.blue(pixel);
-                int lum = (r * 30 + g * 59 + b * 11) / 100;
-                boolean black = lum < 128;
-                if (black) {
-                    int idx = rowOffset + (x / 8);
-                    image[idx] |= (byte)(0x80 >> (x % 8));
-                }
-            }
+    // PNG of the find's QR code, from the cache when possible.
+    private byte[] renderQrPng(String text) throws Exception {
+        String key = QrImageCache.key(QrImageCache.Kind.PNG, text, String.valueOf(QR_PNG_SIZE_PX), QR_ECC.name());
+        byte[] png = qrCache.get(key);
+        if (png == null) {
+            long t0 = Metrics.now();
+            Bitmap bmp = createQrBitmap(text, QR_PNG_SIZE_PX);
+            metrics.record(Metrics.Stage.QR_RENDER, t0);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            bmp.compress(Bitmap.CompressFormat.PNG, 100, baos);
+            png = baos.toByteArray();
+            qrCache.put(key, png);
         }
-
-        byte xL = (byte)(bytesPerRow & 0xFF);
-        byte xH = (byte)((bytesPerRow >> 8) & 0xFF);
-        byte yL = (byte)(height & 0xFF);
-        byte yH = (byte)((height >> 8) & 0xFF);
-
-        byte[] header = new byte[]{ 0x1D, 0x76, 0x30, 0x00, xL, xH, yL, yH };
-        byte[] out = new byte[header.length + image.length];
-        System.arraycopy(header, 0, out, 0, header.length);
-        System.arraycopy(image, 0, out, header.length, image.length);
-        return out;
+        return png;
     }
 
+    // Prefer the streamed /_native/qr/<id>.png URL (see NativeImageWebViewClient); kept for older pages.
     @JavascriptInterface
     public String getQrPngDataUrl(String text) {
         try {
             String t = (text == null) ? "" : text.trim();
             if (t.isEmpty()) return "";
-            Bitmap bmp = createQrBitmap(t, 256);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            bmp.compress(Bitmap.CompressFormat.PNG, 100, baos);
-            String b64 = Base64.encodeToString(baos.toByteArray(), Base64.NO_WRAP);
-            return "data:image/png;base64," + b64;
+            // Includes the QR render on a cache miss (also recorded on its own).
+            long t0 = Metrics.now();
+            String url = "data:image/png;base64," + Base64.encodeToString(renderQrPng(t), Base64.NO_WRAP);
+            metrics.record(Metrics.Stage.PNG_BASE64, t0, url.length());
+            return url;
         } catch (Exception e) {
             Log.e(TAG, "Failed to generate QR data URL", e);
             return "";
@@ -233,21 +551,663 @@ public class MainActivity extends BridgeActivity {
     }
 
     @JavascriptInterface
-    public void printFindQrToSk58(String findId) {
-        final String id = (findId == null) ? "" : findId.trim();
-        if (id.isEmpty()) {
-            toast("מזהה ממצא חסר");
-            return;
-        }
-
-        if (!hasBtConnectPermission()) {
-            pendingPrintFindId = id;
-            toast("נדרשת הרשאת Bluetooth כדי להדפיס");
-            requestBtConnectPermission();
-            return;
-        }
+    public String getQrCacheStats() {
+        QrImageCache.Stats st = qrCache.stats();
+        try {
+            JSONObject o = new JSONObject();
+            o.put("memoryHits", st.memoryHits);
+            o.put("diskHits", st.diskHits);
+            o.put("misses", st.misses);
+            o.put("memoryEntries", st.memoryEntries);
+            o.put("memoryBytes", st.memoryBytes);
+            o.put("memoryBudgetBytes", st.memoryBudgetBytes);
+            o.put("memoryEvictions", st.memoryEvictions);
+            o.put("diskEntries", st.diskEntries);
+            o.put("diskBytes", st.diskBytes);
+            o.put("diskBudgetBytes", st.diskBudgetBytes);
+            o.put("diskEvictions", st.diskEvictions);
+            return o.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    @JavascriptInterface
+    public void clearQrCache() {
+        qrCache.clear();
+    }
+
+    // Opens the native camera scanner over the page. callbackName receives one of
+    // {type:'result', text, elapsedMs, frames, droppedFrames, decodeMs}, {type:'cancelled'} or {type:'error', error}.
+    @JavascriptInterface
+    public void startQrScan(String callbackName) {
+        runOnUiThread(() -> {
+            if (qrScanner != null) qrScanner.stop();
+            qrScanCallbackName = callbackName;
+            if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+                ActivityCompat.requestPermissions(this, new String[]{ Manifest.permission.CAMERA }, REQUEST_CAMERA_PERMISSION);
+                return;
+            }
+            openQrScanner();
+        });
+    }
+
+    @JavascriptInterface
+    public void stopQrScan() {
+        runOnUiThread(() -> {
+            if (qrScanner != null) qrScanner.stop();
+        });
+    }
+
+    private void openQrScanner() {
+        qrScanner = new QrScanner(this, metrics, new QrScanner.Listener() {
+            @Override
+            public void onResult(String text, JSONObject stats) {
+                qrScanner = null;
+                try {
+                    stats.put("type", "result");
+                    stats.put("text", text);
+                } catch (Exception ignored) {
+                }
+                sendQrScanEvent(stats);
+            }
+
+            @Override
+            public void onCancelled() {
+                qrScanner = null;
+                sendQrScanEvent(qrScanStatus("cancelled", null));
+            }
+
+            @Override
+            public void onError(String error) {
+                qrScanner = null;
+                sendQrScanEvent(qrScanStatus("error", error));
+            }
+        });
+        qrScanner.start();
+    }
+
+    private static JSONObject qrScanStatus(String type, String error) {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("type", type);
+            if (error != null) o.put("error", error);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    private void sendQrScanEvent(JSONObject o) {
+        sendJsEvent("qr-scan", null, qrScanCallbackName, o.toString());
+    }
+
+    @JavascriptInterface
+    public void printFindQrToSk58(String findId) {
+        final String id = (findId == null) ? "" : findId.trim();
+        if (id.isEmpty()) {
+            toast("מזהה ממצא חסר");
+            return;
+        }
+
+        if (!hasBtConnectPermission()) {
+            pendingPrintFindId = id;
+            toast("נדרשת הרשאת Bluetooth כדי להדפיס");
+            requestBtConnectPermission();
+            return;
+        }
+
+        enqueuePrint(id);
+    }
+
+    // Batch print through the print queue, over one printer connection. findIdsJson is a JSON array of find IDs.
+    // callbackName receives {type:'progress', index, total, findId, ok, error?} per label
+    // and a final {type:'done', total, printed, failed, elapsedMs, error?}.
+    @JavascriptInterface
+    public void printFindQrBatch(String findIdsJson, String callbackName) {
+        final List<String> ids = parseFindIds(findIdsJson);
+        final String cb = callbackName;
+        if (ids.isEmpty()) {
+            toast("מזהה ממצא חסר");
+            sendPrintBatchDone(cb, 0, 0, System.currentTimeMillis(), "empty");
+            return;
+        }
+
+        if (!hasBtConnectPermission()) {
+            pendingPrintBatchIds = ids;
+            pendingPrintBatchCallback = cb;
+            toast("נדרשת הרשאת Bluetooth כדי להדפיס");
+            requestBtConnectPermission();
+            return;
+        }
+
+        enqueuePrintBatch(ids, cb);
+    }
+
+    // Snapshot of the print queue: {capacity, active[], pending[], recent[], spool} with per-job state and timings.
+    // spool lists labels kept on disk until printed (see PrintSpool.toJson); state "held" waits for a printer.
+    @JavascriptInterface
+    public String getPrintQueueStatus() {
+        try {
+            JSONObject o = new JSONObject();
+            o.put("capacity", printQueue.getCapacity());
+            JSONArray active = new JSONArray();
+            for (PrintQueue.Job j : printQueue.activeJobs()) active.put(printJobJson(j));
+            o.put("active", active);
+            JSONArray pending = new JSONArray();
+            for (PrintQueue.Job j : printQueue.pendingJobs()) pending.put(printJobJson(j));
+            o.put("pending", pending);
+            JSONArray recent = new JSONArray();
+            for (PrintQueue.Job j : printQueue.recentJobs()) recent.put(printJobJson(j));
+            o.put("recent", recent);
+            PrintSpool spool = printSpool;
+            if (spool != null) o.put("spool", spool.toJson());
+            return o.toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to build print queue status", e);
+            return "{}";
+        }
+    }
+
+    // callbackName receives a job object (see getPrintQueueStatus) on every state change; pass "" to stop.
+    @JavascriptInterface
+    public void setPrintJobStatusCallback(String callbackName) {
+        String cb = (callbackName == null) ? "" : callbackName.trim();
+        printJobStatusCallbackName = cb.isEmpty() ? null : cb;
+    }
+
+    @JavascriptInterface
+    public boolean cancelPrintJob(long jobId) {
+        return printQueue.cancel(jobId);
+    }
+
+    @JavascriptInterface
+    public int cancelAllPrintJobs() {
+        return printQueue.cancelAll();
+    }
+
+    // Tries the printer again for labels held in the spool (oldest first) without waiting for the probe.
+    @JavascriptInterface
+    public void retryPrintSpool() {
+        printerReachable = null;
+        requestSpoolDrain();
+    }
+
+    // Drops a spooled label by its seq (from getPrintQueueStatus().spool); one that is sending finishes.
+    @JavascriptInterface
+    public boolean cancelSpooledJob(long seq) {
+        PrintSpool spool = printSpool;
+        PrintSpool.Record r = (spool == null) ? null : spool.get(seq);
+        if (r == null || r.isFinished()) return false;
+        if (r.state == PrintSpool.State.HELD) {
+            spool.setState(r, PrintSpool.State.CANCELLED);
+            return true;
+        }
+        for (PrintQueue.Job j : printQueue.pendingJobs()) {
+            if (j.findId.equals(r.findId)) return printQueue.cancel(j.id);
+        }
+        return false;
+    }
+
+    // Raster bytes rendered vs bytes actually sent after the printer profile's encoding.
+    @JavascriptInterface
+    public String getRasterCompressionStats() {
+        try {
+            long raster = rasterBytesTotal.get();
+            long wire = wireBytesTotal.get();
+            JSONObject o = new JSONObject();
+            o.put("rasterBytes", raster);
+            o.put("wireBytes", wire);
+            o.put("compressionRatio", wire > 0 ? (double) raster / wire : 0);
+            PrinterProfile profile = PrinterProfile.forDeviceName(lastPrinterName);
+            o.put("printer", lastPrinterName);
+            o.put("encoding", profile.encoding.name().toLowerCase(Locale.ROOT));
+            return o.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    // Registered printers with connection state, load and dispatch settings:
+    // {policy, pinned, idleTimeoutMs, printers:[{address, name, state, busy, online, pinned, ...}]}
+    @JavascriptInterface
+    public String getPrinterConnectionState() {
+        return printerRegistry.toJson().toString();
+    }
+
+    @JavascriptInterface
+    public void setPrinterIdleTimeoutSeconds(int seconds) {
+        printerRegistry.setIdleTimeoutMs(Math.max(0, seconds) * 1000L);
+    }
+
+    @JavascriptInterface
+    public void disconnectPrinter() {
+        new Thread(printerRegistry::closeAll).start();
+    }
+
+    @JavascriptInterface
+    public void refreshPrinters() {
+        printerRegistry.refreshAsync(null);
+    }
+
+    // Route this station's jobs to one printer (by Bluetooth address); "" unpins.
+    // A pinned printer that is offline fails over to the others.
+    @JavascriptInterface
+    public void pinPrinter(String address) {
+        printerRegistry.setPinnedAddress(address);
+    }
+
+    // "round_robin" or "least_busy"
+    @JavascriptInterface
+    public boolean setPrinterDispatchPolicy(String policy) {
+        if (policy == null) return false;
+        try {
+            printerRegistry.setPolicy(PrinterRegistry.Policy.valueOf(policy.trim().toUpperCase(Locale.ROOT)));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Finds store (see FindsStore). Finds cross the bridge as JSON strings.
+
+    // Find JSON, or "" when missing.
+    @JavascriptInterface
+    public String findsGet(String id) {
+        try {
+            String json = findsStore.get(id);
+            return json == null ? "" : json;
+        } catch (Exception e) {
+            Log.e(TAG, "findsGet failed", e);
+            return "";
+        }
+    }
+
+    // Insert or replace.
+    @JavascriptInterface
+    public boolean findsPut(String findJson) {
+        try {
+            JSONObject find = new JSONObject(findJson);
+            if (!findsStore.put(find)) return false;
+            indexFind(find);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "findsPut failed", e);
+            return false;
+        }
+    }
+
+    // Replace an existing find; false when it doesn't exist.
+    @JavascriptInterface
+    public boolean findsUpdate(String findJson) {
+        try {
+            JSONObject find = new JSONObject(findJson);
+            if (!findsStore.update(find)) return false;
+            indexFind(find);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "findsUpdate failed", e);
+            return false;
+        }
+    }
+
+    @JavascriptInterface
+    public boolean findsDelete(String id) {
+        try {
+            if (!findsStore.delete(id)) return false;
+            findsIndex.remove(id);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "findsDelete failed", e);
+            return false;
+        }
+    }
+
+    @JavascriptInterface
+    public int findsCount() {
+        try {
+            return findsStore.count();
+        } catch (Exception e) {
+            Log.e(TAG, "findsCount failed", e);
+            return 0;
+        }
+    }
+
+    // JSON array of finds, newest first.
+    @JavascriptInterface
+    public String findsList(int offset, int limit) {
+        try {
+            StringBuilder sb = new StringBuilder("[");
+            for (String json : findsStore.list(offset, limit)) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append(json);
+            }
+            return sb.append(']').toString();
+        } catch (Exception e) {
+            Log.e(TAG, "findsList failed", e);
+            return "[]";
+        }
+    }
+
+    // Keyset page of list-card summaries, newest first: {items, next, total, seq}.
+    // Pass "" for the first page, then the previous page's "next".
+    @JavascriptInterface
+    public String findsSummaries(String cursor, int limit) {
+        try {
+            return findsStore.summaries(cursor, limit).toString();
+        } catch (Exception e) {
+            Log.e(TAG, "findsSummaries failed", e);
+            return "{\"items\":[],\"next\":null,\"total\":0,\"seq\":0}";
+        }
+    }
+
+    // Change feed after seq: {seq, reset, changes:[{seq, id, op: "put"|"delete"}]}.
+    @JavascriptInterface
+    public String findsChangesSince(long seq) {
+        try {
+            return findsStore.changesSince(seq).toString();
+        } catch (Exception e) {
+            Log.e(TAG, "findsChangesSince failed", e);
+            return "{\"seq\":0,\"reset\":true,\"changes\":[]}";
+        }
+    }
+
+    // Full-text search over id, site, plot, layer, location and description (Hebrew-aware, prefix matching).
+    // Returns a JSON array of find ids, best match first.
+    @JavascriptInterface
+    public String findsSearch(String query, int limit) {
+        try {
+            return new JSONArray(findsIndex.search(query, limit)).toString();
+        } catch (Exception e) {
+            Log.e(TAG, "findsSearch failed", e);
+            return "[]";
+        }
+    }
+
+    private void indexFind(JSONObject find) {
+        findsIndex.put(find.optString("id", "").trim(), FindsSearchIndex.fieldsOf(find));
+    }
+
+    // The scan doesn't block writers: finds written while it runs are caught up from the change log.
+    private void rebuildFindsIndex() {
+        synchronized (findsIndexRebuildLock) {
+            try {
+                long seq;
+                do {
+                    findsIndex.clear();
+                    seq = findsStore.forEachJson(json -> {
+                        try {
+                            indexFind(new JSONObject(json));
+                        } catch (Exception e) {
+                            Log.w(TAG, "Skipping unreadable find while indexing", e);
+                        }
+                    });
+                    seq = catchUpFindsIndex(seq);
+                } while (seq < 0);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to build finds search index", e);
+            }
+        }
+    }
+
+    // Re-reads the finds changed after seq; returns the last seq applied, or -1 when the log was reset
+    // (bulk import, or too far behind) and the index needs a full rebuild.
+    private long catchUpFindsIndex(long seq) throws Exception {
+        while (true) {
+            JSONObject delta = findsStore.changesSince(seq);
+            if (delta.getBoolean("reset")) return -1;
+            JSONArray changes = delta.getJSONArray("changes");
+            if (changes.length() == 0) return seq;
+            for (int i = 0; i < changes.length(); i++) {
+                String id = changes.getJSONObject(i).getString("id");
+                String json = findsStore.get(id);
+                if (json == null) findsIndex.remove(id);
+                else indexFind(new JSONObject(json));
+            }
+            seq = delta.getLong("seq");
+        }
+    }
+
+    // Migration from localStorage: returns the number of finds imported, or -1 on error
+    // (the web app keeps its copy until this succeeds).
+    @JavascriptInterface
+    public int findsImport(String findsArrayJson) {
+        try {
+            int imported = findsStore.importArray(new JSONArray(findsArrayJson));
+            // Search catches up in the background; the import itself is what the web app waits for.
+            if (imported > 0) new Thread(this::rebuildFindsIndex, "finds-index").start();
+            return imported;
+        } catch (Exception e) {
+            Log.e(TAG, "findsImport failed", e);
+            return -1;
+        }
+    }
+
+    // Sheets sync (see SheetsOutbox / SheetsSyncEngine) and cached reads (SheetsReadCache).
+
+    // The Apps Script URL from settings; kept natively so queued writes sync without the web app.
+    @JavascriptInterface
+    public void setSheetsEndpoint(String url) {
+        String u = (url == null) ? "" : url.trim();
+        getSharedPreferences(SHEETS_PREFS, MODE_PRIVATE).edit().putString(PREF_SHEETS_ENDPOINT, u).apply();
+        if (sheetsSync != null) sheetsSync.setEndpoint(u);
+    }
+
+    // Queues an upsert of rowJson (header -> value) into sheet, matched on keyColumn.
+    // Edits to a row that hasn't been sent yet are merged into it.
+    @JavascriptInterface
+    public boolean sheetsEnqueueWrite(String sheet, String keyColumn, String rowJson) {
+        if (sheetsOutbox == null) return false;
+        try {
+            if (!sheetsOutbox.enqueue(sheet, keyColumn, new JSONObject(rowJson))) return false;
+            sheetsSync.requestFlush();
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "sheetsEnqueueWrite failed", e);
+            return false;
+        }
+    }
+
+    // {state: idle|syncing|backoff|offline|not_configured, pending, failures, lastError, lastSuccessAt, ...}
+    @JavascriptInterface
+    public String getSheetsSyncStatus() {
+        return (sheetsSync == null) ? "{\"state\":\"not_configured\",\"pending\":0}" : sheetsSync.status().toString();
+    }
+
+    // callbackName receives the sync status object on every change; pass "" to stop.
+    @JavascriptInterface
+    public void setSheetsSyncCallback(String callbackName) {
+        String cb = (callbackName == null) ? "" : callbackName.trim();
+        sheetsSyncCallbackName = cb.isEmpty() ? null : cb;
+    }
+
+    @JavascriptInterface
+    public void sheetsSyncNow() {
+        if (sheetsSync != null) sheetsSync.flushNow();
+    }
+
+    // Reads go to the local copy (see SheetsReadCache). Returns the cached
+    // {sheet, rows, cursor, fetchedAt} right away ("null" if never fetched) and refreshes in the
+    // background: callbackName then gets {ok:true, ...same fields, changed, removed} or {ok:false, error}.
+    @JavascriptInterface
+    public String sheetsRead(String sheet, String callbackName) {
+        if (sheet == null || sheet.isEmpty()) return "null";
+        JSONObject cached = sheetsReadCache.cached(sheet);
+        String endpoint = getSharedPreferences(SHEETS_PREFS, MODE_PRIVATE).getString(PREF_SHEETS_ENDPOINT, "");
+        if (endpoint.isEmpty()) {
+            sendSheetsReadResult(callbackName, sheet, null, "לא הוגדרה כתובת סקריפט");
+        } else {
+            sheetsReadCache.refreshAsync(endpoint, sheet, (s, result, error) -> sendSheetsReadResult(callbackName, s, result, error));
+        }
+        return (cached == null) ? "null" : cached.toString();
+    }
+
+    @JavascriptInterface
+    public void clearSheetsCache() {
+        sheetsReadCache.clear();
+    }
+
+    private void sendSheetsReadResult(String callbackName, String sheet, JSONObject result, String error) {
+        try {
+            JSONObject o = (result == null) ? new JSONObject() : result;
+            o.put("ok", error == null);
+            o.put("sheet", sheet);
+            if (error != null) o.put("error", error);
+            sendJsCallback(callbackName, o.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "sheetsRead callback failed", e);
+        }
+    }
+
+    // Media capture (see MediaPipeline): JS streams a file as Base64 chunks, then gets back a handle
+    // {id, kind, mime, name, bytes, width, height, thumbUrl, displayUrl, originalUrl}.
+
+    @JavascriptInterface
+    public boolean mediaBegin(String id, String kind, String mime, String name) {
+        try {
+            return media.begin(id, kind, mime, name);
+        } catch (IOException e) {
+            Log.e(TAG, "mediaBegin failed", e);
+            return false;
+        }
+    }
+
+    @JavascriptInterface
+    public boolean mediaAppend(String id, String base64Chunk) {
+        try {
+            return media.append(id, Base64.decode(base64Chunk, Base64.DEFAULT));
+        } catch (Exception e) {
+            Log.e(TAG, "mediaAppend failed", e);
+            media.abort(id);
+            return false;
+        }
+    }
+
+    // callbackName gets {ok:true, item: handle} or {ok:false, error}.
+    @JavascriptInterface
+    public void mediaFinish(String id, String callbackName) {
+        media.finish(id, (handle, error) -> {
+            try {
+                JSONObject o = new JSONObject();
+                o.put("ok", error == null);
+                if (handle != null) o.put("item", handle);
+                if (error != null) o.put("error", error);
+                sendJsCallback(callbackName, o.toString());
+            } catch (Exception e) {
+                Log.e(TAG, "mediaFinish callback failed", e);
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void mediaAbort(String id) {
+        media.abort(id);
+    }
+
+    @JavascriptInterface
+    public String mediaInfo(String id) {
+        JSONObject handle = media.info(id);
+        return (handle == null) ? "null" : handle.toString();
+    }
+
+    @JavascriptInterface
+    public boolean mediaDelete(String id) {
+        return media.delete(id);
+    }
+
+    // Export (see FindsExporter): a ZIP of all finds, their native media and QR PNGs in cache/exports.
+    // callbackName gets {state:"running", done, total, bytes} (throttled), then
+    // {state:"done", name, bytes, finds, mediaFiles, missingMedia} or {state:"error"|"cancelled", error}.
+    // Returns false if an export is already running.
+    @JavascriptInterface
+    public boolean exportFinds(String callbackName) {
+        FindsExporter exporter;
+        synchronized (this) {
+            if (activeExport != null) return false;
+            exporter = new FindsExporter(new FindsExporter.FindSource() {
+                @Override
+                public void forEachJson(Consumer<String> action) {
+                    findsStore.forEachJson(action);
+                }
+
+                @Override
+                public String get(String id) {
+                    return findsStore.get(id);
+                }
+            }, media::fileFor, this::renderQrPng);
+            activeExport = exporter;
+        }
+
+        new Thread(() -> {
+            File dir = new File(getCacheDir(), "exports");
+            JSONObject o = new JSONObject();
+            try {
+                // Only the latest export is kept; a few GB of photos shouldn't pile up in the cache.
+                File[] old = dir.listFiles();
+                if (old != null) {
+                    for (File f : old) f.delete();
+                }
+                if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+                String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+                File out = new File(dir, "titantag-" + stamp + ".zip");
+                FindsExporter.Result r = exporter.export(out, (done, total, bytes) -> {
+                    try {
+                        JSONObject p = new JSONObject();
+                        p.put("state", "running");
+                        p.put("done", done);
+                        p.put("total", total);
+                        p.put("bytes", bytes);
+                        sendJsEvent("export", "export-progress", callbackName, p.toString());
+                    } catch (Exception ignored) {
+                    }
+                });
+                lastExport = out;
+                o.put("state", "done");
+                o.put("name", out.getName());
+                o.put("bytes", r.bytes);
+                o.put("finds", r.finds);
+                o.put("mediaFiles", r.mediaFiles);
+                o.put("missingMedia", r.missingMedia);
+            } catch (Exception e) {
+                if (!(e instanceof FindsExporter.CancelledException)) Log.e(TAG, "Export failed", e);
+                try {
+                    o.put("state", (e instanceof FindsExporter.CancelledException) ? "cancelled" : "error");
+                    o.put("error", (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage());
+                } catch (Exception ignored) {
+                }
+            } finally {
+                activeExport = null;
+            }
+            sendJsEvent("export", null, callbackName, o.toString());
+        }, "export").start();
+        return true;
+    }
+
+    @JavascriptInterface
+    public void cancelExport() {
+        FindsExporter e = activeExport;
+        if (e != null) e.cancel();
+    }
 
-        new Thread(() -> doPrintFindQr(id)).start();
+    // Opens the share sheet for the last finished export.
+    @JavascriptInterface
+    public boolean shareExport() {
+        File f = lastExport;
+        if (f == null || !f.isFile()) return false;
+        runOnUiThread(() -> {
+            try {
+                Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", f);
+                Intent send = new Intent(Intent.ACTION_SEND);
+                send.setType("application/zip");
+                send.putExtra(Intent.EXTRA_STREAM, uri);
+                send.putExtra(Intent.EXTRA_SUBJECT, f.getName());
+                send.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                startActivity(Intent.createChooser(send, "שיתוף"));
+            } catch (Exception e) {
+                Log.e(TAG, "shareExport failed", e);
+                toast("שיתוף לא נתמך במכשיר זה");
+            }
+        });
+        return true;
     }
 
     @JavascriptInterface
@@ -268,17 +1228,10 @@ public class MainActivity extends BridgeActivity {
         });
     }
 
-    private void doPrintFindQr(String findId) {
-        if (!hasBtConnectPermission()) {
-            toast("אין הרשאת Bluetooth");
-            return;
-        }
-
-        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
-        if (adapter == null) {
-            toast("Bluetooth לא זמין במכשיר");
-            return;
-        }
+    // Returns null when Bluetooth is usable, otherwise a user-facing reason.
+    private String checkBluetoothReady(BluetoothAdapter adapter) {
+        if (!hasBtConnectPermission()) return "אין הרשאת Bluetooth";
+        if (adapter == null) return "Bluetooth לא זמין במכשיר";
 
         try {
             if (!adapter.isEnabled()) {
@@ -289,72 +1242,398 @@ public class MainActivity extends BridgeActivity {
                     });
                 } catch (Exception ignored) {
                 }
-                toast("נא להפעיל Bluetooth ולנסות שוב");
-                return;
+                return "נא להפעיל Bluetooth ולנסות שוב";
             }
         } catch (SecurityException se) {
-            toast("אין הרשאת Bluetooth");
-            return;
+            return "אין הרשאת Bluetooth";
         }
+        return null;
+    }
 
-        BluetoothDevice printer = findBondedPrinter();
-        if (printer == null) {
-            toast("לא נמצאה מדפסת מזווגת בשם שמתחיל ב-" + PRINTER_PREFIX);
-            return;
+    private byte[] buildLabelJob(String findId) throws Exception {
+        // Site and date of a saved find go on the label; an unsaved one prints its ID only.
+        String site = "";
+        String date = "";
+        String json = findsStore.get(findId);
+        if (json != null) {
+            JSONObject find = new JSONObject(json);
+            site = find.optString("site", "").trim();
+            date = labelDate(find.optString("createdAt", ""));
         }
 
-        BluetoothSocket socket = null;
-        try {
+        LabelTemplate.Spec spec;
+        synchronized (labelEncoderLock) {
+            spec = labelTemplate().spec;
+        }
+        String key = QrImageCache.key(QrImageCache.Kind.RASTER, findId,
+            spec.name + "|" + site + "|" + date, QR_ECC.name());
+        byte[] cached = qrCache.get(key);
+        if (cached != null) return cached;
+
+        // Module grid only (one bit per module); the template scales it into place.
+        long t0 = Metrics.now();
+        BitMatrix modules = encodeQrMatrix(findId, 0);
+        metrics.record(Metrics.Stage.QR_RENDER, t0);
+
+        // Do not force an extra feed here; we align before each print.
+        // The encoder reuses its buffer, so cache (and send) a copy.
+        byte[] job;
+        final String jobSite = site;
+        final String jobDate = date;
+        synchronized (labelEncoderLock) {
+            LabelTemplate template = labelTemplate();
+            t0 = Metrics.now();
+            byte[] raster = labelEncoder().encode((dest, offset) ->
+                template.render(modules, findId, jobSite, jobDate, dest, offset));
+            job = Arrays.copyOf(raster, raster.length);
+            metrics.record(Metrics.Stage.RASTER_ENCODE, t0, job.length);
+        }
+        qrCache.put(key, job);
+        return job;
+    }
+
+    // createdAt is ISO 8601 (yyyy-MM-dd...); labels show dd.MM.yyyy.
+    static String labelDate(String createdAt) {
+        if (createdAt == null || createdAt.length() < 10 || createdAt.charAt(4) != '-' || createdAt.charAt(7) != '-') return "";
+        return createdAt.substring(8, 10) + "." + createdAt.substring(5, 7) + "." + createdAt.substring(0, 4);
+    }
+
+    // Runs on the print queue workers: render (or take the spooled bytes), spool, then send to a printer
+    // picked by the registry. A label that can't be sent stays in the spool as HELD.
+    private final PrintQueue.JobRunner printJobRunner = new PrintQueue.JobRunner() {
+        @Override
+        public byte[] render(PrintQueue.Job job) throws Exception {
+            PrintSpool spool = printSpool;
+            PrintSpool.Record spooled = (spool == null) ? null : spool.pending(job.findId);
+            if (spooled != null && spooled.state != PrintSpool.State.SENDING) {
+                job.spoolSeq = spooled.seq;
+                return spool.read(spooled);
+            }
+            byte[] data = buildLabelJob(job.findId);
+            if (spool != null) {
+                PrintSpool.Record r = spool.append(job.findId, data);
+                if (r != null) job.spoolSeq = r.seq;
+                else Log.w(TAG, "Print spool full, " + job.findId + " is not kept");
+            }
+            return data;
+        }
+
+        @Override
+        public int send(PrintQueue.Job job, byte[] data) throws Exception {
+            PrintSpool spool = printSpool;
+            PrintSpool.Record spooled = (spool == null || job.spoolSeq == 0) ? null : spool.get(job.spoolSeq);
+            if (spooled != null && job.batchId != 0 && printerReachable == Boolean.FALSE) {
+                // The printer just failed: keep the rest of the batch without a connect timeout per label.
+                spool.setState(spooled, PrintSpool.State.HELD);
+                scheduleSpoolProbe();
+                throw new IllegalStateException(PRINT_HELD);
+            }
+            if (spooled != null) spool.setState(spooled, PrintSpool.State.SENDING);
+            int wire;
             try {
-                adapter.cancelDiscovery();
-            } catch (SecurityException ignored) {
+                wire = sendToPrinter(job, data);
+            } catch (Exception e) {
+                printerReachable = false;
+                if (spooled == null) throw e;
+                Log.w(TAG, "Print of " + job.findId + " held in the spool", e);
+                spool.setState(spooled, PrintSpool.State.HELD);
+                scheduleSpoolProbe();
+                throw new IllegalStateException(PRINT_HELD);
+            }
+            printerReachable = true;
+            if (spooled != null) {
+                spool.setState(spooled, PrintSpool.State.DONE);
+                drainPrintSpool();
+            }
+            return wire;
+        }
+
+        private int sendToPrinter(PrintQueue.Job job, byte[] data) throws Exception {
+            BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+            String notReady = checkBluetoothReady(adapter);
+            if (notReady != null) throw new IllegalStateException(notReady);
+
+            // Fail over across registered printers: each one is tried at most once per job.
+            Set<String> tried = new HashSet<>();
+            Exception lastError = null;
+            PrinterRegistry.Entry printer;
+            while (true) {
+                long t0 = Metrics.now();
+                printer = printerRegistry.acquire(tried);
+                metrics.record(Metrics.Stage.PRINTER_LOOKUP, t0);
+                if (printer == null) break;
+                tried.add(printer.address);
+                byte[] wire = printer.profile().encode(data);
+                try {
+                    printer.connection.send(wire);
+                } catch (IOException e) {
+                    Log.w(TAG, "Printer " + printer.name + " failed, trying next", e);
+                    printerRegistry.release(printer, false);
+                    lastError = e;
+                    continue;
+                }
+                printerRegistry.release(printer, true);
+                job.printer = printer.name;
+                lastPrinterName = printer.name;
+                rasterBytesTotal.addAndGet(data.length);
+                wireBytesTotal.addAndGet(wire.length);
+                return wire.length;
             }
 
-            socket = printer.createRfcommSocketToServiceRecord(SPP_UUID);
-            socket.connect();
-            OutputStream os = socket.getOutputStream();
+            if (lastError != null) throw lastError;
+            throw new IllegalStateException("לא נמצאה מדפסת מזווגת בשם שמתחיל ב-" + PRINTER_PREFIX);
+        }
+    };
+
+    private static final class PrintBatch {
+        final String callbackName;
+        final int total;
+        final long startedAt;
+        int completed;
+        int printed;
+        String error;
+
+        PrintBatch(String callbackName, int total, long startedAt) {
+            this.callbackName = callbackName;
+            this.total = total;
+            this.startedAt = startedAt;
+        }
+    }
+
+    private void onPrintJobChanged(PrintQueue.Job job, PrintQueue.JobState state) {
+        String statusCb = printJobStatusCallbackName;
+        sendJsEvent("print-job", "print-job:" + job.id, statusCb, printJobJson(job, state).toString());
+
+        if (state != PrintQueue.JobState.DONE && state != PrintQueue.JobState.FAILED
+            && state != PrintQueue.JobState.CANCELLED) return;
 
-            Bitmap label = createQrLabelBitmap(findId);
-            byte[] qrRaster = escPosRasterBytes(label);
+        PrintSpool spool = printSpool;
+        if (state == PrintQueue.JobState.CANCELLED && spool != null && !PrintQueue.ERROR_SHUTDOWN.equals(job.error)) {
+            // A requeued spool job cancelled before it was sent leaves the spool too.
+            PrintSpool.Record r = spool.pending(job.findId);
+            if (r != null && r.state == PrintSpool.State.QUEUED) spool.setState(r, PrintSpool.State.CANCELLED);
+        }
+        boolean held = PRINT_HELD.equals(job.error);
 
-            // ESC/POS init
-            os.write(new byte[]{ 0x1B, 0x40 });
+        if (job.batchId == SPOOL_BATCH_ID) {
+            List<Long> waiting;
+            synchronized (printBatches) {
+                waiting = spoolJobBatches.remove(job.findId);
+            }
+            if (waiting != null) {
+                for (long batchId : waiting) {
+                    recordBatchProgress(batchId, job.findId, state == PrintQueue.JobState.DONE, job.error);
+                }
+            }
+        }
 
-            // Avoid extra feed between lines (some firmwares add spacing after raster)
-            os.write(new byte[]{ 0x1B, 0x33, 0x00 }); // ESC 3 n (n=0)
+        if (job.batchId == 0) {
+            // With a live status callback the web UI shows the queue; toasts are the fallback.
+            if (statusCb != null) return;
+            if (state == PrintQueue.JobState.DONE) {
+                toast("נשלח להדפסה: " + job.printer);
+            } else if (held) {
+                toast("המדפסת לא זמינה, המדבקה תודפס כשתתחבר");
+            } else if (state == PrintQueue.JobState.FAILED) {
+                toast("הדפסה נכשלה: " + job.error);
+            }
+            return;
+        }
 
-            // Print QR
-            os.write(qrRaster);
+        boolean sendFailed = state == PrintQueue.JobState.FAILED && job.renderedAt != 0 && !held;
+        recordBatchProgress(job.batchId, job.findId, state == PrintQueue.JobState.DONE, job.error);
+        if (sendFailed) {
+            // The printer is unreachable even after reconnecting and the label couldn't be spooled;
+            // don't retry it for every remaining label.
+            printQueue.cancelBatch(job.batchId);
+        }
+    }
 
-            // Gap between QR to QR (feed 1cm)
-            int gapDots = GAP_MM * DOTS_PER_MM;
-            if (gapDots > 0 && gapDots <= 255) {
-                os.write(new byte[]{ 0x1D, 0x4A, (byte)gapDots }); // GS J n
+    // Requeues labels held in the spool, oldest first. Unless the last send succeeded, only the oldest
+    // goes out, as a probe; when it prints, the send path drains the rest (on the print queue worker).
+    // Reads and forces the spool file, so it never runs on the main thread.
+    private void drainPrintSpool() {
+        PrintSpool spool = printSpool;
+        if (spool == null || printQueue == null || !hasBtConnectPermission()) return;
+        synchronized (spoolDrainLock) {
+            List<PrintSpool.Record> held = spool.held();
+            if (held.isEmpty()) return;
+            if (printerReachable != Boolean.TRUE) {
+                printerReachable = null;
+                held = held.subList(0, 1);
             }
+            for (PrintSpool.Record r : held) {
+                if (printQueue.enqueue(r.findId, SPOOL_BATCH_ID) == null) break;
+                spool.setState(r, PrintSpool.State.QUEUED);
+            }
+        }
+    }
 
-            // Do not force an extra feed here; we align before each print.
+    private void requestSpoolDrain() {
+        try {
+            spoolExecutor.execute(this::drainPrintSpool);
+        } catch (RejectedExecutionException ignored) {
+            // Shutting down; the spool keeps the labels for the next run.
+        }
+    }
 
-            // Restore default line spacing
-            os.write(new byte[]{ 0x1B, 0x32 });
-            os.flush();
+    // While labels are held, the printer is retried every SPOOL_PROBE_MS.
+    private void scheduleSpoolProbe() {
+        synchronized (spoolDrainLock) {
+            if (spoolProbe != null) spoolProbe.cancel(false);
+            try {
+                spoolProbe = spoolExecutor.schedule(this::drainPrintSpool, SPOOL_PROBE_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignored) {
+                spoolProbe = null;
+            }
+        }
+    }
 
-            String printerName = PRINTER_PREFIX;
+    private void recordBatchProgress(long batchId, String findId, boolean ok, String error) {
+        PrintBatch batch;
+        JSONObject progress = new JSONObject();
+        boolean finished;
+        synchronized (printBatches) {
+            batch = printBatches.get(batchId);
+            if (batch == null) return;
             try {
-                String n = printer.getName();
-                if (n != null && !n.trim().isEmpty()) printerName = n;
-            } catch (SecurityException ignored) {
+                progress.put("type", "progress");
+                progress.put("index", batch.completed);
+                progress.put("total", batch.total);
+                progress.put("findId", findId);
+                progress.put("ok", ok);
+                if (error != null) progress.put("error", error);
+            } catch (Exception ignored) {
             }
-            toast("נשלח להדפסה: " + printerName);
-        } catch (SecurityException se) {
-            Log.e(TAG, "Missing Bluetooth permission", se);
-            toast("אין הרשאת Bluetooth");
-        } catch (Exception e) {
-            Log.e(TAG, "Print failed", e);
-            toast("הדפסה נכשלה: " + e.getMessage());
-        } finally {
-            if (socket != null) {
-                try { socket.close(); } catch (Exception ignored) {}
+            batch.completed++;
+            if (ok) batch.printed++;
+            else if (error != null && batch.error == null) batch.error = error;
+            finished = batch.completed >= batch.total;
+            if (finished) printBatches.remove(batchId);
+        }
+
+        sendJsEvent("print-batch", null, batch.callbackName, progress.toString());
+        if (finished) {
+            if (batch.printed > 0) {
+                toast("נשלחו להדפסה " + batch.printed + "/" + batch.total + ": " + lastPrinterName);
+            } else if (PRINT_HELD.equals(batch.error)) {
+                toast("המדפסת לא זמינה, המדבקות יודפסו כשתתחבר");
+            } else if (batch.error != null) {
+                toast("הדפסה נכשלה: " + batch.error);
+            }
+            sendPrintBatchDone(batch.callbackName, batch.total, batch.printed, batch.startedAt,
+                batch.printed == batch.total ? null : batch.error);
+        }
+    }
+
+    private void enqueuePrintBatch(List<String> findIds, String callbackName) {
+        // A new batch gets a fresh try at the printer even if the last send failed.
+        if (printerReachable == Boolean.FALSE) printerReachable = null;
+        long batchId;
+        synchronized (printBatches) {
+            batchId = nextPrintBatchId++;
+            printBatches.put(batchId, new PrintBatch(callbackName, findIds.size(), System.currentTimeMillis()));
+        }
+
+        for (String id : findIds) {
+            PrintQueue.Job job = printQueue.enqueue(id, batchId);
+            if (job == null) {
+                recordBatchProgress(batchId, id, false, "queue_full");
+            } else if (job.batchId == SPOOL_BATCH_ID) {
+                // Already requeued from the spool: it prints once and this batch counts it when it does.
+                waitForSpoolJob(job, batchId);
+            } else if (job.batchId != batchId) {
+                // Already waiting in the queue from an earlier request; it prints once.
+                recordBatchProgress(batchId, id, false, "duplicate");
+            }
+        }
+    }
+
+    private void waitForSpoolJob(PrintQueue.Job job, long batchId) {
+        synchronized (printBatches) {
+            // A job that finishes after this check is reported by onPrintJobChanged.
+            if (!job.isFinished()) {
+                List<Long> waiting = spoolJobBatches.get(job.findId);
+                if (waiting == null) {
+                    waiting = new ArrayList<>();
+                    spoolJobBatches.put(job.findId, waiting);
+                }
+                waiting.add(batchId);
+                return;
+            }
+        }
+        recordBatchProgress(batchId, job.findId, job.state == PrintQueue.JobState.DONE, job.error);
+    }
+
+    private void enqueuePrint(String findId) {
+        PrintQueue.Job job = printQueue.enqueue(findId, 0);
+        if (job == null) toast("תור ההדפסה מלא, נסו שוב בעוד רגע");
+    }
+
+    private static JSONObject printJobJson(PrintQueue.Job job) {
+        return printJobJson(job, job.state);
+    }
+
+    private static JSONObject printJobJson(PrintQueue.Job job, PrintQueue.JobState state) {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("jobId", job.id);
+            o.put("findId", job.findId);
+            o.put("batchId", job.batchId);
+            o.put("state", state.name().toLowerCase(Locale.ROOT));
+            o.put("enqueuedAt", job.enqueuedAt);
+            o.put("waitMs", job.waitMs());
+            o.put("renderMs", job.renderMs());
+            o.put("sendMs", job.sendMs());
+            o.put("bytes", job.bytes);
+            o.put("wireBytes", job.wireBytes);
+            if (job.wireBytes > 0) o.put("compressionRatio", (double) job.bytes / job.wireBytes);
+            if (job.error != null) o.put("error", job.error);
+            if (job.printer != null) o.put("printer", job.printer);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    // Distinct IDs in list order: a batch prints each find once and sizes itself by what it enqueues.
+    private static List<String> parseFindIds(String findIdsJson) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (findIdsJson == null || findIdsJson.trim().isEmpty()) return new ArrayList<>();
+        try {
+            JSONArray arr = new JSONArray(findIdsJson);
+            for (int i = 0; i < arr.length(); i++) {
+                String id = arr.optString(i, "").trim();
+                if (!id.isEmpty()) ids.add(id);
             }
+        } catch (Exception e) {
+            Log.e(TAG, "Invalid find id list", e);
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private void sendJsCallback(String callbackName, String payloadJson) {
+        if (callbackName == null || callbackName.isEmpty()) return;
+        sendJsEvent("callback", null, callbackName, payloadJson);
+    }
+
+    // Typed event for the page (see BridgeEventChannel): delivered to window[callbackName](...rawArgs)
+    // if set, and to onNativeEvent(type) listeners. Events sharing coalesceKey within a frame keep only the last.
+    private void sendJsEvent(String type, String coalesceKey, String callbackName, String... rawArgs) {
+        if (events != null) events.post(type, coalesceKey, callbackName, rawArgs);
+    }
+
+    private void sendPrintBatchDone(String callbackName, int total, int printed, long startedAt, String error) {
+        try {
+            JSONObject done = new JSONObject();
+            done.put("type", "done");
+            done.put("total", total);
+            done.put("printed", printed);
+            done.put("failed", total - printed);
+            done.put("elapsedMs", System.currentTimeMillis() - startedAt);
+            if (error != null) done.put("error", error);
+            sendJsCallback(callbackName, done.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to report print batch result", e);
         }
     }
 
@@ -366,6 +1645,7 @@ public class MainActivity extends BridgeActivity {
             @Override
             public void onReadyForSpeech(Bundle params) {
                 Log.d(TAG, "Speech ready");
+                if (dictation != null) dictation.onReady();
             }
 
             @Override
@@ -388,6 +1668,10 @@ public class MainActivity extends BridgeActivity {
             public void onError(int error) {
                 Log.e(TAG, "Speech error: " + error);
                 speechListening = false;
+                if (dictation != null) {
+                    onDictationError(error);
+                    return;
+                }
                 sendSpeechCallback(null, true, "error:" + error);
             }
 
@@ -396,6 +1680,11 @@ public class MainActivity extends BridgeActivity {
                 speechListening = false;
                 ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                 String text = (matches != null && !matches.isEmpty()) ? matches.get(0) : "";
+                if (dictation != null) {
+                    if (dictation.onSegment(text)) sendDictationEvent("segment");
+                    listenForDictation();
+                    return;
+                }
                 sendSpeechCallback(text, true, null);
             }
 
@@ -403,6 +1692,14 @@ public class MainActivity extends BridgeActivity {
             public void onPartialResults(Bundle partialResults) {
                 ArrayList<String> matches = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                 String text = (matches != null && !matches.isEmpty()) ? matches.get(0) : "";
+                if (speechListenStartedAt != 0 && !text.trim().isEmpty()) {
+                    metrics.record(Metrics.Stage.FIRST_PARTIAL, speechListenStartedAt);
+                    speechListenStartedAt = 0;
+                }
+                if (dictation != null) {
+                    if (dictation.onPartial(text)) sendDictationEvent("partial");
+                    return;
+                }
                 sendSpeechCallback(text, false, null);
             }
 
@@ -426,137 +1723,110 @@ public class MainActivity extends BridgeActivity {
 
     private void sendSpeechCallback(String text, boolean isFinal, String error) {
         if (speechCallbackName == null || speechCallbackName.isEmpty()) return;
-        final String cb = speechCallbackName;
-        final String qText = (text == null) ? "null" : JSONObject.quote(text);
-        final String qErr = (error == null) ? "null" : JSONObject.quote(error);
+        String qText = (text == null) ? "null" : JSONObject.quote(text);
+        String qErr = (error == null) ? "null" : JSONObject.quote(error);
+        // Partials supersede each other; finals and errors are always delivered.
+        sendJsEvent("speech", isFinal ? null : "speech-partial", speechCallbackName, qText, isFinal ? "true" : "false", qErr);
+    }
 
-        runOnUiThread(() -> {
-            bridge.getWebView().evaluateJavascript(
-                "(function(){try{var cb=window['" + cb + "']; if(typeof cb==='function'){ cb(" + qText + "," + (isFinal ? "true" : "false") + "," + qErr + "); }}catch(e){}})();",
-                null
-            );
-        });
+    private synchronized TtsManager tts() {
+        if (tts == null && !isDestroyed()) {
+            tts = new TtsManager(this, Locale.forLanguageTag("he-IL"), new File(getCacheDir(), "tts"), metrics,
+                this::onTtsReady);
+            startupTrace.mark("tts-created");
+            if (pendingTtsPrompts != null) tts.prewarm(pendingTtsPrompts);
+            pendingTtsPrompts = null;
+        }
+        return tts;
     }
 
-    private void initTextToSpeech() {
-        tts = new TextToSpeech(this, new TextToSpeech.OnInitListener() {
-            @Override
-            public void onInit(int status) {
-                if (status == TextToSpeech.SUCCESS) {
-                    int result = tts.setLanguage(Locale.forLanguageTag("he-IL"));
-                    if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
-                        Log.e(TAG, "Hebrew language not supported");
-                    }
-                    tts.setSpeechRate(1.0f);
-                    tts.setPitch(1.0f);
-                    Log.d(TAG, "TTS initialized successfully");
-                } else {
-                    Log.e(TAG, "TTS initialization failed");
-                }
-            }
-        });
+    private void onTtsReady() {
+        startupTrace.mark("tts-ready");
+        TtsManager t = tts;
+        if (t != null) setCapability(CAP_TTS_HEBREW, t.isAvailable());
+    }
 
-        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
-            @Override
-            public void onStart(String utteranceId) {
-                Log.d(TAG, "TTS started: " + utteranceId);
-            }
+    private static UtteranceQueue.Mode ttsMode(String mode) {
+        if ("add".equals(mode)) return UtteranceQueue.Mode.ADD;
+        if ("priority".equals(mode)) return UtteranceQueue.Mode.PRIORITY;
+        return UtteranceQueue.Mode.FLUSH;
+    }
 
-            @Override
-            public void onDone(String utteranceId) {
-                Log.d(TAG, "TTS finished: " + utteranceId);
-            }
+    @JavascriptInterface
+    public void speak(String text) {
+        TtsManager t = tts();
+        if (t != null) t.speak(text, UtteranceQueue.Mode.FLUSH, null);
+    }
 
-            @Override
-            public void onError(String utteranceId) {
-                Log.e(TAG, "TTS error: " + utteranceId);
-            }
+    @JavascriptInterface
+    public void speakWithCallback(String text, String callbackName) {
+        ttsSpeak(text, "flush", callbackName);
+    }
 
-            @Override
-            public void onError(String utteranceId, int errorCode) {
-                Log.e(TAG, "TTS error code: " + errorCode + " for " + utteranceId);
-            }
-        });
+    // mode: "add" (after queued speech), "priority" (next, without interrupting) or "flush" (default).
+    // Returns the utterance id; callbackName gets {utteranceId, state} once it is done, error or stopped.
+    @JavascriptInterface
+    public String ttsSpeak(String text, String mode, String callbackName) {
+        TtsManager t = tts();
+        if (t == null) return null;
+        return t.speak(text, ttsMode(mode), (id, state) -> sendTtsEvent(callbackName, id, state));
     }
 
     @JavascriptInterface
-    public void speak(String text) {
-        if (tts != null) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, "tts_utterance");
-            } else {
-                tts.speak(text, TextToSpeech.QUEUE_FLUSH, null);
-            }
-        }
+    public void ttsStop() {
+        if (tts != null) tts.stop();
     }
 
+    // promptsJson: JSON array of texts to pre-render into the prompt cache.
+    // Doesn't start the engine by itself; the prompts wait for it if it isn't up yet.
     @JavascriptInterface
-    public void speakWithCallback(String text, String callbackName) {
-        if (tts == null) return;
-        
-        String utteranceId = "tts_" + System.currentTimeMillis();
-        
-        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
-            @Override
-            public void onStart(String id) {}
-            
-            @Override
-            public void onDone(String id) {
-                if (id.equals(utteranceId)) {
-                    runOnUiThread(() -> {
-                        bridge.getWebView().evaluateJavascript(
-                            "if (typeof " + callbackName + " === 'function') { " + callbackName + "(); }",
-                            null
-                        );
-                    });
-                }
-            }
-            
-            @Override
-            public void onError(String id) {
-                Log.e(TAG, "TTS error: " + id);
-                if (id.equals(utteranceId)) {
-                    runOnUiThread(() -> {
-                        bridge.getWebView().evaluateJavascript(
-                            "if (typeof " + callbackName + " === 'function') { " + callbackName + "(); }",
-                            null
-                        );
-                    });
-                }
-            }
-            
-            @Override
-            public void onError(String id, int errorCode) {
-                Log.e(TAG, "TTS error code: " + errorCode + " for " + id);
-                if (id.equals(utteranceId)) {
-                    runOnUiThread(() -> {
-                        bridge.getWebView().evaluateJavascript(
-                            "if (typeof " + callbackName + " === 'function') { " + callbackName + "(); }",
-                            null
-                        );
-                    });
+    public void ttsPrewarm(String promptsJson) {
+        try {
+            JSONArray arr = new JSONArray(promptsJson);
+            List<String> prompts = new ArrayList<>();
+            for (int i = 0; i < arr.length(); i++) prompts.add(arr.optString(i, null));
+            synchronized (this) {
+                if (tts == null) {
+                    pendingTtsPrompts = prompts;
+                    return;
                 }
             }
-        });
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, utteranceId);
-        } else {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null);
+            tts.prewarm(prompts);
+        } catch (Exception e) {
+            Log.e(TAG, "ttsPrewarm failed", e);
+        }
+    }
+
+    @JavascriptInterface
+    public String getTtsStats() {
+        return (tts == null) ? "{}" : tts.stats().toString();
+    }
+
+    // "start" is only a typed event (onNativeEvent('tts')); callbacks get the final state once.
+    private void sendTtsEvent(String callbackName, String utteranceId, String state) {
+        try {
+            JSONObject o = new JSONObject();
+            o.put("utteranceId", utteranceId);
+            o.put("state", state);
+            sendJsEvent("tts", null, "start".equals(state) ? null : callbackName, o.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "TTS event failed", e);
         }
     }
 
+    // Answers from the engine once it is up, before that from the last run's answer.
     @JavascriptInterface
     public boolean isTtsAvailable() {
-        return tts != null && tts.setLanguage(Locale.forLanguageTag("he-IL")) != TextToSpeech.LANG_MISSING_DATA 
-               && tts.setLanguage(Locale.forLanguageTag("he-IL")) != TextToSpeech.LANG_NOT_SUPPORTED;
+        TtsManager t = tts;
+        if (t != null && t.isReady()) return t.isAvailable();
+        return capabilities.getBoolean(CAP_TTS_HEBREW, false);
     }
 
     @JavascriptInterface
     public void startSpeechRecognition(String callbackName) {
         speechCallbackName = callbackName;
 
-        if (!SpeechRecognizer.isRecognitionAvailable(this)) {
+        if (!recognitionAvailable()) {
             sendSpeechCallback(null, true, "not_available");
             return;
         }
@@ -579,6 +1849,7 @@ public class MainActivity extends BridgeActivity {
                     try { speechRecognizer.cancel(); } catch (Exception ignored) {}
                 }
                 speechListening = true;
+                speechListenStartedAt = Metrics.now();
                 speechRecognizer.startListening(speechIntent);
             } catch (Exception e) {
                 Log.e(TAG, "Failed to start speech recognizer", e);
@@ -588,6 +1859,137 @@ public class MainActivity extends BridgeActivity {
         });
     }
 
+    // Continuous dictation for long descriptions. callbackName gets {kind, text, committed, partial, metrics}:
+    // "partial" (only when the text changed; at most one per frame), "segment" (a final result was
+    // appended), then one "end" (stopDictation, 30 s without speech) or "error" {error: "error:<code>"}.
+    // The recognizer is re-armed after each segment instead of being recreated.
+    @JavascriptInterface
+    public void startDictation(String callbackName) {
+        runOnUiThread(() -> {
+            if (dictation != null) endDictation("end", null);
+            dictationCallbackName = callbackName;
+
+            if (!recognitionAvailable()) {
+                sendDictationError("not_available");
+                return;
+            }
+            if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+                dictationPendingStart = true;
+                ActivityCompat.requestPermissions(this, new String[]{ Manifest.permission.RECORD_AUDIO }, REQUEST_SPEECH_PERMISSION);
+                return;
+            }
+
+            try {
+                ensureSpeechRecognizer();
+                if (speechListening) {
+                    try { speechRecognizer.cancel(); } catch (Exception ignored) {}
+                }
+                dictation = new DictationSession(SystemClock::elapsedRealtime);
+                listenForDictation();
+                mainHandler.postDelayed(dictationIdleCheck, DICTATION_IDLE_STOP_MS);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to start dictation", e);
+                dictation = null;
+                sendDictationError("start_failed");
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void stopDictation() {
+        runOnUiThread(() -> {
+            if (dictation == null) return;
+            try {
+                speechRecognizer.stopListening();
+                speechRecognizer.cancel();
+            } catch (Exception ignored) {
+            }
+            speechListening = false;
+            endDictation("end", null);
+        });
+    }
+
+    private final Runnable dictationIdleCheck = new Runnable() {
+        @Override
+        public void run() {
+            if (dictation == null) return;
+            long idle = dictation.idleMs();
+            if (idle >= DICTATION_IDLE_STOP_MS) {
+                stopDictation();
+            } else {
+                mainHandler.postDelayed(this, DICTATION_IDLE_STOP_MS - idle);
+            }
+        }
+    };
+
+    // Posted after a busy/client error; removed when dictation ends so it can't re-arm a later session.
+    private final Runnable dictationRearm = this::listenForDictation;
+
+    // Main thread.
+    private void listenForDictation() {
+        if (dictation == null) return;
+        try {
+            dictation.onListening();
+            speechListening = true;
+            speechListenStartedAt = Metrics.now();
+            speechRecognizer.startListening(speechIntent);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to re-arm dictation", e);
+            speechListening = false;
+            endDictation("error", "start_failed");
+        }
+    }
+
+    private void onDictationError(int error) {
+        // No speech / nothing recognized ends a segment, not the dictation. Busy and client errors
+        // follow a cancel or a too-quick restart; they clear after a short pause.
+        boolean recoverable = error == SpeechRecognizer.ERROR_NO_MATCH
+            || error == SpeechRecognizer.ERROR_SPEECH_TIMEOUT
+            || error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY
+            || error == SpeechRecognizer.ERROR_CLIENT;
+        if (!dictation.onError(recoverable)) {
+            endDictation("error", "error:" + error);
+            return;
+        }
+        boolean pause = error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY || error == SpeechRecognizer.ERROR_CLIENT;
+        if (pause) {
+            mainHandler.removeCallbacks(dictationRearm);
+            mainHandler.postDelayed(dictationRearm, DICTATION_REARM_DELAY_MS);
+        } else {
+            listenForDictation();
+        }
+    }
+
+    private void endDictation(String kind, String error) {
+        DictationSession d = dictation;
+        if (d == null) return;
+        dictation = null;
+        mainHandler.removeCallbacks(dictationIdleCheck);
+        mainHandler.removeCallbacks(dictationRearm);
+        JSONObject o = d.event(kind);
+        try {
+            if (error != null) o.put("error", error);
+        } catch (Exception ignored) {
+        }
+        sendJsEvent("dictation", null, dictationCallbackName, o.toString());
+    }
+
+    private void sendDictationEvent(String kind) {
+        String key = "partial".equals(kind) ? "dictation-partial" : null;
+        sendJsEvent("dictation", key, dictationCallbackName, dictation.event(kind).toString());
+    }
+
+    private void sendDictationError(String error) {
+        try {
+            JSONObject o = new JSONObject();
+            o.put("kind", "error");
+            o.put("error", error);
+            o.put("text", "");
+            sendJsEvent("dictation", null, dictationCallbackName, o.toString());
+        } catch (Exception ignored) {
+        }
+    }
+
     @JavascriptInterface
     public void stopSpeechRecognition() {
         runOnUiThread(() -> {
@@ -612,18 +2014,43 @@ public class MainActivity extends BridgeActivity {
             if (ok) {
                 final String id = pendingPrintFindId;
                 pendingPrintFindId = null;
-                if (id != null && !id.trim().isEmpty()) {
-                    new Thread(() -> doPrintFindQr(id.trim())).start();
-                }
+                final List<String> batch = pendingPrintBatchIds;
+                final String batchCb = pendingPrintBatchCallback;
+                pendingPrintBatchIds = null;
+                pendingPrintBatchCallback = null;
+                // The printers just became visible; queue the waiting jobs once the registry has them.
+                printerRegistry.refreshAsync(() -> {
+                    if (id != null && !id.trim().isEmpty()) {
+                        enqueuePrint(id.trim());
+                    }
+                    if (batch != null && !batch.isEmpty()) {
+                        enqueuePrintBatch(batch, batchCb);
+                    }
+                });
             } else {
                 pendingPrintFindId = null;
+                if (pendingPrintBatchIds != null) {
+                    sendPrintBatchDone(pendingPrintBatchCallback, pendingPrintBatchIds.size(), 0, System.currentTimeMillis(), "permission_denied");
+                }
+                pendingPrintBatchIds = null;
+                pendingPrintBatchCallback = null;
                 toast("הרשאת Bluetooth נדחתה");
             }
         }
 
+        if (requestCode == REQUEST_CAMERA_PERMISSION) {
+            boolean ok = grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED;
+            if (ok) openQrScanner();
+            else sendQrScanEvent(qrScanStatus("error", "permission_denied"));
+        }
+
         if (requestCode == REQUEST_SPEECH_PERMISSION) {
             boolean ok = grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED;
-            if (ok && speechPendingStart) {
+            if (dictationPendingStart) {
+                dictationPendingStart = false;
+                if (ok) startDictation(dictationCallbackName);
+                else sendDictationError("permission_denied");
+            } else if (ok && speechPendingStart) {
                 speechPendingStart = false;
                 startSpeechRecognition(speechCallbackName);
             } else {
@@ -633,12 +2060,51 @@ public class MainActivity extends BridgeActivity {
         }
     }
 
+    @Override
+    public void onPause() {
+        // The camera must be released while in the background.
+        if (qrScanner != null) qrScanner.stop();
+        super.onPause();
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (qrScanner != null) {
+            qrScanner.stop();
+            return;
+        }
+        super.onBackPressed();
+    }
+
     @Override
     public void onDestroy() {
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
+        PrintSpool spool;
+        synchronized (lifecycleLock) {
+            destroyed = true;
+            spool = printSpool;
+        }
+        startupExecutor.shutdownNow();
+        spoolExecutor.shutdownNow();
+        // Workers stop before the spool closes, so none reads or updates a closed spool. The jobs the
+        // shutdown drops keep their spool records for the next run.
+        if (printQueue != null && !printQueue.shutdown(PRINT_SHUTDOWN_WAIT_MS)) {
+            Log.w(TAG, "Print job still running at shutdown");
+        }
+        if (spool != null) spool.close();
+        if (printerRegistry != null) printerRegistry.stop();
+        if (findsStore != null) findsStore.close();
+        if (networkCallback != null) {
+            ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+            try {
+                cm.unregisterNetworkCallback(networkCallback);
+            } catch (RuntimeException ignored) {
+            }
         }
+        if (sheetsSync != null) sheetsSync.shutdown();
+        if (sheetsReadCache != null) sheetsReadCache.shutdown();
+        mainHandler.removeCallbacksAndMessages(null);
+        if (media != null) media.shutdown();
+        if (tts != null) tts.shutdown();
         if (speechRecognizer != null) {
             try {
                 speechRecognizer.destroy();
@@ -0,0 +1,401 @@
+package com.example.titantagpoc;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.media.MediaMetadataRetriever;
+import android.webkit.MimeTypeMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.json.JSONObject;
+
+// Photos and videos stored as app-private files instead of IndexedDB blobs.
+// JS streams a capture in chunks (begin / append / finish). Finishing runs on a small background
+// pool: images are decoded with subsampling, so a 12 MP photo never sits in memory at full size.
+// Files per media id, all in one directory:
+//   <id>_t.jpg  square thumbnail (grids)
+//   <id>_d.jpg  display copy, longest edge capped (viewer); videos use the original
+//   <id>.<ext>  the original; image originals over KEEP_ORIGINAL_MAX_BYTES are dropped
+//   <id>.json   the handle returned to JS
+// The WebView loads them as /_native/media/<file> (NativeImageWebViewClient).
+class MediaPipeline {
+
+    interface Callback {
+        void onDone(JSONObject handle, String error);
+    }
+
+    static final int THUMB_SIZE_PX = 256;
+    static final int DISPLAY_MAX_EDGE_PX = 1920;
+    // Same limit the picker enforced for IndexedDB blobs.
+    static final long MAX_UPLOAD_BYTES = 15L * 1024 * 1024;
+    static final long KEEP_ORIGINAL_MAX_BYTES = 2L * 1024 * 1024;
+    // An upload with no chunk for this long belongs to a form that was abandoned.
+    static final long ABANDONED_UPLOAD_MS = 60 * 60 * 1000L;
+
+    private static final int THUMB_QUALITY = 80;
+    private static final int DISPLAY_QUALITY = 85;
+    private static final String URL_PREFIX = "/" + NativeImageWebViewClient.PATH_PREFIX + "/media/";
+    private static final String INCOMING_DIR = ".incoming";
+    // No '.' or '_': they separate the id from the file suffix.
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,80}");
+
+    private static final class Upload {
+        final String id;
+        final String kind;
+        final String mime;
+        final String name;
+        final File file;
+        final OutputStream out;
+        long bytes;
+        long touchedAt = System.currentTimeMillis();
+
+        Upload(String id, String kind, String mime, String name, File file) throws IOException {
+            this.id = id;
+            this.kind = kind;
+            this.mime = mime;
+            this.name = name;
+            this.file = file;
+            this.out = new FileOutputStream(file);
+        }
+    }
+
+    private final File dir;
+    private final File incoming;
+    private final Map<String, Upload> uploads = new HashMap<>();
+    private final ExecutorService pool = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "media");
+        t.setDaemon(true);
+        return t;
+    });
+
+    MediaPipeline(File dir) {
+        this.dir = dir;
+        this.incoming = new File(dir, INCOMING_DIR);
+        incoming.mkdirs();
+        // Uploads cut off by the process dying can't be resumed. Recent files are left alone: they may
+        // belong to a pipeline of the previous activity instance that is still finishing.
+        sweepIncoming(System.currentTimeMillis() - ABANDONED_UPLOAD_MS);
+    }
+
+    // Deletes partial uploads last written before cutoff; returns how many.
+    int sweepIncoming(long cutoff) {
+        File[] stale = incoming.listFiles();
+        if (stale == null) return 0;
+        int n = 0;
+        for (File f : stale) {
+            if (f.lastModified() < cutoff && f.delete()) n++;
+        }
+        return n;
+    }
+
+    File getDir() {
+        return dir;
+    }
+
+    static boolean isValidId(String id) {
+        return id != null && ID_PATTERN.matcher(id).matches();
+    }
+
+    synchronized boolean begin(String id, String kind, String mime, String name) throws IOException {
+        abortAbandoned(System.currentTimeMillis() - ABANDONED_UPLOAD_MS);
+        if (!isValidId(id) || uploads.containsKey(id) || new File(dir, id + ".json").exists()) return false;
+        String k = "video".equals(kind) ? "video" : "image";
+        uploads.put(id, new Upload(id, k, (mime == null) ? "" : mime, (name == null) ? "" : name, new File(incoming, id)));
+        return true;
+    }
+
+    // Returns false (and drops the upload) if it is unknown or would exceed MAX_UPLOAD_BYTES.
+    synchronized boolean append(String id, byte[] chunk) throws IOException {
+        Upload u = uploads.get(id);
+        if (u == null) return false;
+        if (u.bytes + chunk.length > MAX_UPLOAD_BYTES) {
+            abort(id);
+            return false;
+        }
+        u.out.write(chunk);
+        u.bytes += chunk.length;
+        u.touchedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    // Open uploads whose form went away without finish or abort hold a stream and a partial file.
+    private void abortAbandoned(long cutoff) {
+        List<String> abandoned = new ArrayList<>();
+        for (Upload u : uploads.values()) {
+            if (u.touchedAt < cutoff) abandoned.add(u.id);
+        }
+        for (String id : abandoned) abort(id);
+    }
+
+    synchronized void abort(String id) {
+        Upload u = uploads.remove(id);
+        if (u == null) return;
+        closeQuietly(u.out);
+        u.file.delete();
+    }
+
+    // Processes the upload in the background; the callback gets the handle or an error message.
+    void finish(String id, Callback cb) {
+        Upload u;
+        synchronized (this) {
+            u = uploads.remove(id);
+        }
+        if (u == null) {
+            cb.onDone(null, "Unknown upload " + id);
+            return;
+        }
+        pool.execute(() -> {
+            try {
+                u.out.close();
+                JSONObject handle = "video".equals(u.kind) ? processVideo(u) : processImage(u);
+                writeHandle(u.id, handle);
+                cb.onDone(handle, null);
+            } catch (Throwable e) {
+                // OutOfMemoryError included: a bad capture must not take the app down.
+                u.file.delete();
+                delete(u.id);
+                cb.onDone(null, (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage());
+            }
+        });
+    }
+
+    // The stored handle, or null.
+    JSONObject info(String id) {
+        if (!isValidId(id)) return null;
+        File f = new File(dir, id + ".json");
+        if (!f.isFile()) return null;
+        try (InputStream in = new FileInputStream(f)) {
+            return new JSONObject(new String(readAll(in), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // The stored file worth exporting: the original if kept, otherwise the display copy.
+    File fileFor(String id) {
+        JSONObject h = info(id);
+        if (h == null) return null;
+        String url = h.isNull("originalUrl") ? h.optString("displayUrl", "") : h.optString("originalUrl", "");
+        if (!url.startsWith(URL_PREFIX)) return null;
+        File f = new File(dir, url.substring(URL_PREFIX.length()));
+        return f.isFile() ? f : null;
+    }
+
+    boolean delete(String id) {
+        if (!isValidId(id)) return false;
+        boolean any = false;
+        File[] files = dir.listFiles();
+        if (files == null) return false;
+        for (File f : files) {
+            String n = f.getName();
+            if ((n.startsWith(id + ".") || n.startsWith(id + "_")) && f.delete()) any = true;
+        }
+        return any;
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+        synchronized (this) {
+            for (Upload u : uploads.values()) closeQuietly(u.out);
+        }
+    }
+
+    private JSONObject processImage(Upload u) throws Exception {
+        String path = u.file.getPath();
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IOException("Unsupported image");
+
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight, DISPLAY_MAX_EDGE_PX);
+        Bitmap decoded = BitmapFactory.decodeFile(path, opts);
+        if (decoded == null) throw new IOException("Cannot decode image");
+
+        // The display copy carries no EXIF, so orientation is applied to the pixels.
+        Bitmap display = scaleAndRotate(decoded, DISPLAY_MAX_EDGE_PX, exifRotation(path));
+        if (display != decoded) decoded.recycle();
+        int width = display.getWidth();
+        int height = display.getHeight();
+        try {
+            writeJpeg(display, new File(dir, u.id + "_d.jpg"), DISPLAY_QUALITY);
+            writeThumb(display, u.id);
+        } finally {
+            display.recycle();
+        }
+
+        String original = null;
+        if (u.bytes <= KEEP_ORIGINAL_MAX_BYTES) {
+            original = u.id + "." + extensionFor(u.mime, "jpg");
+            if (!u.file.renameTo(new File(dir, original))) throw new IOException("Failed to store " + original);
+        } else {
+            u.file.delete();
+        }
+        return handle(u, width, height, u.id + "_d.jpg", original);
+    }
+
+    private JSONObject processVideo(Upload u) throws Exception {
+        String original = u.id + "." + extensionFor(u.mime, "mp4");
+        File stored = new File(dir, original);
+        if (!u.file.renameTo(stored)) throw new IOException("Failed to store " + original);
+
+        int width = 0;
+        int height = 0;
+        MediaMetadataRetriever r = new MediaMetadataRetriever();
+        try {
+            r.setDataSource(stored.getPath());
+            width = parseInt(r.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+            height = parseInt(r.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+            Bitmap frame = r.getFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+            if (frame != null) {
+                try {
+                    writeThumb(frame, u.id);
+                } finally {
+                    frame.recycle();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Unreadable container: keep the video, just without a thumbnail.
+        } finally {
+            try {
+                r.release();
+            } catch (Exception ignored) {
+            }
+        }
+        return handle(u, width, height, original, original);
+    }
+
+    private JSONObject handle(Upload u, int width, int height, String display, String original) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("id", u.id);
+        o.put("kind", u.kind);
+        o.put("mime", u.mime);
+        o.put("name", u.name);
+        o.put("bytes", u.bytes);
+        o.put("width", width);
+        o.put("height", height);
+        File thumb = new File(dir, u.id + "_t.jpg");
+        o.put("thumbUrl", thumb.isFile() ? URL_PREFIX + thumb.getName() : JSONObject.NULL);
+        o.put("displayUrl", URL_PREFIX + display);
+        o.put("originalUrl", (original == null) ? JSONObject.NULL : URL_PREFIX + original);
+        o.put("createdAt", System.currentTimeMillis());
+        return o;
+    }
+
+    private void writeThumb(Bitmap src, String id) throws IOException {
+        Bitmap thumb = centerCropSquare(src, THUMB_SIZE_PX);
+        try {
+            writeJpeg(thumb, new File(dir, id + "_t.jpg"), THUMB_QUALITY);
+        } finally {
+            if (thumb != src) thumb.recycle();
+        }
+    }
+
+    private void writeHandle(String id, JSONObject handle) throws IOException {
+        File f = new File(dir, id + ".json");
+        File tmp = new File(incoming, id + ".json");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(handle.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(f)) {
+            tmp.delete();
+            throw new IOException("Failed to replace " + f);
+        }
+    }
+
+    // Largest power of two that still decodes to at least maxEdge on the longest side.
+    static int sampleSizeFor(int width, int height, int maxEdge) {
+        int longest = Math.max(width, height);
+        int sample = 1;
+        while (longest / (sample * 2) >= maxEdge) sample *= 2;
+        return sample;
+    }
+
+    // Fits within maxEdge on the longest side, keeping the aspect ratio. Never upscales.
+    static int[] fitWithin(int width, int height, int maxEdge) {
+        int longest = Math.max(width, height);
+        if (longest <= maxEdge) return new int[]{ width, height };
+        double s = (double) maxEdge / longest;
+        return new int[]{ Math.max(1, (int) Math.round(width * s)), Math.max(1, (int) Math.round(height * s)) };
+    }
+
+    private static Bitmap scaleAndRotate(Bitmap src, int maxEdge, int rotation) {
+        int[] size = fitWithin(src.getWidth(), src.getHeight(), maxEdge);
+        if (rotation == 0 && size[0] == src.getWidth() && size[1] == src.getHeight()) return src;
+        Matrix m = new Matrix();
+        m.postScale((float) size[0] / src.getWidth(), (float) size[1] / src.getHeight());
+        if (rotation != 0) m.postRotate(rotation);
+        return Bitmap.createBitmap(src, 0, 0, src.getWidth(), src.getHeight(), m, true);
+    }
+
+    private static Bitmap centerCropSquare(Bitmap src, int size) {
+        int side = Math.min(src.getWidth(), src.getHeight());
+        int x = (src.getWidth() - side) / 2;
+        int y = (src.getHeight() - side) / 2;
+        Matrix m = new Matrix();
+        float s = Math.min(1f, (float) size / side);
+        m.postScale(s, s);
+        return Bitmap.createBitmap(src, x, y, side, side, m, true);
+    }
+
+    private static int exifRotation(String path) {
+        try {
+            int o = new ExifInterface(path).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            if (o == ExifInterface.ORIENTATION_ROTATE_90) return 90;
+            if (o == ExifInterface.ORIENTATION_ROTATE_180) return 180;
+            if (o == ExifInterface.ORIENTATION_ROTATE_270) return 270;
+        } catch (IOException ignored) {
+        }
+        return 0;
+    }
+
+    private static void writeJpeg(Bitmap bmp, File f, int quality) throws IOException {
+        try (OutputStream out = new FileOutputStream(f)) {
+            if (!bmp.compress(Bitmap.CompressFormat.JPEG, quality, out)) throw new IOException("JPEG encode failed");
+        }
+    }
+
+    private static String extensionFor(String mime, String fallback) {
+        String ext = MimeTypeMap.getSingleton().getExtensionFromMimeType(mime);
+        return (ext == null || ext.isEmpty()) ? fallback : ext;
+    }
+
+    private static int parseInt(String s) {
+        try {
+            return (s == null) ? 0 : Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        try {
+            out.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) baos.write(buf, 0, n);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.titantagpoc;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+import org.json.JSONObject;
+
+// Per-stage timings of the hot paths (printing, QR images, speech), cheap enough to leave on.
+// Each stage keeps its last WINDOW samples in a preallocated ring plus lifetime count, total, max
+// and bytes; record() only writes into those arrays. Percentiles are computed from the ring when a
+// snapshot is taken, so p50/p95 describe recent behaviour while count/max cover the whole run.
+// Thread-safe; each stage locks on its own.
+class Metrics {
+
+    enum Stage {
+        PRINTER_LOOKUP("printerLookup"),
+        SOCKET_CONNECT("socketConnect"),
+        QR_RENDER("qrRender"),
+        RASTER_ENCODE("rasterEncode"),
+        SOCKET_WRITE("socketWrite"),
+        PNG_BASE64("pngBase64"),
+        QR_DECODE("qrDecode"),
+        FIRST_PARTIAL("firstPartial"),
+        TTS_START("ttsStart");
+
+        final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    static final int WINDOW = 256;
+    private static final int MAX_DUMPS = 10;
+
+    private static final class Series {
+        final long[] ring = new long[WINDOW];
+        int next;
+        long count;
+        long totalNanos;
+        long maxNanos;
+        long bytes;
+        long failures;
+    }
+
+    private final Series[] series = new Series[Stage.values().length];
+    private final long startedAt = System.currentTimeMillis();
+
+    Metrics() {
+        for (int i = 0; i < series.length; i++) series[i] = new Series();
+    }
+
+    static long now() {
+        return System.nanoTime();
+    }
+
+    // Records the time since startNanos (from now()).
+    void record(Stage stage, long startNanos) {
+        recordNanos(stage, now() - startNanos, 0);
+    }
+
+    void record(Stage stage, long startNanos, long bytes) {
+        recordNanos(stage, now() - startNanos, bytes);
+    }
+
+    void recordNanos(Stage stage, long nanos, long bytes) {
+        Series s = series[stage.ordinal()];
+        synchronized (s) {
+            s.ring[s.next] = nanos;
+            s.next = (s.next + 1) % WINDOW;
+            s.count++;
+            s.totalNanos += nanos;
+            if (nanos > s.maxNanos) s.maxNanos = nanos;
+            s.bytes += bytes;
+        }
+    }
+
+    // A stage that did not complete (e.g. a refused connect); its time is not sampled.
+    void fail(Stage stage) {
+        Series s = series[stage.ordinal()];
+        synchronized (s) {
+            s.failures++;
+        }
+    }
+
+    void reset() {
+        for (Series s : series) {
+            synchronized (s) {
+                Arrays.fill(s.ring, 0);
+                s.next = 0;
+                s.count = 0;
+                s.totalNanos = 0;
+                s.maxNanos = 0;
+                s.bytes = 0;
+                s.failures = 0;
+            }
+        }
+    }
+
+    // {sinceMs, window, stages:{<stage>:{count, failures, p50Ms, p95Ms, maxMs, avgMs, bytes}}}
+    JSONObject snapshot() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("sinceMs", startedAt);
+            o.put("window", WINDOW);
+            JSONObject stages = new JSONObject();
+            for (Stage stage : Stage.values()) stages.put(stage.key, stageJson(series[stage.ordinal()]));
+            o.put("stages", stages);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    private static JSONObject stageJson(Series s) throws Exception {
+        long[] window;
+        long count;
+        long total;
+        long max;
+        long bytes;
+        long failures;
+        synchronized (s) {
+            count = s.count;
+            int n = (int) Math.min(count, WINDOW);
+            window = Arrays.copyOf(s.ring, n);
+            total = s.totalNanos;
+            max = s.maxNanos;
+            bytes = s.bytes;
+            failures = s.failures;
+        }
+        Arrays.sort(window);
+        JSONObject o = new JSONObject();
+        o.put("count", count);
+        o.put("failures", failures);
+        o.put("p50Ms", millis(percentile(window, 50)));
+        o.put("p95Ms", millis(percentile(window, 95)));
+        o.put("maxMs", millis(max));
+        o.put("avgMs", millis((count == 0) ? 0 : total / count));
+        o.put("bytes", bytes);
+        return o;
+    }
+
+    // Nearest-rank percentile of sorted values.
+    static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    // Writes the snapshot to dir/metrics-<time>.json (keeping the newest MAX_DUMPS) and returns the file.
+    File dump(File dir, JSONObject snapshot) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        String name = "metrics-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date()) + ".json";
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(snapshot.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        File[] dumps = dir.listFiles((d, n) -> n.startsWith("metrics-") && n.endsWith(".json"));
+        if (dumps != null && dumps.length > MAX_DUMPS) {
+            // The timestamped names sort oldest first.
+            Arrays.sort(dumps);
+            for (int i = 0; i < dumps.length - MAX_DUMPS; i++) dumps[i].delete();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.titantagpoc;
+
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.MimeTypeMap;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+
+import com.getcapacitor.Bridge;
+import com.getcapacitor.BridgeWebViewClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Serves native images to the web layer as plain URLs on the app origin:
+//   /_native/qr/<findId>.png  -> QR PNG (rendered or cached)
+//   /_native/media/<file>     -> file from the app-private media directory
+// Requests are answered on the WebView's loader thread and streamed, so <img src> loads
+// asynchronously instead of copying Base64 strings through the JS bridge.
+class NativeImageWebViewClient extends BridgeWebViewClient {
+
+    static final String PATH_PREFIX = "_native";
+
+    interface QrPngSource {
+        byte[] qrPng(String findId) throws Exception;
+    }
+
+    private static final String TAG = "NativeImageWebView";
+
+    // QR output depends on the ID and on how this app version renders it, so keep it for a while only.
+    private static final String QR_CACHE_CONTROL = "private, max-age=3600";
+    private static final String MEDIA_CACHE_CONTROL = "private, max-age=86400";
+
+    private final Bridge bridge;
+    private final QrPngSource qrSource;
+    private final File mediaDir;
+
+    NativeImageWebViewClient(Bridge bridge, QrPngSource qrSource, File mediaDir) {
+        super(bridge);
+        this.bridge = bridge;
+        this.qrSource = qrSource;
+        this.mediaDir = mediaDir;
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        Uri url = request.getUrl();
+        if (!isLocalNativeRequest(url)) return super.shouldInterceptRequest(view, request);
+
+        List<String> segments = url.getPathSegments();
+        if (segments.size() != 3) return notFound();
+        String kind = segments.get(1);
+        String name = segments.get(2);
+
+        if ("qr".equals(kind)) return serveQr(name);
+        if ("media".equals(kind)) return serveMedia(name);
+        return notFound();
+    }
+
+    private boolean isLocalNativeRequest(Uri url) {
+        if (url == null) return false;
+        List<String> segments = url.getPathSegments();
+        if (segments.isEmpty() || !PATH_PREFIX.equals(segments.get(0))) return false;
+        String localUrl = bridge.getLocalUrl();
+        String localHost = (localUrl == null) ? null : Uri.parse(localUrl).getHost();
+        return localHost != null && localHost.equalsIgnoreCase(url.getHost());
+    }
+
+    // scheme://host[:port] of the app's pages; the only origin allowed to read these responses.
+    private String localOrigin() {
+        String localUrl = bridge.getLocalUrl();
+        if (localUrl == null) return null;
+        Uri u = Uri.parse(localUrl);
+        if (u.getScheme() == null || u.getHost() == null) return null;
+        return u.getScheme() + "://" + u.getHost() + (u.getPort() < 0 ? "" : ":" + u.getPort());
+    }
+
+    private WebResourceResponse serveQr(String name) {
+        if (!name.endsWith(".png")) return notFound();
+        String findId = name.substring(0, name.length() - ".png".length()).trim();
+        if (findId.isEmpty()) return notFound();
+
+        try {
+            byte[] png = qrSource.qrPng(findId);
+            if (png == null) return notFound();
+            return ok("image/png", QR_CACHE_CONTROL, png.length, new ByteArrayInputStream(png));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to render QR for " + findId, e);
+            return error(500, "Internal Server Error");
+        }
+    }
+
+    private WebResourceResponse serveMedia(String name) {
+        if (mediaDir == null || name.isEmpty() || name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+            return notFound();
+        }
+
+        File f = new File(mediaDir, name);
+        if (!f.isFile()) return notFound();
+        try {
+            InputStream in = new FileInputStream(f);
+            return ok(mimeTypeFor(name), MEDIA_CACHE_CONTROL, f.length(), in);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open media " + name, e);
+            return notFound();
+        }
+    }
+
+    private static String mimeTypeFor(String name) {
+        int dot = name.lastIndexOf('.');
+        String ext = (dot < 0) ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        String mime = MimeTypeMap.getSingleton().getMimeTypeFromExtension(ext);
+        return (mime == null) ? "application/octet-stream" : mime;
+    }
+
+    private WebResourceResponse ok(String mime, String cacheControl, long length, InputStream data) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", cacheControl);
+        headers.put("Content-Length", String.valueOf(length));
+        String origin = localOrigin();
+        if (origin != null) headers.put("Access-Control-Allow-Origin", origin);
+        return new WebResourceResponse(mime, null, 200, "OK", headers, data);
+    }
+
+    private static WebResourceResponse notFound() {
+        return error(404, "Not Found");
+    }
+
+    private static WebResourceResponse error(int status, String reason) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", "no-store");
+        return new WebResourceResponse("text/plain", "utf-8", status, reason, headers,
+            new ByteArrayInputStream(new byte[0]));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.titantagpoc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Writes printer jobs in chunks, paced to a target byte rate, so cheap printers
+// don't overrun their receive buffer on long or batched jobs.
+// When adaptive, the rate creeps up (to maxRate) after jobs the printer confirmed healthy and halves after a problem
+// (write error or bad status); a chunk that blocks in write() pulls the rate down to what the link achieved.
+class PacedPrinterWriter {
+
+    static final int MIN_CHUNK_BYTES = 64;
+    static final int MAX_CHUNK_BYTES = 4096;
+    static final int MIN_RATE_BYTES_PER_SEC = 1024;
+
+    // Aim for roughly this much data per chunk at the current rate.
+    private static final int CHUNK_MILLIS = 50;
+
+    private final int maxRate;
+    private final boolean adaptive;
+
+    // 0 = unpaced (single write per job).
+    private volatile int rate;
+    private volatile double measuredRate;
+    private volatile long totalBytes;
+    private volatile int slowdowns;
+    private volatile int speedups;
+
+    PacedPrinterWriter(int initialRate, int maxRate, boolean adaptive) {
+        this.maxRate = maxRate;
+        this.adaptive = adaptive;
+        this.rate = (initialRate <= 0) ? 0 : Math.max(MIN_RATE_BYTES_PER_SEC, Math.min(initialRate, maxRate));
+    }
+
+    void write(OutputStream out, byte[] data) throws IOException {
+        int currentRate = rate;
+        if (currentRate <= 0) {
+            long t0 = System.nanoTime();
+            out.write(data);
+            out.flush();
+            recordJob(data.length, System.nanoTime() - t0);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int off = 0;
+        while (off < data.length) {
+            int n = Math.min(chunkSize(currentRate), data.length - off);
+            long t0 = System.nanoTime();
+            out.write(data, off, n);
+            out.flush();
+            long t1 = System.nanoTime();
+            off += n;
+
+            currentRate = adaptToChunk(currentRate, n, t1 - t0);
+            if (off < data.length) {
+                // Keep the cumulative rate at or below the target.
+                long expectedNanos = (long) off * 1_000_000_000L / currentRate;
+                long aheadNanos = expectedNanos - (t1 - start);
+                if (aheadNanos > 0) sleepNanos(aheadNanos);
+            }
+        }
+        recordJob(data.length, System.nanoTime() - start);
+    }
+
+    void onJobHealthy() {
+        if (!adaptive || rate <= 0) return;
+        int next = Math.min(maxRate, rate + Math.max(256, rate / 8));
+        if (next != rate) speedups++;
+        rate = next;
+    }
+
+    void onJobProblem() {
+        if (!adaptive || rate <= 0) return;
+        rate = Math.max(MIN_RATE_BYTES_PER_SEC, rate / 2);
+        slowdowns++;
+    }
+
+    int getRate() {
+        return rate;
+    }
+
+    int getChunkSize() {
+        int r = rate;
+        return (r <= 0) ? 0 : chunkSize(r);
+    }
+
+    // Smoothed bytes/sec achieved per job.
+    double getMeasuredRate() {
+        return measuredRate;
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    int getSlowdowns() {
+        return slowdowns;
+    }
+
+    int getSpeedups() {
+        return speedups;
+    }
+
+    static int chunkSize(int rate) {
+        int chunk = (int) ((long) rate * CHUNK_MILLIS / 1000);
+        return Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, chunk));
+    }
+
+    // A write that blocks well past its time budget means the link (or printer) is slower than the target.
+    private int adaptToChunk(int currentRate, int bytes, long nanos) {
+        if (!adaptive || nanos <= 0) return currentRate;
+        double achieved = bytes * 1e9 / nanos;
+        if (achieved >= currentRate / 2.0) return currentRate;
+        int next = Math.max(MIN_RATE_BYTES_PER_SEC, (int) ((currentRate + achieved) / 2));
+        rate = next;
+        slowdowns++;
+        return next;
+    }
+
+    // Achieved rate over the whole job, including pacing delays.
+    private void recordJob(int bytes, long nanos) {
+        totalBytes += bytes;
+        if (nanos <= 0) return;
+        double sample = bytes * 1e9 / nanos;
+        double prev = measuredRate;
+        measuredRate = (prev == 0) ? sample : prev * 0.8 + sample * 0.2;
+    }
+
+    private static void sleepNanos(long nanos) throws IOException {
+        try {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while pacing printer output", ie);
+        }
+    }
+}
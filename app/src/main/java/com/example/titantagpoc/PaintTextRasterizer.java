@@ -0,0 +1,47 @@
+package com.example.titantagpoc;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.nio.ByteBuffer;
+
+// LabelTemplate text through Android's text stack (fonts, Hebrew, bidi), thresholded to 1 bpp.
+// Only called while a template compiles its glyph atlas or meets a new site name.
+class PaintTextRasterizer implements LabelTemplate.TextRasterizer {
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    PaintTextRasterizer() {
+        paint.setColor(Color.BLACK);
+        paint.setTypeface(Typeface.DEFAULT_BOLD);
+    }
+
+    @Override
+    public synchronized LabelTemplate.Bitmap1 render(String text, int heightDots) {
+        // Size the font so ascent + descent fills the line.
+        paint.setTextSize(heightDots);
+        Paint.FontMetrics fm = paint.getFontMetrics();
+        paint.setTextSize(heightDots * heightDots / (fm.descent - fm.ascent));
+        fm = paint.getFontMetrics();
+
+        int width = Math.max(1, (int) Math.ceil(paint.measureText(text)));
+        Bitmap bmp = Bitmap.createBitmap(width, heightDots, Bitmap.Config.ALPHA_8);
+        new Canvas(bmp).drawText(text, 0, -fm.ascent, paint);
+        ByteBuffer alpha = ByteBuffer.allocate(bmp.getRowBytes() * heightDots);
+        bmp.copyPixelsToBuffer(alpha);
+        int stride = bmp.getRowBytes();
+        bmp.recycle();
+
+        LabelTemplate.Bitmap1 out = new LabelTemplate.Bitmap1(width, heightDots);
+        byte[] a = alpha.array();
+        for (int y = 0; y < heightDots; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((a[y * stride + x] & 0xff) >= 128) out.set(x, y);
+            }
+        }
+        return out;
+    }
+}
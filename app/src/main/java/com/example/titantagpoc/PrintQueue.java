@@ -0,0 +1,291 @@
+package com.example.titantagpoc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Print scheduler with one consumer thread per printer (one in total by default).
+// Each printer receives whole jobs from a single thread, so concurrent taps can't interleave bytes on it.
+// The queue is bounded, pending jobs for the same find ID are deduplicated, and pending jobs can be cancelled.
+class PrintQueue {
+
+    enum JobState { QUEUED, RENDERING, SENDING, DONE, FAILED, CANCELLED }
+
+    interface JobRunner {
+        // May set job.spoolSeq.
+        byte[] render(Job job) throws Exception;
+
+        // Returns the number of bytes actually written to the printer; may set job.printer.
+        int send(Job job, byte[] data) throws Exception;
+    }
+
+    interface Listener {
+        // state is the job's state at this change; job.state may already be further along.
+        void onJobChanged(Job job, JobState state);
+    }
+
+    static final class Job {
+        final long id;
+        final String findId;
+        final long batchId;
+        final long enqueuedAt;
+
+        volatile JobState state = JobState.QUEUED;
+        volatile long startedAt;
+        volatile long renderedAt;
+        volatile long finishedAt;
+        volatile int bytes;
+        volatile int wireBytes;
+        volatile String error;
+        volatile String printer;
+        // PrintSpool record holding the rendered bytes; 0 if the job is not spooled.
+        volatile long spoolSeq;
+
+        Job(long id, String findId, long batchId, long enqueuedAt) {
+            this.id = id;
+            this.findId = findId;
+            this.batchId = batchId;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        boolean isFinished() {
+            JobState s = state;
+            return s == JobState.DONE || s == JobState.FAILED || s == JobState.CANCELLED;
+        }
+
+        long waitMs() {
+            return startedAt == 0 ? 0 : startedAt - enqueuedAt;
+        }
+
+        long renderMs() {
+            return renderedAt == 0 ? 0 : renderedAt - startedAt;
+        }
+
+        long sendMs() {
+            return (renderedAt == 0 || finishedAt == 0) ? 0 : finishedAt - renderedAt;
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 256;
+    // Error of the pending jobs shutdown() drops: the app is going away, nobody cancelled them.
+    static final String ERROR_SHUTDOWN = "shutdown";
+    private static final int RECENT_LIMIT = 20;
+
+    private final int capacity;
+    private final JobRunner runner;
+    private final Listener listener;
+
+    private final ArrayDeque<Job> pending = new ArrayDeque<>();
+    private final ArrayDeque<Job> recent = new ArrayDeque<>();
+    private final List<Job> active = new ArrayList<>();
+    private long nextJobId = 1;
+    private boolean running = true;
+
+    private final List<Thread> consumers = new ArrayList<>();
+    private int targetWorkers;
+    private int liveWorkers;
+
+    PrintQueue(int capacity, JobRunner runner, Listener listener) {
+        this.capacity = capacity;
+        this.runner = runner;
+        this.listener = listener;
+        setWorkerCount(1);
+    }
+
+    // One worker per available printer; extra workers exit once they are idle.
+    synchronized void setWorkerCount(int count) {
+        if (!running) return;
+        targetWorkers = Math.max(1, count);
+        consumers.removeIf(t -> !t.isAlive());
+        while (liveWorkers < targetWorkers) {
+            Thread t = new Thread(this::consumeLoop, "print-queue-" + (consumers.size() + 1));
+            t.setDaemon(true);
+            consumers.add(t);
+            liveWorkers++;
+            t.start();
+        }
+        notifyAll();
+    }
+
+    // Returns the queued job, the already pending job for the same find ID, or null when the queue is full.
+    Job enqueue(String findId, long batchId) {
+        Job job;
+        synchronized (this) {
+            if (!running) return null;
+            for (Job p : pending) {
+                if (p.findId.equals(findId)) return p;
+            }
+            if (pending.size() >= capacity) return null;
+            job = new Job(nextJobId++, findId, batchId, System.currentTimeMillis());
+            pending.addLast(job);
+            notifyAll();
+        }
+        notifyChanged(job, JobState.QUEUED);
+        return job;
+    }
+
+    // Only pending jobs can be cancelled; a job that is already sending must finish to keep the printer in sync.
+    boolean cancel(long jobId) {
+        Job cancelled = null;
+        synchronized (this) {
+            Iterator<Job> it = pending.iterator();
+            while (it.hasNext()) {
+                Job j = it.next();
+                if (j.id == jobId) {
+                    it.remove();
+                    cancelled = j;
+                    break;
+                }
+            }
+            if (cancelled != null) finish(cancelled, JobState.CANCELLED, null);
+        }
+        if (cancelled != null) notifyChanged(cancelled, JobState.CANCELLED);
+        return cancelled != null;
+    }
+
+    int cancelBatch(long batchId) {
+        List<Job> cancelled = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Job> it = pending.iterator();
+            while (it.hasNext()) {
+                Job j = it.next();
+                if (j.batchId == batchId) {
+                    it.remove();
+                    cancelled.add(j);
+                    finish(j, JobState.CANCELLED, null);
+                }
+            }
+        }
+        for (Job j : cancelled) notifyChanged(j, JobState.CANCELLED);
+        return cancelled.size();
+    }
+
+    int cancelAll() {
+        List<Job> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<>(pending);
+            pending.clear();
+            for (Job j : cancelled) finish(j, JobState.CANCELLED, null);
+        }
+        for (Job j : cancelled) notifyChanged(j, JobState.CANCELLED);
+        return cancelled.size();
+    }
+
+    synchronized List<Job> pendingJobs() {
+        return new ArrayList<>(pending);
+    }
+
+    synchronized List<Job> activeJobs() {
+        return new ArrayList<>(active);
+    }
+
+    synchronized List<Job> recentJobs() {
+        return new ArrayList<>(recent);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    void shutdown() {
+        shutdown(0);
+    }
+
+    // Stops the workers and drops the pending jobs (CANCELLED, error ERROR_SHUTDOWN), then waits up to
+    // timeoutMs for jobs already running to end. Returns false if a worker is still running.
+    boolean shutdown(long timeoutMs) {
+        List<Job> dropped;
+        List<Thread> threads;
+        synchronized (this) {
+            running = false;
+            dropped = new ArrayList<>(pending);
+            pending.clear();
+            for (Job j : dropped) finish(j, JobState.CANCELLED, ERROR_SHUTDOWN);
+            notifyAll();
+            threads = new ArrayList<>(consumers);
+        }
+        for (Job j : dropped) notifyChanged(j, JobState.CANCELLED);
+        for (Thread t : threads) t.interrupt();
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (Thread t : threads) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) break;
+            try {
+                t.join(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Thread t : threads) {
+            if (t.isAlive()) return false;
+        }
+        return true;
+    }
+
+    private void consumeLoop() {
+        while (true) {
+            Job job;
+            synchronized (this) {
+                while (running && pending.isEmpty() && liveWorkers <= targetWorkers) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        if (!running) break;
+                    }
+                }
+                if (!running || liveWorkers > targetWorkers) {
+                    liveWorkers--;
+                    return;
+                }
+                job = pending.pollFirst();
+                active.add(job);
+                job.startedAt = System.currentTimeMillis();
+                job.state = JobState.RENDERING;
+            }
+            notifyChanged(job, JobState.RENDERING);
+            runJob(job);
+        }
+    }
+
+    private void runJob(Job job) {
+        try {
+            byte[] data = runner.render(job);
+            job.bytes = data.length;
+            job.renderedAt = System.currentTimeMillis();
+            job.state = JobState.SENDING;
+            notifyChanged(job, JobState.SENDING);
+
+            job.wireBytes = runner.send(job, data);
+            synchronized (this) {
+                finish(job, JobState.DONE, null);
+            }
+        } catch (Exception e) {
+            String msg = e.getMessage();
+            synchronized (this) {
+                finish(job, JobState.FAILED, msg == null ? e.getClass().getSimpleName() : msg);
+            }
+        }
+        notifyChanged(job, job.state);
+    }
+
+    // Caller holds the lock.
+    private void finish(Job job, JobState state, String error) {
+        job.state = state;
+        job.error = error;
+        job.finishedAt = System.currentTimeMillis();
+        active.remove(job);
+        recent.addFirst(job);
+        while (recent.size() > RECENT_LIMIT) recent.removeLast();
+    }
+
+    private void notifyChanged(Job job, JobState state) {
+        if (listener == null) return;
+        try {
+            listener.onJobChanged(job, state);
+        } catch (RuntimeException ignored) {
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.titantagpoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Durable spool of encoded label jobs: a ring log in one memory-mapped, app-private file.
+// A job is appended once it is rendered and its state byte is updated in place as it is sent, so
+// a label that could not be printed (printer off, out of range, process killed) is still on disk.
+// Finished records at the head of the ring are reclaimed; the file never grows.
+// File layout: a 64-byte header {magic, version, head, tail, nextSeq}, then records
+// {magic, state, requeues, idLength, seq, createdAt, dataLength, findId, data} padded to 8 bytes.
+// A record's magic is written last and the tail moves after it, so a torn append is never read back.
+// Thread-safe.
+class PrintSpool {
+
+    enum State { QUEUED, SENDING, HELD, DONE, CANCELLED, FAILED }
+
+    static final class Record {
+        final long seq;
+        final String findId;
+        final long createdAt;
+        final int dataLength;
+        final int offset;
+        final int length;
+        volatile State state;
+        volatile int requeues;
+
+        Record(long seq, String findId, long createdAt, int dataLength, int offset, int length, State state, int requeues) {
+            this.seq = seq;
+            this.findId = findId;
+            this.createdAt = createdAt;
+            this.dataLength = dataLength;
+            this.offset = offset;
+            this.length = length;
+            this.state = state;
+            this.requeues = requeues;
+        }
+
+        boolean isFinished() {
+            State s = state;
+            return s == State.DONE || s == State.CANCELLED || s == State.FAILED;
+        }
+    }
+
+    static final int DEFAULT_SIZE = 4 * 1024 * 1024;
+    // A job interrupted mid-send may have partly printed; it is requeued this many times, then failed.
+    static final int MAX_REQUEUES = 1;
+
+    private static final int FILE_MAGIC = 0x54545053; // "TTPS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int H_HEAD = 8;
+    private static final int H_TAIL = 12;
+    private static final int H_NEXT_SEQ = 16;
+
+    private static final int RECORD_MAGIC = 0x4A4F4221; // "JOB!"
+    private static final int WRAP_MAGIC = 0x57524150; // "WRAP": the rest of the file is unused
+    private static final int RECORD_HEADER = 32;
+    private static final int R_STATE = 4;
+    private static final int R_REQUEUES = 5;
+    private static final int R_ID_LENGTH = 6;
+    private static final int R_SEQ = 8;
+    private static final int R_CREATED_AT = 16;
+    private static final int R_DATA_LENGTH = 24;
+
+    private final int size;
+    private final MappedByteBuffer map;
+    // Live records, oldest first; mirrors the ring between head and tail.
+    private final List<Record> records = new ArrayList<>();
+    private int head;
+    private int tail;
+    private long nextSeq;
+    private boolean closed;
+
+    // Opens (or creates) the spool. Jobs that were being sent when the process died are requeued
+    // once (or failed, if they were already requeued) and everything unfinished comes back HELD.
+    PrintSpool(File file, int sizeBytes) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long existing = raf.length();
+            int mapSize = (existing >= HEADER_SIZE && existing <= Integer.MAX_VALUE && hasHeader(raf))
+                ? (int) existing
+                : sizeBytes;
+            this.size = mapSize;
+            this.map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mapSize);
+        }
+        if (map.getInt(0) == FILE_MAGIC && map.getInt(4) == VERSION) {
+            recover();
+        } else {
+            format();
+        }
+    }
+
+    private static boolean hasHeader(RandomAccessFile raf) throws IOException {
+        raf.seek(0);
+        return raf.readInt() == FILE_MAGIC && raf.readInt() == VERSION;
+    }
+
+    private void format() {
+        for (int i = 0; i < HEADER_SIZE; i += 8) map.putLong(i, 0);
+        head = tail = HEADER_SIZE;
+        nextSeq = 1;
+        map.putInt(H_HEAD, head);
+        map.putInt(H_TAIL, tail);
+        map.putLong(H_NEXT_SEQ, nextSeq);
+        map.putInt(4, VERSION);
+        map.putInt(0, FILE_MAGIC);
+        map.force();
+    }
+
+    private void recover() {
+        head = map.getInt(H_HEAD);
+        tail = map.getInt(H_TAIL);
+        nextSeq = Math.max(1, map.getLong(H_NEXT_SEQ));
+        if (head < HEADER_SIZE || head > size || tail < HEADER_SIZE || tail > size) {
+            format();
+            return;
+        }
+        int pos = head;
+        boolean wrapped = false;
+        while (pos != tail) {
+            if (pos + RECORD_HEADER > size || map.getInt(pos) == WRAP_MAGIC) {
+                if (wrapped) break;
+                wrapped = true;
+                pos = HEADER_SIZE;
+                continue;
+            }
+            Record r = readRecord(pos);
+            if (r == null) {
+                // Torn or corrupt: drop it and everything after it.
+                tail = pos;
+                map.putInt(H_TAIL, tail);
+                break;
+            }
+            if (r.state == State.SENDING) {
+                r.state = (r.requeues < MAX_REQUEUES) ? State.HELD : State.FAILED;
+                if (r.state == State.HELD) r.requeues++;
+            } else if (r.state == State.QUEUED) {
+                r.state = State.HELD;
+            }
+            writeState(r);
+            records.add(r);
+            nextSeq = Math.max(nextSeq, r.seq + 1);
+            pos += r.length;
+        }
+        reclaim();
+        map.force();
+    }
+
+    private Record readRecord(int pos) {
+        if (map.getInt(pos) != RECORD_MAGIC) return null;
+        int stateOrdinal = map.get(pos + R_STATE);
+        int idLength = map.getShort(pos + R_ID_LENGTH);
+        int dataLength = map.getInt(pos + R_DATA_LENGTH);
+        if (stateOrdinal < 0 || stateOrdinal >= State.values().length || idLength < 0 || dataLength < 0) return null;
+        int length = recordLength(idLength, dataLength);
+        if (length < RECORD_HEADER || pos + length > size) return null;
+        byte[] id = new byte[idLength];
+        for (int i = 0; i < idLength; i++) id[i] = map.get(pos + RECORD_HEADER + i);
+        return new Record(map.getLong(pos + R_SEQ), new String(id, StandardCharsets.UTF_8),
+            map.getLong(pos + R_CREATED_AT), dataLength, pos, length,
+            State.values()[stateOrdinal], map.get(pos + R_REQUEUES));
+    }
+
+    private static int recordLength(int idLength, int dataLength) {
+        return (RECORD_HEADER + idLength + dataLength + 7) & ~7;
+    }
+
+    // Appends a QUEUED job; returns null when it doesn't fit in the free part of the ring.
+    synchronized Record append(String findId, byte[] data) {
+        if (closed) return null;
+        byte[] id = findId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > Short.MAX_VALUE) return null;
+        int length = recordLength(id.length, data.length);
+        int pos = allocate(length);
+        if (pos < 0) return null;
+
+        Record r = new Record(nextSeq++, findId, System.currentTimeMillis(), data.length, pos, length, State.QUEUED, 0);
+        map.put(pos + R_STATE, (byte) r.state.ordinal());
+        map.put(pos + R_REQUEUES, (byte) 0);
+        map.putShort(pos + R_ID_LENGTH, (short) id.length);
+        map.putLong(pos + R_SEQ, r.seq);
+        map.putLong(pos + R_CREATED_AT, r.createdAt);
+        map.putInt(pos + R_DATA_LENGTH, data.length);
+        for (int i = 0; i < id.length; i++) map.put(pos + RECORD_HEADER + i, id[i]);
+        ByteBuffer body = map.duplicate();
+        body.position(pos + RECORD_HEADER + id.length);
+        body.put(data);
+        map.putInt(pos, RECORD_MAGIC);
+
+        records.add(r);
+        tail = pos + length;
+        map.putInt(H_TAIL, tail);
+        map.putLong(H_NEXT_SEQ, nextSeq);
+        map.force();
+        return r;
+    }
+
+    // Start of length free bytes at the tail, wrapping to the front if needed; -1 if the ring is full.
+    // The tail never catches up with the head, so head == tail always means empty.
+    private int allocate(int length) {
+        if (records.isEmpty()) {
+            head = tail = HEADER_SIZE;
+            map.putInt(H_HEAD, head);
+        }
+        if (tail >= head) {
+            if (tail + length <= size) return tail;
+            if (HEADER_SIZE + length < head) {
+                if (tail + 4 <= size) map.putInt(tail, WRAP_MAGIC);
+                return HEADER_SIZE;
+            }
+            return -1;
+        }
+        return (tail + length < head) ? tail : -1;
+    }
+
+    // Throws IllegalStateException once closed: a job must never go out with made-up bytes.
+    synchronized byte[] read(Record r) {
+        if (closed) throw new IllegalStateException("Print spool is closed");
+        byte[] data = new byte[r.dataLength];
+        ByteBuffer body = map.duplicate();
+        body.position(r.offset + RECORD_HEADER + r.findId.getBytes(StandardCharsets.UTF_8).length);
+        body.get(data);
+        return data;
+    }
+
+    synchronized void setState(Record r, State state) {
+        if (closed || r.isFinished()) return;
+        r.state = state;
+        writeState(r);
+        if (r.isFinished()) reclaim();
+        map.force();
+    }
+
+    private void writeState(Record r) {
+        map.put(r.offset + R_STATE, (byte) r.state.ordinal());
+        map.put(r.offset + R_REQUEUES, (byte) r.requeues);
+    }
+
+    // Frees finished records at the head; unfinished ones keep their place until they finish.
+    private void reclaim() {
+        int n = 0;
+        while (n < records.size() && records.get(n).isFinished()) n++;
+        if (n == 0) return;
+        records.subList(0, n).clear();
+        head = records.isEmpty() ? tail : records.get(0).offset;
+        if (records.isEmpty()) head = tail = HEADER_SIZE;
+        map.putInt(H_HEAD, head);
+        map.putInt(H_TAIL, tail);
+    }
+
+    // The unfinished job for findId, if any (a find has at most one while printing dedupes by ID).
+    synchronized Record pending(String findId) {
+        for (Record r : records) {
+            if (!r.isFinished() && r.findId.equals(findId)) return r;
+        }
+        return null;
+    }
+
+    synchronized Record get(long seq) {
+        for (Record r : records) {
+            if (r.seq == seq) return r;
+        }
+        return null;
+    }
+
+    // HELD jobs, oldest first.
+    synchronized List<Record> held() {
+        List<Record> out = new ArrayList<>();
+        for (Record r : records) {
+            if (r.state == State.HELD) out.add(r);
+        }
+        return out;
+    }
+
+    synchronized int usedBytes() {
+        if (records.isEmpty()) return 0;
+        return (tail >= head) ? tail - head : (size - head) + (tail - HEADER_SIZE);
+    }
+
+    int capacityBytes() {
+        return size - HEADER_SIZE;
+    }
+
+    // {capacityBytes, usedBytes, jobs:[{seq, findId, state, requeues, bytes, createdAt}]}
+    synchronized JSONObject toJson() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("capacityBytes", capacityBytes());
+            o.put("usedBytes", usedBytes());
+            JSONArray jobs = new JSONArray();
+            for (Record r : records) {
+                if (r.isFinished()) continue;
+                JSONObject j = new JSONObject();
+                j.put("seq", r.seq);
+                j.put("findId", r.findId);
+                j.put("state", r.state.name().toLowerCase(Locale.ROOT));
+                j.put("requeues", r.requeues);
+                j.put("bytes", r.dataLength);
+                j.put("createdAt", r.createdAt);
+                jobs.put(j);
+            }
+            o.put("jobs", jobs);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    // Later calls are no-ops; records keep the state they had on disk.
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        map.force();
+    }
+}
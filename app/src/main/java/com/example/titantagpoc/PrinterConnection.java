@@ -0,0 +1,322 @@
+package com.example.titantagpoc;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+
+// Long-lived RFCOMM session to one printer.
+// The socket stays open between prints and is closed after an idle period.
+// A failed write drops the socket and retries on a fresh one with bounded backoff.
+// Output goes through a PacedPrinterWriter configured from the printer's profile.
+class PrinterConnection {
+
+    enum State { DISCONNECTED, CONNECTING, CONNECTED, FAILED }
+
+    private static final String TAG = "PrinterConnection";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BACKOFF_BASE_MS = 250;
+    private static final long BACKOFF_MAX_MS = 2000;
+
+    static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+
+    private static final long STATUS_TIMEOUT_MS = 300;
+    // DLE EOT 1 status byte: bit 3 = offline
+    private static final int STATUS_OFFLINE = 0x08;
+
+    private final BluetoothDevice device;
+    private final UUID serviceUuid;
+    private final byte[] sessionPreamble;
+    private final Metrics metrics;
+    private final PrinterProfile profile;
+    private final PacedPrinterWriter writer;
+    private final ScheduledExecutorService idleTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "printer-idle");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private BluetoothSocket socket;
+    private OutputStream out;
+    private InputStream in;
+    private ScheduledFuture<?> idleClose;
+    private volatile long idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+
+    private volatile State state = State.DISCONNECTED;
+    private volatile String lastError;
+    private volatile long connectedAt;
+    private volatile long lastUsedAt;
+    private volatile int connects;
+    private volatile int reconnects;
+
+    // DLE EOT: null until the printer answers (or fails to answer) once.
+    private volatile Boolean statusSupported;
+    private volatile int lastStatus = -1;
+
+    // sessionPreamble is written once after every (re)connect, e.g. ESC @ and line spacing.
+    PrinterConnection(BluetoothDevice device, UUID serviceUuid, byte[] sessionPreamble, PrinterProfile profile,
+                      Metrics metrics) {
+        this.device = device;
+        this.serviceUuid = serviceUuid;
+        this.sessionPreamble = sessionPreamble;
+        this.metrics = metrics;
+        this.profile = profile;
+        this.writer = profile.newWriter();
+    }
+
+    PrinterProfile getProfile() {
+        return profile;
+    }
+
+    BluetoothDevice getDevice() {
+        return device;
+    }
+
+    String getAddress() {
+        return device.getAddress();
+    }
+
+    State getState() {
+        return state;
+    }
+
+    void setIdleTimeoutMs(long ms) {
+        idleTimeoutMs = Math.max(0, ms);
+        synchronized (this) {
+            if (socket != null) scheduleIdleClose();
+        }
+    }
+
+    long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    // Writes data to the printer, connecting first if needed.
+    // On an IOException the socket is dropped and the whole payload is resent on a new socket.
+    synchronized void send(byte[] data) throws IOException {
+        cancelIdleClose();
+        IOException last = null;
+        try {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                if (attempt > 0) {
+                    reconnects++;
+                    sleepBackoff(attempt);
+                }
+                try {
+                    ensureConnected();
+                    long t0 = Metrics.now();
+                    writer.write(out, data);
+                    metrics.record(Metrics.Stage.SOCKET_WRITE, t0, data.length);
+                    lastUsedAt = System.currentTimeMillis();
+                    lastError = null;
+                    afterJob();
+                    return;
+                } catch (IOException e) {
+                    Log.w(TAG, "Printer write failed (attempt " + (attempt + 1) + ")", e);
+                    last = e;
+                    lastError = e.getMessage();
+                    writer.onJobProblem();
+                    closeSocket();
+                    state = State.FAILED;
+                }
+            }
+            throw last;
+        } finally {
+            if (socket != null) scheduleIdleClose();
+        }
+    }
+
+    synchronized void close() {
+        cancelIdleClose();
+        closeSocket();
+        state = State.DISCONNECTED;
+    }
+
+    // Closes the socket and stops the idle timer; the connection cannot be used afterwards.
+    void shutdown() {
+        close();
+        idleTimer.shutdownNow();
+    }
+
+    JSONObject toJson() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("state", state.name().toLowerCase());
+            o.put("address", device.getAddress());
+            String name = null;
+            try {
+                name = device.getName();
+            } catch (SecurityException ignored) {
+            }
+            o.put("name", name == null ? JSONObject.NULL : name);
+            o.put("connectedAt", connectedAt);
+            o.put("lastUsedAt", lastUsedAt);
+            o.put("idleTimeoutMs", idleTimeoutMs);
+            o.put("connects", connects);
+            o.put("reconnects", reconnects);
+            o.put("lastError", lastError == null ? JSONObject.NULL : lastError);
+            o.put("encoding", profile.encoding.name().toLowerCase(Locale.ROOT));
+            o.put("paceBytesPerSec", writer.getRate());
+            o.put("chunkBytes", writer.getChunkSize());
+            o.put("measuredBytesPerSec", Math.round(writer.getMeasuredRate()));
+            o.put("bytesSent", writer.getTotalBytes());
+            o.put("paceSlowdowns", writer.getSlowdowns());
+            o.put("paceSpeedups", writer.getSpeedups());
+            o.put("statusSupported", statusSupported == null ? JSONObject.NULL : statusSupported);
+            o.put("lastStatus", lastStatus);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    private void ensureConnected() throws IOException {
+        if (socket != null && out != null && socket.isConnected()) return;
+        closeSocket();
+
+        state = State.CONNECTING;
+        try {
+            try {
+                BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+                if (adapter != null) adapter.cancelDiscovery();
+            } catch (SecurityException ignored) {
+            }
+
+            long t0 = Metrics.now();
+            BluetoothSocket s = device.createRfcommSocketToServiceRecord(serviceUuid);
+            try {
+                s.connect();
+                metrics.record(Metrics.Stage.SOCKET_CONNECT, t0);
+                OutputStream os = s.getOutputStream();
+                if (sessionPreamble != null && sessionPreamble.length > 0) os.write(sessionPreamble);
+                socket = s;
+                out = os;
+                in = s.getInputStream();
+            } catch (IOException e) {
+                metrics.fail(Metrics.Stage.SOCKET_CONNECT);
+                try {
+                    s.close();
+                } catch (IOException ce) {
+                    Log.w(TAG, "Failed to close printer socket after connect error", ce);
+                }
+                throw e;
+            }
+        } catch (SecurityException se) {
+            state = State.FAILED;
+            throw new IOException("Missing Bluetooth permission", se);
+        } catch (IOException e) {
+            state = State.FAILED;
+            throw e;
+        }
+
+        connects++;
+        connectedAt = System.currentTimeMillis();
+        state = State.CONNECTED;
+    }
+
+    private void closeSocket() {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close printer socket", e);
+        }
+        socket = null;
+        out = null;
+        in = null;
+    }
+
+    // Between jobs: ask for real-time status (DLE EOT 1) and feed the answer to the pacing logic.
+    // Only a positive status reply raises the rate; without one the rate is held, since a job that
+    // overran the printer's buffer still writes without error.
+    // Never throws: the job is already written, so a failure here must not trigger a resend.
+    private void afterJob() {
+        if (!profile.statusPolling || Boolean.FALSE.equals(statusSupported)) return;
+
+        int status;
+        try {
+            status = pollStatus();
+        } catch (IOException e) {
+            Log.w(TAG, "Printer status poll failed", e);
+            writer.onJobProblem();
+            closeSocket();
+            state = State.FAILED;
+            return;
+        }
+        if (status < 0) {
+            // No answer: this firmware doesn't implement DLE EOT; stop asking.
+            statusSupported = false;
+            return;
+        }
+        statusSupported = true;
+        lastStatus = status;
+        if ((status & STATUS_OFFLINE) != 0) {
+            Log.w(TAG, "Printer reports offline status 0x" + Integer.toHexString(status));
+            writer.onJobProblem();
+        } else {
+            writer.onJobHealthy();
+        }
+    }
+
+    private int pollStatus() throws IOException {
+        while (in.available() > 0) {
+            if (in.read() < 0) break;
+        }
+        out.write(new byte[]{ 0x10, 0x04, 0x01 }); // DLE EOT 1
+        out.flush();
+
+        long deadline = System.currentTimeMillis() + STATUS_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            if (in.available() > 0) return in.read();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private void scheduleIdleClose() {
+        cancelIdleClose();
+        long ms = idleTimeoutMs;
+        if (ms <= 0 || idleTimer.isShutdown()) return;
+        idleClose = idleTimer.schedule(() -> {
+            synchronized (PrinterConnection.this) {
+                if (System.currentTimeMillis() - lastUsedAt < idleTimeoutMs) return;
+                Log.d(TAG, "Closing idle printer connection");
+                closeSocket();
+                state = State.DISCONNECTED;
+            }
+        }, ms, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelIdleClose() {
+        if (idleClose != null) {
+            idleClose.cancel(false);
+            idleClose = null;
+        }
+    }
+
+    private static void sleepBackoff(int attempt) throws IOException {
+        long delay = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << (attempt - 1));
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reconnecting", ie);
+        }
+    }
+}
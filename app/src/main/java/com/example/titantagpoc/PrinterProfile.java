@@ -0,0 +1,57 @@
+package com.example.titantagpoc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Printer capabilities keyed by Bluetooth device-name prefix.
+// Unknown printers get the conservative default (uncompressed raster).
+final class PrinterProfile {
+
+    final String namePrefix;
+    final RasterEncoding encoding;
+    final int maxBandRows;
+
+    // Output pacing (bytes/sec); 0 = write each job in one go. See PacedPrinterWriter.
+    final int initialBytesPerSec;
+    final int maxBytesPerSec;
+
+    // Poll DLE EOT status between jobs (disabled automatically if the printer never answers).
+    final boolean statusPolling;
+
+    PrinterProfile(String namePrefix, RasterEncoding encoding, int maxBandRows,
+                   int initialBytesPerSec, int maxBytesPerSec, boolean statusPolling) {
+        this.namePrefix = namePrefix;
+        this.encoding = encoding;
+        this.maxBandRows = maxBandRows;
+        this.initialBytesPerSec = initialBytesPerSec;
+        this.maxBytesPerSec = maxBytesPerSec;
+        this.statusPolling = statusPolling;
+    }
+
+    static final PrinterProfile DEFAULT = new PrinterProfile("", RasterEncoding.UNCOMPRESSED, 0, 0, 0, false);
+
+    // SK58: ESC J feeds are reliable; GS L is not verified on this firmware, so no column cropping.
+    // It prints ~60 mm/s (~20 KB/s of raster): start below that and let the writer adapt up to it,
+    // never past it, since the printer's buffer fills silently at higher rates.
+    static final List<PrinterProfile> KNOWN = Collections.unmodifiableList(Arrays.asList(
+        new PrinterProfile("SK58", RasterEncoding.SKIP_BLANK_ROWS, 0, 12 * 1024, 20 * 1024, true)
+    ));
+
+    static PrinterProfile forDeviceName(String name) {
+        if (name == null) return DEFAULT;
+        PrinterProfile best = DEFAULT;
+        for (PrinterProfile p : KNOWN) {
+            if (name.startsWith(p.namePrefix) && p.namePrefix.length() > best.namePrefix.length()) best = p;
+        }
+        return best;
+    }
+
+    PacedPrinterWriter newWriter() {
+        return new PacedPrinterWriter(initialBytesPerSec, maxBytesPerSec, initialBytesPerSec > 0);
+    }
+
+    byte[] encode(byte[] job) {
+        return encoding.encode(job, maxBandRows);
+    }
+}
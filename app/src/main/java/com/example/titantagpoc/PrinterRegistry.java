@@ -0,0 +1,356 @@
+package com.example.titantagpoc;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Cached set of bonded label printers (any device matching a PrinterProfile prefix).
+// Refreshed from Bluetooth bond/adapter/ACL broadcasts instead of walking getBondedDevices() per job.
+// Jobs are spread across printers round-robin or least-busy; a station can pin one printer,
+// and a printer that fails is skipped for a cooldown so jobs fail over to the others.
+class PrinterRegistry {
+
+    enum Policy { ROUND_ROBIN, LEAST_BUSY }
+
+    interface Listener {
+        void onPrintersChanged(int count);
+    }
+
+    static final class Entry {
+        final BluetoothDevice device;
+        final String address;
+        final String name;
+        final PrinterConnection connection;
+        final AtomicInteger busy = new AtomicInteger();
+        volatile long offlineUntil;
+        volatile int jobs;
+        volatile int failures;
+
+        Entry(BluetoothDevice device, String name, PrinterConnection connection) {
+            this.device = device;
+            this.address = device.getAddress();
+            this.name = name;
+            this.connection = connection;
+        }
+
+        PrinterProfile profile() {
+            return connection.getProfile();
+        }
+
+        boolean isOnline(long now) {
+            return now >= offlineUntil;
+        }
+
+        JSONObject toJson(long now, boolean pinned) {
+            JSONObject o = connection.toJson();
+            try {
+                o.put("name", name);
+                o.put("busy", busy.get());
+                o.put("online", isOnline(now));
+                o.put("pinned", pinned);
+                o.put("jobs", jobs);
+                o.put("failures", failures);
+            } catch (Exception ignored) {
+            }
+            return o;
+        }
+    }
+
+    private static final String TAG = "PrinterRegistry";
+    private static final String PREFS = "tt.printers";
+    private static final String PREF_PINNED = "pinned";
+    private static final String PREF_POLICY = "policy";
+
+    // How long a printer that failed (after its own reconnect attempts) is skipped.
+    private static final long OFFLINE_COOLDOWN_MS = 30_000;
+
+    private final Context context;
+    private final UUID serviceUuid;
+    private final byte[] sessionPreamble;
+    private final Metrics metrics;
+    private final Listener listener;
+    private final SharedPreferences prefs;
+
+    private final Map<String, Entry> printers = new LinkedHashMap<>();
+    private int roundRobin;
+    private volatile long idleTimeoutMs = PrinterConnection.DEFAULT_IDLE_TIMEOUT_MS;
+    private volatile Policy policy;
+    private volatile String pinnedAddress;
+    // Guarded by this; start() may run on a background thread and lose the race with stop().
+    private boolean receiverRegistered;
+    private boolean stopped;
+    // refresh() lists bonded devices and may shut down connections that wait on a send, so broadcasts
+    // and UI requests run it here rather than on the main thread.
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "printer-registry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context ctx, Intent intent) {
+            String action = intent.getAction();
+            if (BluetoothDevice.ACTION_ACL_DISCONNECTED.equals(action)) {
+                Entry e = entryFor(intent);
+                if (e != null) new Thread(e.connection::close, "printer-close").start();
+                return;
+            }
+            if (BluetoothDevice.ACTION_ACL_CONNECTED.equals(action)) {
+                Entry e = entryFor(intent);
+                if (e != null) e.offlineUntil = 0;
+                return;
+            }
+            // Bond or adapter state changed.
+            refreshAsync(null);
+        }
+    };
+
+    PrinterRegistry(Context context, UUID serviceUuid, byte[] sessionPreamble, Metrics metrics, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.metrics = metrics;
+        this.serviceUuid = serviceUuid;
+        this.sessionPreamble = sessionPreamble;
+        this.listener = listener;
+        this.prefs = this.context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        String p = prefs.getString(PREF_POLICY, Policy.LEAST_BUSY.name());
+        Policy parsed;
+        try {
+            parsed = Policy.valueOf(p);
+        } catch (IllegalArgumentException e) {
+            parsed = Policy.LEAST_BUSY;
+        }
+        this.policy = parsed;
+        String pinned = prefs.getString(PREF_PINNED, "");
+        this.pinnedAddress = pinned.isEmpty() ? null : pinned;
+    }
+
+    void start() {
+        synchronized (this) {
+            if (stopped) return;
+            if (!receiverRegistered) {
+                IntentFilter filter = new IntentFilter();
+                filter.addAction(BluetoothDevice.ACTION_BOND_STATE_CHANGED);
+                filter.addAction(BluetoothDevice.ACTION_NAME_CHANGED);
+                filter.addAction(BluetoothDevice.ACTION_ACL_CONNECTED);
+                filter.addAction(BluetoothDevice.ACTION_ACL_DISCONNECTED);
+                filter.addAction(BluetoothAdapter.ACTION_STATE_CHANGED);
+                ContextCompat.registerReceiver(context, receiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+                receiverRegistered = true;
+            }
+        }
+        refresh();
+    }
+
+    void stop() {
+        List<Entry> all;
+        refresher.shutdown();
+        synchronized (this) {
+            stopped = true;
+            if (receiverRegistered) {
+                try {
+                    context.unregisterReceiver(receiver);
+                } catch (IllegalArgumentException ignored) {
+                }
+                receiverRegistered = false;
+            }
+            all = new ArrayList<>(printers.values());
+            printers.clear();
+        }
+        for (Entry e : all) e.connection.shutdown();
+    }
+
+    // refresh() on the registry's thread, then then (if not null) on the same thread.
+    void refreshAsync(Runnable then) {
+        try {
+            refresher.execute(() -> {
+                refresh();
+                if (then != null) then.run();
+            });
+        } catch (RejectedExecutionException ignored) {
+            // Stopped.
+        }
+    }
+
+    // Re-reads bonded devices. Blocking; see refreshAsync(). Needs BLUETOOTH_CONNECT on Android 12+; without it the registry is empty.
+    void refresh() {
+        Map<String, BluetoothDevice> bonded = new LinkedHashMap<>();
+        Map<String, String> names = new LinkedHashMap<>();
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        try {
+            Set<BluetoothDevice> devices = (adapter == null) ? null : adapter.getBondedDevices();
+            if (devices != null) {
+                for (BluetoothDevice d : devices) {
+                    String name = d.getName();
+                    if (name == null || PrinterProfile.forDeviceName(name) == PrinterProfile.DEFAULT) continue;
+                    bonded.put(d.getAddress(), d);
+                    names.put(d.getAddress(), name);
+                }
+            }
+        } catch (SecurityException se) {
+            Log.w(TAG, "No Bluetooth permission to list bonded printers");
+        }
+
+        List<Entry> removed = new ArrayList<>();
+        int count;
+        synchronized (this) {
+            if (stopped) return;
+            for (String address : new ArrayList<>(printers.keySet())) {
+                Entry e = printers.get(address);
+                if (!bonded.containsKey(address) || !e.name.equals(names.get(address))) {
+                    removed.add(printers.remove(address));
+                }
+            }
+            for (Map.Entry<String, BluetoothDevice> b : bonded.entrySet()) {
+                if (printers.containsKey(b.getKey())) continue;
+                String name = names.get(b.getKey());
+                PrinterConnection c = new PrinterConnection(b.getValue(), serviceUuid, sessionPreamble,
+                    PrinterProfile.forDeviceName(name), metrics);
+                c.setIdleTimeoutMs(idleTimeoutMs);
+                printers.put(b.getKey(), new Entry(b.getValue(), name, c));
+            }
+            count = printers.size();
+        }
+        for (Entry e : removed) e.connection.shutdown();
+        if (listener != null) listener.onPrintersChanged(count);
+    }
+
+    synchronized int size() {
+        return printers.size();
+    }
+
+    // Picks a printer for the next job, skipping addresses in exclude. Returns null when none is left.
+    // The caller must release() the entry when the job ends.
+    Entry acquire(Collection<String> exclude) {
+        long now = System.currentTimeMillis();
+        Entry chosen = null;
+        synchronized (this) {
+            List<Entry> candidates = new ArrayList<>();
+            for (Entry e : printers.values()) {
+                if (exclude == null || !exclude.contains(e.address)) candidates.add(e);
+            }
+            if (candidates.isEmpty()) return null;
+
+            String pinned = pinnedAddress;
+            if (pinned != null) {
+                for (Entry e : candidates) {
+                    if (e.address.equals(pinned) && e.isOnline(now)) chosen = e;
+                }
+            }
+
+            if (chosen == null) {
+                List<Entry> online = new ArrayList<>();
+                for (Entry e : candidates) {
+                    if (e.isOnline(now)) online.add(e);
+                }
+                // Everything is cooling down: still try, the printer may be back.
+                List<Entry> pool = online.isEmpty() ? candidates : online;
+
+                if (policy == Policy.ROUND_ROBIN) {
+                    chosen = pool.get(Math.floorMod(roundRobin++, pool.size()));
+                } else {
+                    for (Entry e : pool) {
+                        if (chosen == null || e.busy.get() < chosen.busy.get()) chosen = e;
+                    }
+                }
+            }
+            chosen.busy.incrementAndGet();
+        }
+        return chosen;
+    }
+
+    void release(Entry e, boolean ok) {
+        e.busy.decrementAndGet();
+        if (ok) {
+            e.jobs++;
+            e.offlineUntil = 0;
+        } else {
+            e.failures++;
+            e.offlineUntil = System.currentTimeMillis() + OFFLINE_COOLDOWN_MS;
+        }
+    }
+
+    void setPolicy(Policy p) {
+        policy = p;
+        prefs.edit().putString(PREF_POLICY, p.name()).apply();
+    }
+
+    Policy getPolicy() {
+        return policy;
+    }
+
+    // null or "" unpins.
+    void setPinnedAddress(String address) {
+        String a = (address == null || address.trim().isEmpty()) ? null : address.trim();
+        pinnedAddress = a;
+        prefs.edit().putString(PREF_PINNED, a == null ? "" : a).apply();
+    }
+
+    String getPinnedAddress() {
+        return pinnedAddress;
+    }
+
+    void setIdleTimeoutMs(long ms) {
+        idleTimeoutMs = ms;
+        for (Entry e : snapshot()) e.connection.setIdleTimeoutMs(ms);
+    }
+
+    long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    void closeAll() {
+        for (Entry e : snapshot()) e.connection.close();
+    }
+
+    synchronized List<Entry> snapshot() {
+        return new ArrayList<>(printers.values());
+    }
+
+    JSONObject toJson() {
+        JSONObject o = new JSONObject();
+        try {
+            long now = System.currentTimeMillis();
+            String pinned = pinnedAddress;
+            o.put("policy", policy.name().toLowerCase(Locale.ROOT));
+            o.put("pinned", pinned == null ? JSONObject.NULL : pinned);
+            o.put("idleTimeoutMs", idleTimeoutMs);
+            JSONArray arr = new JSONArray();
+            for (Entry e : snapshot()) arr.put(e.toJson(now, e.address.equals(pinned)));
+            o.put("printers", arr);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    private Entry entryFor(Intent intent) {
+        BluetoothDevice d = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
+        if (d == null) return null;
+        synchronized (this) {
+            return printers.get(d.getAddress());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.titantagpoc;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Decodes QR labels from camera luminance (the Y plane of a YUV_420_888 frame); no RGB conversion.
+// Only the central ROI_FRACTION square is read: it is copied row by row out of the plane (honouring
+// the row stride) into one reused buffer, and handed to the QR-only reader. Labels are aimed at
+// the middle of the frame, so this skips most of the pixels without losing scans.
+// Not thread-safe: one decoder per decode thread. Plain Java so QrDecodeBenchmark (benchmarks module) can time it.
+class QrFrameDecoder {
+
+    static final double ROI_FRACTION = 0.6;
+
+    private final QRCodeReader reader = new QRCodeReader();
+    private final Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+    private byte[] roi = new byte[0];
+
+    private long frames;
+    private long decoded;
+    private long lastDecodeNanos;
+
+    QrFrameDecoder() {
+        hints.put(DecodeHintType.CHARACTER_SET, "UTF-8");
+    }
+
+    // yPlane is read from position 0; rowStride >= width (pixel stride of the Y plane is always 1).
+    // Returns the QR text, or null if there is no readable code in the ROI.
+    String decode(ByteBuffer yPlane, int rowStride, int width, int height) {
+        long t0 = System.nanoTime();
+        frames++;
+        int side = (int) (Math.min(width, height) * ROI_FRACTION);
+        int left = (width - side) / 2;
+        int top = (height - side) / 2;
+        if (roi.length < side * side) roi = new byte[side * side];
+        ByteBuffer src = yPlane.duplicate();
+        for (int y = 0; y < side; y++) {
+            src.position((top + y) * rowStride + left);
+            src.get(roi, y * side, side);
+        }
+
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(roi, side, side, 0, 0, side, side, false);
+        try {
+            Result r = reader.decode(new BinaryBitmap(new HybridBinarizer(source)), hints);
+            decoded++;
+            return r.getText();
+        } catch (NotFoundException | ChecksumException | FormatException e) {
+            return null;
+        } finally {
+            reader.reset();
+            lastDecodeNanos = System.nanoTime() - t0;
+        }
+    }
+
+    String decode(byte[] yPlane, int rowStride, int width, int height) {
+        return decode(ByteBuffer.wrap(yPlane), rowStride, width, height);
+    }
+
+    long lastDecodeNanos() {
+        return lastDecodeNanos;
+    }
+
+    long frames() {
+        return frames;
+    }
+
+    long decoded() {
+        return decoded;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.titantagpoc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Two-tier cache for rendered QR images (PNG) and label rasters (ESC/POS bytes).
+// Tier 1 is an in-memory LRU bounded by total bytes; tier 2 is a directory in the app cache,
+// bounded by total bytes and evicted least-recently-used by file modification time.
+// Cached arrays are shared: callers must not modify them.
+class QrImageCache {
+
+    enum Kind {
+        PNG("png"),
+        RASTER("bin");
+
+        final String extension;
+
+        Kind(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File dir;
+    private final long memoryBudgetBytes;
+    private final long diskBudgetBytes;
+
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    // Disk index: file name -> size, in access order. Built lazily from the directory listing.
+    private LinkedHashMap<String, Long> disk;
+    private long diskBytes;
+
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    private long memoryEvictions;
+    private long diskEvictions;
+
+    QrImageCache(File dir, long memoryBudgetBytes, long diskBudgetBytes) {
+        this.dir = dir;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.diskBudgetBytes = diskBudgetBytes;
+    }
+
+    // size describes the rendered geometry (e.g. "256" for a PNG, "360x240q160" for a label raster).
+    static String key(Kind kind, String findId, String size, String ecc) {
+        return kind.name() + "|" + findId + "|" + size + "|" + ecc;
+    }
+
+    synchronized byte[] get(String key) {
+        byte[] data = memory.get(key);
+        if (data != null) {
+            memoryHits++;
+            return data;
+        }
+
+        data = readDisk(key);
+        if (data != null) {
+            diskHits++;
+            putMemory(key, data);
+            return data;
+        }
+
+        misses++;
+        return null;
+    }
+
+    synchronized void put(String key, byte[] data) {
+        if (data == null) return;
+        putMemory(key, data);
+        writeDisk(key, data);
+    }
+
+    synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (!f.delete()) f.deleteOnExit();
+            }
+        }
+        disk = new LinkedHashMap<>(64, 0.75f, true);
+        diskBytes = 0;
+    }
+
+    synchronized Stats stats() {
+        Stats s = new Stats();
+        s.memoryHits = memoryHits;
+        s.diskHits = diskHits;
+        s.misses = misses;
+        s.memoryEntries = memory.size();
+        s.memoryBytes = memoryBytes;
+        s.memoryBudgetBytes = memoryBudgetBytes;
+        s.memoryEvictions = memoryEvictions;
+        ensureDiskIndex();
+        s.diskEntries = disk.size();
+        s.diskBytes = diskBytes;
+        s.diskBudgetBytes = diskBudgetBytes;
+        s.diskEvictions = diskEvictions;
+        return s;
+    }
+
+    static final class Stats {
+        long memoryHits;
+        long diskHits;
+        long misses;
+        int memoryEntries;
+        long memoryBytes;
+        long memoryBudgetBytes;
+        long memoryEvictions;
+        int diskEntries;
+        long diskBytes;
+        long diskBudgetBytes;
+        long diskEvictions;
+    }
+
+    private void putMemory(String key, byte[] data) {
+        if (data.length > memoryBudgetBytes) return;
+        byte[] old = memory.put(key, data);
+        if (old != null) memoryBytes -= old.length;
+        memoryBytes += data.length;
+
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudgetBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            memoryBytes -= eldest.getValue().length;
+            it.remove();
+            memoryEvictions++;
+        }
+    }
+
+    private byte[] readDisk(String key) {
+        ensureDiskIndex();
+        String name = fileName(key);
+        Long size = disk.get(name);
+        if (size == null) return null;
+
+        File f = new File(dir, name);
+        byte[] data = new byte[size.intValue()];
+        try (InputStream in = new FileInputStream(f)) {
+            int off = 0;
+            while (off < data.length) {
+                int n = in.read(data, off, data.length - off);
+                if (n < 0) throw new IOException("Truncated cache file " + name);
+                off += n;
+            }
+        } catch (IOException e) {
+            disk.remove(name);
+            diskBytes -= size;
+            if (!f.delete()) f.deleteOnExit();
+            return null;
+        }
+        // Keep LRU order across restarts.
+        f.setLastModified(System.currentTimeMillis());
+        return data;
+    }
+
+    private void writeDisk(String key, byte[] data) {
+        if (data.length > diskBudgetBytes) return;
+        ensureDiskIndex();
+        if (!dir.isDirectory() && !dir.mkdirs()) return;
+
+        String name = fileName(key);
+        File tmp = new File(dir, name + TEMP_SUFFIX);
+        File target = new File(dir, name);
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(data);
+        } catch (IOException e) {
+            if (!tmp.delete()) tmp.deleteOnExit();
+            return;
+        }
+        if (!tmp.renameTo(target)) {
+            if (!tmp.delete()) tmp.deleteOnExit();
+            return;
+        }
+
+        Long old = disk.put(name, (long) data.length);
+        if (old != null) diskBytes -= old;
+        diskBytes += data.length;
+        trimDisk();
+    }
+
+    private void trimDisk() {
+        Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+        while (diskBytes > diskBudgetBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            File f = new File(dir, eldest.getKey());
+            if (!f.delete() && f.exists()) continue;
+            diskBytes -= eldest.getValue();
+            it.remove();
+            diskEvictions++;
+        }
+    }
+
+    private void ensureDiskIndex() {
+        if (disk != null) return;
+        disk = new LinkedHashMap<>(64, 0.75f, true);
+        diskBytes = 0;
+
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        List<File> entries = new ArrayList<>();
+        for (File f : files) {
+            if (f.getName().endsWith(TEMP_SUFFIX)) {
+                if (!f.delete()) f.deleteOnExit();
+                continue;
+            }
+            if (f.isFile()) entries.add(f);
+        }
+        entries.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : entries) {
+            disk.put(f.getName(), f.length());
+            diskBytes += f.length();
+        }
+        trimDisk();
+    }
+
+    // Find IDs are user input; hash the key so any value maps to a safe, fixed-length file name.
+    private static String fileName(String key) {
+        String ext = key.startsWith(Kind.PNG.name() + "|") ? Kind.PNG.extension : Kind.RASTER.extension;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2 + 4);
+            for (byte b : digest) sb.append(String.format(Locale.ROOT, "%02x", b));
+            return sb.append('.').append(ext).toString();
+        } catch (Exception e) {
+            return Integer.toHexString(key.hashCode()) + "." + ext;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.titantagpoc;
+
+import android.annotation.SuppressLint;
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.ImageFormat;
+import android.graphics.SurfaceTexture;
+import android.graphics.drawable.GradientDrawable;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.util.Size;
+import android.view.Gravity;
+import android.view.Surface;
+import android.view.TextureView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.FrameLayout;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.json.JSONObject;
+
+// Full-screen native QR scanner: a Camera2 preview plus a YUV ImageReader whose Y plane goes
+// straight to QrFrameDecoder. Frames that arrive while a decode is running are closed unread, so
+// the decoder always works on a recent frame and the camera never stalls on it.
+// Threads: UI for the overlay, "qr-camera" for camera callbacks and frame delivery,
+// "qr-decode" for decoding. start()/stop() are called on the UI thread; one scan per instance.
+class QrScanner {
+
+    interface Listener {
+        // Exactly one of these per start(), on the UI thread.
+        void onResult(String text, JSONObject stats);
+
+        void onCancelled();
+
+        void onError(String error);
+    }
+
+    private static final String TAG = "QrScanner";
+    private static final int TARGET_WIDTH = 1280;
+    private static final int TARGET_HEIGHT = 720;
+
+    private final Activity activity;
+    private final Metrics metrics;
+    private final Listener listener;
+    private final QrFrameDecoder decoder = new QrFrameDecoder();
+    private final AtomicBoolean decoding = new AtomicBoolean();
+
+    // UI thread.
+    private FrameLayout overlay;
+    private TextureView preview;
+    private HandlerThread cameraThread;
+    private HandlerThread decodeThread;
+    private Handler cameraHandler;
+    private Handler decodeHandler;
+    // Read on the camera thread so a late open is closed again.
+    private volatile boolean finished;
+
+    // Camera thread.
+    private CameraDevice camera;
+    private CameraCaptureSession session;
+    private ImageReader reader;
+
+    private volatile long startedAt;
+    private volatile long droppedFrames;
+
+    QrScanner(Activity activity, Metrics metrics, Listener listener) {
+        this.activity = activity;
+        this.metrics = metrics;
+        this.listener = listener;
+    }
+
+    boolean isRunning() {
+        return overlay != null;
+    }
+
+    void start() {
+        if (cameraThread != null) return;
+        startedAt = System.currentTimeMillis();
+        cameraThread = new HandlerThread("qr-camera");
+        cameraThread.start();
+        cameraHandler = new Handler(cameraThread.getLooper());
+        decodeThread = new HandlerThread("qr-decode");
+        decodeThread.start();
+        decodeHandler = new Handler(decodeThread.getLooper());
+        buildOverlay();
+    }
+
+    // Closes the camera and the overlay; reports a cancel if nothing was scanned yet.
+    void stop() {
+        finish(null, null);
+    }
+
+    private void buildOverlay() {
+        overlay = new FrameLayout(activity);
+        overlay.setBackgroundColor(Color.BLACK);
+        // Swallow touches meant for the WebView underneath.
+        overlay.setClickable(true);
+
+        preview = new TextureView(activity);
+        preview.setSurfaceTextureListener(new TextureView.SurfaceTextureListener() {
+            @Override
+            public void onSurfaceTextureAvailable(SurfaceTexture st, int w, int h) {
+                cameraHandler.post(() -> openCamera(st));
+            }
+
+            @Override
+            public void onSurfaceTextureSizeChanged(SurfaceTexture st, int w, int h) {}
+
+            @Override
+            public boolean onSurfaceTextureDestroyed(SurfaceTexture st) {
+                return true;
+            }
+
+            @Override
+            public void onSurfaceTextureUpdated(SurfaceTexture st) {}
+        });
+        overlay.addView(preview, new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT, Gravity.CENTER));
+
+        // Marks the region the decoder reads (QrFrameDecoder.ROI_FRACTION of the short side).
+        View frame = new View(activity);
+        GradientDrawable border = new GradientDrawable();
+        border.setStroke(dp(3), Color.WHITE);
+        border.setCornerRadius(dp(12));
+        frame.setBackground(border);
+        int side = (int) (Math.min(screenWidth(), screenHeight()) * QrFrameDecoder.ROI_FRACTION);
+        overlay.addView(frame, new FrameLayout.LayoutParams(side, side, Gravity.CENTER));
+
+        Button cancel = new Button(activity);
+        cancel.setText("ביטול");
+        cancel.setOnClickListener(v -> stop());
+        FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL);
+        lp.bottomMargin = dp(32);
+        overlay.addView(cancel, lp);
+
+        activity.addContentView(overlay, new ViewGroup.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+    }
+
+    @SuppressLint("MissingPermission") // MainActivity checks CAMERA before start().
+    private void openCamera(SurfaceTexture texture) {
+        if (finished) return;
+        CameraManager cm = (CameraManager) activity.getSystemService(Context.CAMERA_SERVICE);
+        try {
+            String id = backCameraId(cm);
+            if (id == null) {
+                fail("no_camera");
+                return;
+            }
+            StreamConfigurationMap map = cm.getCameraCharacteristics(id)
+                .get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+            Size size = pickSize(map.getOutputSizes(ImageFormat.YUV_420_888));
+            texture.setDefaultBufferSize(size.getWidth(), size.getHeight());
+            activity.runOnUiThread(() -> fitPreview(size));
+
+            // Three buffers: one being decoded, one being dropped, one for the camera to fill.
+            reader = ImageReader.newInstance(size.getWidth(), size.getHeight(), ImageFormat.YUV_420_888, 3);
+            reader.setOnImageAvailableListener(this::onFrame, cameraHandler);
+            Surface previewSurface = new Surface(texture);
+
+            cm.openCamera(id, new CameraDevice.StateCallback() {
+                @Override
+                public void onOpened(CameraDevice device) {
+                    if (finished) {
+                        device.close();
+                        return;
+                    }
+                    camera = device;
+                    startSession(previewSurface);
+                }
+
+                @Override
+                public void onDisconnected(CameraDevice device) {
+                    device.close();
+                    camera = null;
+                    fail("camera_disconnected");
+                }
+
+                @Override
+                public void onError(CameraDevice device, int error) {
+                    device.close();
+                    camera = null;
+                    fail("camera_error_" + error);
+                }
+            }, cameraHandler);
+        } catch (CameraAccessException | RuntimeException e) {
+            Log.e(TAG, "Cannot open camera", e);
+            fail("camera_open_failed");
+        }
+    }
+
+    private void startSession(Surface previewSurface) {
+        try {
+            camera.createCaptureSession(Arrays.asList(previewSurface, reader.getSurface()),
+                new CameraCaptureSession.StateCallback() {
+                    @Override
+                    public void onConfigured(CameraCaptureSession s) {
+                        if (camera == null) return;
+                        session = s;
+                        try {
+                            CaptureRequest.Builder b = camera.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+                            b.addTarget(previewSurface);
+                            b.addTarget(reader.getSurface());
+                            b.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+                            s.setRepeatingRequest(b.build(), null, cameraHandler);
+                        } catch (CameraAccessException | RuntimeException e) {
+                            Log.e(TAG, "Cannot start preview", e);
+                            fail("camera_preview_failed");
+                        }
+                    }
+
+                    @Override
+                    public void onConfigureFailed(CameraCaptureSession s) {
+                        fail("camera_config_failed");
+                    }
+                }, cameraHandler);
+        } catch (CameraAccessException | RuntimeException e) {
+            Log.e(TAG, "Cannot create capture session", e);
+            fail("camera_config_failed");
+        }
+    }
+
+    // Camera thread. Hands the newest frame to the decoder unless it is still busy.
+    private void onFrame(ImageReader r) {
+        Image image;
+        try {
+            image = r.acquireLatestImage();
+        } catch (IllegalStateException e) {
+            return;
+        }
+        if (image == null) return;
+        if (!decoding.compareAndSet(false, true)) {
+            droppedFrames++;
+            image.close();
+            return;
+        }
+        decodeHandler.post(() -> decodeFrame(image));
+    }
+
+    // Decode thread.
+    private void decodeFrame(Image image) {
+        String text;
+        try {
+            Image.Plane y = image.getPlanes()[0];
+            text = decoder.decode(y.getBuffer(), y.getRowStride(), image.getWidth(), image.getHeight());
+            metrics.recordNanos(Metrics.Stage.QR_DECODE, decoder.lastDecodeNanos(), 0);
+        } catch (IllegalStateException e) {
+            // The reader was closed under us by stop().
+            text = null;
+        } finally {
+            image.close();
+            decoding.set(false);
+        }
+        if (text == null || text.trim().isEmpty()) return;
+        JSONObject stats = stats();
+        String found = text.trim();
+        activity.runOnUiThread(() -> finish(found, stats));
+    }
+
+    private JSONObject stats() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("elapsedMs", System.currentTimeMillis() - startedAt);
+            o.put("frames", decoder.frames());
+            o.put("droppedFrames", droppedFrames);
+            o.put("decodeMs", decoder.lastDecodeNanos() / 1_000_000.0);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    private void fail(String error) {
+        activity.runOnUiThread(() -> finish(null, null, error));
+    }
+
+    private void finish(String text, JSONObject stats) {
+        finish(text, stats, null);
+    }
+
+    // UI thread. Tears everything down and reports once.
+    private void finish(String text, JSONObject stats, String error) {
+        if (finished || overlay == null) return;
+        finished = true;
+        ViewGroup parent = (ViewGroup) overlay.getParent();
+        if (parent != null) parent.removeView(overlay);
+        overlay = null;
+        preview = null;
+
+        Handler dh = decodeHandler;
+        HandlerThread ct = cameraThread;
+        HandlerThread dt = decodeThread;
+        cameraHandler.post(() -> {
+            try {
+                if (session != null) session.close();
+                if (camera != null) camera.close();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Camera close failed", e);
+            }
+            session = null;
+            camera = null;
+            // Let an in-flight decode close its frame before the reader goes.
+            dh.post(() -> {
+                if (reader != null) reader.close();
+                reader = null;
+                dt.quitSafely();
+            });
+            ct.quitSafely();
+        });
+
+        if (text != null) {
+            listener.onResult(text, stats);
+        } else if (error != null) {
+            listener.onError(error);
+        } else {
+            listener.onCancelled();
+        }
+    }
+
+    private static String backCameraId(CameraManager cm) throws CameraAccessException {
+        String[] ids = cm.getCameraIdList();
+        for (String id : ids) {
+            Integer facing = cm.getCameraCharacteristics(id).get(CameraCharacteristics.LENS_FACING);
+            if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) return id;
+        }
+        return (ids.length > 0) ? ids[0] : null;
+    }
+
+    // Largest size not above 1280x720; enough pixels for a label at arm's length, cheap to read.
+    private static Size pickSize(Size[] sizes) {
+        Size best = null;
+        for (Size s : sizes) {
+            if (s.getWidth() > TARGET_WIDTH || s.getHeight() > TARGET_HEIGHT) continue;
+            if (best == null || s.getWidth() * s.getHeight() > best.getWidth() * best.getHeight()) best = s;
+        }
+        if (best != null) return best;
+        best = sizes[0];
+        for (Size s : sizes) {
+            if (s.getWidth() * s.getHeight() < best.getWidth() * best.getHeight()) best = s;
+        }
+        return best;
+    }
+
+    // The sensor is landscape; in portrait the preview is shown rotated, so swap the aspect.
+    private void fitPreview(Size size) {
+        if (preview == null) return;
+        int w = screenWidth();
+        int h = screenHeight();
+        boolean portrait = h > w;
+        float aspect = portrait
+            ? (float) size.getWidth() / size.getHeight()
+            : (float) size.getHeight() / size.getWidth();
+        FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) preview.getLayoutParams();
+        lp.width = w;
+        lp.height = Math.round(w * aspect);
+        preview.setLayoutParams(lp);
+    }
+
+    private int screenWidth() {
+        return activity.getResources().getDisplayMetrics().widthPixels;
+    }
+
+    private int screenHeight() {
+        return activity.getResources().getDisplayMetrics().heightPixels;
+    }
+
+    private int dp(int v) {
+        return Math.round(v * activity.getResources().getDisplayMetrics().density);
+    }
+}
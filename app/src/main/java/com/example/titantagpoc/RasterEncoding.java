@@ -0,0 +1,164 @@
+package com.example.titantagpoc;
+
+import java.util.Arrays;
+
+// Wire encodings for a label job produced by EscPosRasterEncoder
+// ("GS v 0" header + 1-bpp image + trailer commands).
+//   UNCOMPRESSED    - the image as one or more full-width GS v 0 bands.
+//   SKIP_BLANK_ROWS - runs of white rows become ESC J feeds instead of zero bytes.
+//   CROP_BANDS      - like SKIP_BLANK_ROWS, and each band is cropped to its inked byte columns,
+//                     positioned with GS L (left margin). Needs firmware that honours GS L.
+// All encodings move the paper by the same distance, so label alignment is unchanged.
+enum RasterEncoding {
+    UNCOMPRESSED(false, false),
+    SKIP_BLANK_ROWS(true, false),
+    CROP_BANDS(true, true);
+
+    private static final int HEADER_LENGTH = 8;
+    private static final int MAX_FEED = 255;
+
+    private final boolean skipBlankRows;
+    private final boolean cropColumns;
+
+    RasterEncoding(boolean skipBlankRows, boolean cropColumns) {
+        this.skipBlankRows = skipBlankRows;
+        this.cropColumns = cropColumns;
+    }
+
+    // maxBandRows caps the height of each GS v 0 command (some firmwares have a small band buffer).
+    byte[] encode(byte[] job, int maxBandRows) {
+        if (job.length < HEADER_LENGTH || job[0] != 0x1D || job[1] != 0x76 || job[2] != 0x30) {
+            throw new IllegalArgumentException("Not a GS v 0 raster job");
+        }
+        int bytesPerRow = (job[4] & 0xFF) | ((job[5] & 0xFF) << 8);
+        int rows = (job[6] & 0xFF) | ((job[7] & 0xFF) << 8);
+        int trailerStart = HEADER_LENGTH + bytesPerRow * rows;
+        if (trailerStart > job.length) throw new IllegalArgumentException("Truncated raster job");
+        int bandLimit = (maxBandRows <= 0) ? rows : maxBandRows;
+
+        if (this == UNCOMPRESSED && bandLimit >= rows) return job;
+
+        Output out = new Output(job.length);
+        int pendingFeed = 0;
+        int y = 0;
+        while (y < rows) {
+            if (skipBlankRows && isBlankRow(job, bytesPerRow, y)) {
+                pendingFeed++;
+                y++;
+                continue;
+            }
+            writeFeed(out, pendingFeed);
+            pendingFeed = 0;
+
+            int start = y;
+            while (y < rows && y - start < bandLimit && !(skipBlankRows && isBlankRow(job, bytesPerRow, y))) y++;
+            writeBand(out, job, bytesPerRow, start, y);
+        }
+        writeFeed(out, pendingFeed);
+
+        out.write(job, trailerStart, job.length - trailerStart);
+        return out.toByteArray();
+    }
+
+    private void writeBand(Output out, byte[] job, int bytesPerRow, int startRow, int endRow) {
+        int first = 0;
+        int last = bytesPerRow - 1;
+        if (cropColumns) {
+            first = bytesPerRow;
+            last = -1;
+            for (int y = startRow; y < endRow; y++) {
+                int row = HEADER_LENGTH + y * bytesPerRow;
+                for (int x = 0; x < first; x++) {
+                    if (job[row + x] != 0) {
+                        first = x;
+                        break;
+                    }
+                }
+                for (int x = bytesPerRow - 1; x > last; x--) {
+                    if (job[row + x] != 0) {
+                        last = x;
+                        break;
+                    }
+                }
+            }
+            if (last < first) {
+                first = 0;
+                last = bytesPerRow - 1;
+            }
+        }
+
+        int width = last - first + 1;
+        int height = endRow - startRow;
+        boolean shifted = first > 0;
+        if (shifted) writeLeftMargin(out, first * 8);
+
+        out.write(0x1D);
+        out.write(0x76);
+        out.write(0x30);
+        out.write(0x00);
+        out.write(width & 0xFF);
+        out.write((width >> 8) & 0xFF);
+        out.write(height & 0xFF);
+        out.write((height >> 8) & 0xFF);
+        for (int y = startRow; y < endRow; y++) {
+            out.write(job, HEADER_LENGTH + y * bytesPerRow + first, width);
+        }
+
+        if (shifted) writeLeftMargin(out, 0);
+    }
+
+    // GS L nL nH
+    private static void writeLeftMargin(Output out, int dots) {
+        out.write(0x1D);
+        out.write(0x4C);
+        out.write(dots & 0xFF);
+        out.write((dots >> 8) & 0xFF);
+    }
+
+    // ESC J n: print and feed n dots
+    private static void writeFeed(Output out, int dots) {
+        while (dots > 0) {
+            int n = Math.min(MAX_FEED, dots);
+            out.write(0x1B);
+            out.write(0x4A);
+            out.write(n);
+            dots -= n;
+        }
+    }
+
+    private static boolean isBlankRow(byte[] job, int bytesPerRow, int y) {
+        int row = HEADER_LENGTH + y * bytesPerRow;
+        for (int x = 0; x < bytesPerRow; x++) {
+            if (job[row + x] != 0) return false;
+        }
+        return true;
+    }
+
+    private static final class Output {
+        private byte[] buf;
+        private int len;
+
+        Output(int capacity) {
+            buf = new byte[Math.max(16, capacity)];
+        }
+
+        void write(int b) {
+            ensure(1);
+            buf[len++] = (byte) b;
+        }
+
+        void write(byte[] src, int off, int n) {
+            ensure(n);
+            System.arraycopy(src, off, buf, len, n);
+            len += n;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, len);
+        }
+
+        private void ensure(int n) {
+            if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        }
+    }
+}
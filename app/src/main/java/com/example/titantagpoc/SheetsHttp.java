@@ -0,0 +1,101 @@
+package com.example.titantagpoc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+// Calls to the Apps Script web app (google-apps-script.js): form-encoded parameters,
+// {status, data} JSON answers. Throws IOException for transport, HTTP and API errors.
+final class SheetsHttp {
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    private SheetsHttp() {
+    }
+
+    // Returns the "data" member of a successful answer (JSONObject, JSONArray, String, ...).
+    static Object get(String endpoint, Map<String, String> params) throws IOException {
+        String sep = endpoint.contains("?") ? "&" : "?";
+        return call(endpoint + sep + form(params), null);
+    }
+
+    static Object post(String endpoint, Map<String, String> params) throws IOException {
+        return call(endpoint, form(params).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String form(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (Map.Entry<String, String> p : params.entrySet()) {
+                if (p.getValue() == null) continue;
+                if (sb.length() > 0) sb.append('&');
+                sb.append(URLEncoder.encode(p.getKey(), "UTF-8")).append('=').append(URLEncoder.encode(p.getValue(), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+        return sb.toString();
+    }
+
+    private static Object call(String url, byte[] postBody) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            // Apps Script answers with a redirect to the result.
+            conn.setInstanceFollowRedirects(true);
+            if (postBody != null) {
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded;charset=UTF-8");
+                conn.setFixedLengthStreamingMode(postBody.length);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(postBody);
+                }
+            }
+
+            int code = conn.getResponseCode();
+            InputStream in = (code >= 400) ? conn.getErrorStream() : conn.getInputStream();
+            String text = (in == null) ? "" : new String(readAll(in), StandardCharsets.UTF_8);
+            if (code < 200 || code >= 300) {
+                throw new IOException("Sheets API HTTP " + code + ": " + abbreviate(text));
+            }
+            JSONObject json;
+            try {
+                json = new JSONObject(text);
+            } catch (Exception e) {
+                throw new IOException("Sheets API returned non-JSON: " + abbreviate(text));
+            }
+            if (!"success".equals(json.optString("status"))) {
+                throw new IOException(json.optString("data", "Sheets API error"));
+            }
+            return json.opt("data");
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static String abbreviate(String s) {
+        return (s.length() > 200) ? s.substring(0, 200) : s;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream is = in) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) != -1) baos.write(buf, 0, n);
+            return baos.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.titantagpoc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Durable queue of pending Google Sheets row writes (upserts keyed by one column).
+// Repeated edits to the same row are merged into one entry while it waits; an entry that is
+// already being sent is left alone and a newer edit queues behind it.
+// Every change rewrites a small JSON snapshot (tmp + rename), so a crash loses nothing acknowledged.
+class SheetsOutbox {
+
+    static final class Entry {
+        final long id;
+        final String sheet;
+        final String keyColumn;
+        final String key;
+        final JSONObject row;
+        final long enqueuedAt;
+        long updatedAt;
+        int attempts;
+        String lastError;
+
+        Entry(long id, String sheet, String keyColumn, String key, JSONObject row, long enqueuedAt) {
+            this.id = id;
+            this.sheet = sheet;
+            this.keyColumn = keyColumn;
+            this.key = key;
+            this.row = row;
+            this.enqueuedAt = enqueuedAt;
+            this.updatedAt = enqueuedAt;
+        }
+
+        JSONObject toJson() throws Exception {
+            JSONObject o = new JSONObject();
+            o.put("id", id);
+            o.put("sheet", sheet);
+            o.put("keyColumn", keyColumn);
+            o.put("key", key);
+            o.put("row", row);
+            o.put("enqueuedAt", enqueuedAt);
+            o.put("updatedAt", updatedAt);
+            o.put("attempts", attempts);
+            if (lastError != null) o.put("lastError", lastError);
+            return o;
+        }
+
+        static Entry fromJson(JSONObject o) throws Exception {
+            Entry e = new Entry(o.getLong("id"), o.getString("sheet"), o.getString("keyColumn"),
+                o.getString("key"), o.getJSONObject("row"), o.optLong("enqueuedAt"));
+            e.updatedAt = o.optLong("updatedAt", e.enqueuedAt);
+            e.attempts = o.optInt("attempts");
+            e.lastError = o.has("lastError") ? o.optString("lastError") : null;
+            return e;
+        }
+    }
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File file;
+    // In enqueue order.
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+    private final Set<Long> inFlight = new HashSet<>();
+    private long nextId = 1;
+    private long coalesced;
+
+    SheetsOutbox(File file) throws IOException {
+        this.file = file;
+        load();
+    }
+
+    // Queues an upsert of row into sheet, matched on keyColumn == row[keyColumn].
+    // Returns false if the row has no key.
+    synchronized boolean enqueue(String sheet, String keyColumn, JSONObject row) throws Exception {
+        String key = row.optString(keyColumn, "").trim();
+        if (sheet == null || sheet.isEmpty() || key.isEmpty()) return false;
+        long now = System.currentTimeMillis();
+
+        for (Entry e : entries.values()) {
+            if (inFlight.contains(e.id)) continue;
+            if (e.sheet.equals(sheet) && e.keyColumn.equals(keyColumn) && e.key.equals(key)) {
+                Iterator<String> it = row.keys();
+                while (it.hasNext()) {
+                    String k = it.next();
+                    e.row.put(k, row.opt(k));
+                }
+                e.updatedAt = now;
+                coalesced++;
+                save();
+                return true;
+            }
+        }
+
+        Entry e = new Entry(nextId++, sheet, keyColumn, key, new JSONObject(row.toString()), now);
+        entries.put(e.id, e);
+        save();
+        return true;
+    }
+
+    // Oldest waiting entries that share the first one's sheet and key column (one request's worth),
+    // marked as in flight. Empty when nothing is waiting.
+    synchronized List<Entry> takeBatch(int max) {
+        List<Entry> batch = new ArrayList<>();
+        Entry first = null;
+        for (Entry e : entries.values()) {
+            if (batch.size() >= max) break;
+            if (inFlight.contains(e.id)) continue;
+            if (first == null) {
+                first = e;
+            } else if (!e.sheet.equals(first.sheet) || !e.keyColumn.equals(first.keyColumn)) {
+                continue;
+            }
+            // Two entries for one row can't share a request; the newer one waits for the next batch.
+            boolean dup = false;
+            for (Entry b : batch) {
+                if (b.key.equals(e.key)) dup = true;
+            }
+            if (dup) continue;
+            batch.add(e);
+        }
+        for (Entry e : batch) inFlight.add(e.id);
+        return batch;
+    }
+
+    synchronized void complete(List<Entry> batch) throws IOException {
+        for (Entry e : batch) {
+            inFlight.remove(e.id);
+            entries.remove(e.id);
+        }
+        save();
+    }
+
+    synchronized void fail(List<Entry> batch, String error) throws IOException {
+        for (Entry e : batch) {
+            inFlight.remove(e.id);
+            e.attempts++;
+            e.lastError = error;
+        }
+        save();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized int waiting() {
+        return entries.size() - inFlight.size();
+    }
+
+    synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    synchronized long oldestEnqueuedAt() {
+        for (Entry e : entries.values()) return e.enqueuedAt;
+        return 0;
+    }
+
+    synchronized List<Entry> snapshot() {
+        return new ArrayList<>(entries.values());
+    }
+
+    synchronized void clear() throws IOException {
+        entries.clear();
+        inFlight.clear();
+        save();
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) return;
+        byte[] data;
+        try (InputStream in = new FileInputStream(file)) {
+            data = readAll(in);
+        }
+        try {
+            JSONObject o = new JSONObject(new String(data, StandardCharsets.UTF_8));
+            nextId = o.optLong("nextId", 1);
+            JSONArray arr = o.optJSONArray("entries");
+            for (int i = 0; arr != null && i < arr.length(); i++) {
+                Entry e = Entry.fromJson(arr.getJSONObject(i));
+                entries.put(e.id, e);
+                nextId = Math.max(nextId, e.id + 1);
+            }
+        } catch (Exception e) {
+            throw new IOException("Corrupt outbox file " + file, e);
+        }
+    }
+
+    private void save() throws IOException {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("nextId", nextId);
+            JSONArray arr = new JSONArray();
+            for (Entry e : entries.values()) arr.put(e.toJson());
+            o.put("entries", arr);
+        } catch (Exception e) {
+            throw new IOException("Failed to serialize outbox", e);
+        }
+
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(o.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) baos.write(buf, 0, n);
+        return baos.toByteArray();
+    }
+}
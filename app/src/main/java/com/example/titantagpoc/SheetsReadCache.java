@@ -0,0 +1,269 @@
+package com.example.titantagpoc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Local copy of each Google Sheet for reads. A refresh asks the Apps Script "readSince" action for
+// rows stamped after the stored cursor and merges them by key; the "keys" list in the answer
+// (every key still in the sheet, in sheet order) drops deleted rows and fixes the order.
+// Sheets without a key column come back whole every time.
+// One JSON file per sheet (tmp + rename), so cached rows are served instantly after a restart.
+class SheetsReadCache {
+
+    interface Callback {
+        // result: {sheet, rows, cursor, fetchedAt, full, changed, removed}; error is null on success.
+        void onRefreshed(String sheet, JSONObject result, String error);
+    }
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Answer of a script deployed before readSince existed.
+    private static final String UNKNOWN_ACTION = "פעולה לא חוקית";
+
+    private static final class SheetCopy {
+        long cursor;
+        long fetchedAt;
+        String keyHeader;
+        // Key -> row, in sheet order. Rows of a sheet without a key column use their position.
+        LinkedHashMap<String, JSONObject> rows = new LinkedHashMap<>();
+    }
+
+    private final File dir;
+    private final Map<String, SheetCopy> sheets = new HashMap<>();
+    // Sheet -> callbacks waiting on the refresh in progress.
+    private final Map<String, List<Callback>> inFlight = new HashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sheets-read");
+        t.setDaemon(true);
+        return t;
+    });
+
+    SheetsReadCache(File dir) {
+        this.dir = dir;
+    }
+
+    // Cached rows, or null if the sheet was never fetched.
+    synchronized JSONObject cached(String sheet) {
+        SheetCopy copy = load(sheet);
+        return (copy == null) ? null : result(sheet, copy, false, 0, 0);
+    }
+
+    // Refreshes in the background. Calls made while a refresh of the same sheet runs share its result.
+    void refreshAsync(String endpoint, String sheet, Callback cb) {
+        synchronized (this) {
+            List<Callback> waiting = inFlight.get(sheet);
+            if (waiting != null) {
+                waiting.add(cb);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(cb);
+            inFlight.put(sheet, waiting);
+        }
+        executor.execute(() -> {
+            JSONObject result = null;
+            String error = null;
+            try {
+                result = refresh(endpoint, sheet);
+            } catch (Exception e) {
+                error = (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage();
+            }
+            List<Callback> done;
+            synchronized (this) {
+                done = inFlight.remove(sheet);
+            }
+            for (Callback c : done) {
+                if (c != null) c.onRefreshed(sheet, result, error);
+            }
+        });
+    }
+
+    // Blocking refresh; the network call runs outside the lock.
+    JSONObject refresh(String endpoint, String sheet) throws Exception {
+        JSONObject result = refresh(endpoint, sheet, false);
+        return (result != null) ? result : refresh(endpoint, sheet, true);
+    }
+
+    // Returns null, leaving the copy as it was, when a delta lists a key that neither the copy nor the
+    // delta has a row for: that row was stamped before the cursor but written after it moved (writeBatch
+    // stamps before writing and readSince doesn't lock), so only a read from scratch picks it up.
+    private JSONObject refresh(String endpoint, String sheet, boolean fromScratch) throws Exception {
+        long since;
+        synchronized (this) {
+            SheetCopy copy = load(sheet);
+            since = (copy == null || fromScratch) ? 0 : copy.cursor;
+        }
+
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("action", "readSince");
+        params.put("sheet", sheet);
+        params.put("since", Long.toString(since));
+        JSONObject delta;
+        try {
+            delta = (JSONObject) SheetsHttp.get(endpoint, params);
+        } catch (IOException e) {
+            if (!UNKNOWN_ACTION.equals(e.getMessage())) throw e;
+            delta = fullRead(endpoint, sheet);
+        }
+
+        synchronized (this) {
+            SheetCopy copy = load(sheet);
+            if (copy == null) copy = new SheetCopy();
+            JSONArray rows = delta.optJSONArray("rows");
+            JSONArray keys = delta.optJSONArray("keys");
+            String keyHeader = delta.isNull("key") ? null : delta.optString("key", null);
+            boolean full = delta.optBoolean("full", true) || keyHeader == null || keys == null;
+            int changed = (rows == null) ? 0 : rows.length();
+            int removed = 0;
+
+            if (full) {
+                copy.rows = new LinkedHashMap<>();
+                for (int i = 0; rows != null && i < rows.length(); i++) {
+                    JSONObject row = rows.getJSONObject(i);
+                    String key = (keyHeader == null) ? Integer.toString(i) : row.optString(keyHeader);
+                    copy.rows.put(key, row);
+                }
+            } else {
+                LinkedHashMap<String, JSONObject> merged = new LinkedHashMap<>(copy.rows);
+                for (int i = 0; rows != null && i < rows.length(); i++) {
+                    JSONObject row = rows.getJSONObject(i);
+                    merged.put(row.optString(keyHeader), row);
+                }
+                LinkedHashMap<String, JSONObject> ordered = new LinkedHashMap<>();
+                for (int i = 0; i < keys.length(); i++) {
+                    String key = keys.getString(i);
+                    JSONObject row = merged.get(key);
+                    if (row == null) return null;
+                    ordered.put(key, row);
+                }
+                removed = merged.size() - ordered.size();
+                copy.rows = ordered;
+            }
+            copy.keyHeader = keyHeader;
+            copy.cursor = delta.optLong("cursor", since);
+            copy.fetchedAt = System.currentTimeMillis();
+            sheets.put(sheet, copy);
+            save(sheet, copy);
+            return result(sheet, copy, full, changed, removed);
+        }
+    }
+
+    synchronized void clear() {
+        sheets.clear();
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File f : files) f.delete();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Old-style "read" answer (array of rows) wrapped as a full readSince answer.
+    private static JSONObject fullRead(String endpoint, String sheet) throws Exception {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("action", "read");
+        params.put("sheet", sheet);
+        JSONObject o = new JSONObject();
+        o.put("full", true);
+        o.put("cursor", 0);
+        o.put("rows", SheetsHttp.get(endpoint, params));
+        return o;
+    }
+
+    private static JSONObject result(String sheet, SheetCopy copy, boolean full, int changed, int removed) {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("sheet", sheet);
+            o.put("rows", new JSONArray(copy.rows.values()));
+            o.put("cursor", copy.cursor);
+            o.put("fetchedAt", copy.fetchedAt);
+            o.put("full", full);
+            o.put("changed", changed);
+            o.put("removed", removed);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    private SheetCopy load(String sheet) {
+        SheetCopy copy = sheets.get(sheet);
+        if (copy != null) return copy;
+        File file = fileFor(sheet);
+        if (!file.exists()) return null;
+        try (InputStream in = new FileInputStream(file)) {
+            JSONObject o = new JSONObject(new String(readAll(in), StandardCharsets.UTF_8));
+            copy = new SheetCopy();
+            copy.cursor = o.optLong("cursor");
+            copy.fetchedAt = o.optLong("fetchedAt");
+            copy.keyHeader = o.isNull("key") ? null : o.optString("key", null);
+            JSONArray rows = o.optJSONArray("rows");
+            for (int i = 0; rows != null && i < rows.length(); i++) {
+                JSONObject row = rows.getJSONObject(i);
+                copy.rows.put(copy.keyHeader == null ? Integer.toString(i) : row.optString(copy.keyHeader), row);
+            }
+        } catch (Exception e) {
+            // Unreadable copy: drop it and fetch the sheet again from scratch.
+            file.delete();
+            return null;
+        }
+        sheets.put(sheet, copy);
+        return copy;
+    }
+
+    private void save(String sheet, SheetCopy copy) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("sheet", sheet);
+        o.put("cursor", copy.cursor);
+        o.put("fetchedAt", copy.fetchedAt);
+        o.put("key", copy.keyHeader == null ? JSONObject.NULL : copy.keyHeader);
+        o.put("rows", new JSONArray(copy.rows.values()));
+
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File file = fileFor(sheet);
+        File tmp = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(o.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+
+    // Sheet names are Hebrew and may hold characters that don't belong in file names.
+    private File fileFor(String sheet) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-1").digest(sheet.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 10; i++) sb.append(String.format("%02x", d[i] & 0xff));
+            return new File(dir, sb + ".json");
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) baos.write(buf, 0, n);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.titantagpoc;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Flushes the SheetsOutbox to the Apps Script endpoint ("writeBatch" action) on one background thread.
+// A flush sends batches until the outbox is empty; a failure stops it and schedules a retry with
+// exponential backoff (with jitter). Coming back online or a new write retries right away.
+class SheetsSyncEngine {
+
+    enum State { IDLE, SYNCING, BACKOFF, OFFLINE, NOT_CONFIGURED }
+
+    interface Listener {
+        void onSyncStatus(JSONObject status);
+    }
+
+    static final int DEFAULT_BATCH_SIZE = 25;
+    static final long DEFAULT_BACKOFF_BASE_MS = 5_000;
+    static final long DEFAULT_BACKOFF_MAX_MS = 10 * 60_000;
+
+    private final SheetsOutbox outbox;
+    private final Listener listener;
+    private final int batchSize;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sheets-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile String endpoint;
+    private volatile boolean online = true;
+    private volatile State state = State.IDLE;
+    private volatile String lastError;
+    private volatile long lastSuccessAt;
+    private volatile long nextAttemptAt;
+    private volatile int failures;
+    private volatile long rowsSent;
+    private volatile long requests;
+
+    private ScheduledFuture<?> scheduled;
+
+    SheetsSyncEngine(SheetsOutbox outbox, Listener listener) {
+        this(outbox, listener, DEFAULT_BATCH_SIZE, DEFAULT_BACKOFF_BASE_MS, DEFAULT_BACKOFF_MAX_MS);
+    }
+
+    SheetsSyncEngine(SheetsOutbox outbox, Listener listener, int batchSize, long backoffBaseMs, long backoffMaxMs) {
+        this.outbox = outbox;
+        this.listener = listener;
+        this.batchSize = batchSize;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+    }
+
+    void setEndpoint(String url) {
+        String u = (url == null) ? "" : url.trim();
+        endpoint = u.isEmpty() ? null : u;
+        requestFlush();
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    // Connectivity callback. Going online drops any pending backoff.
+    void setOnline(boolean value) {
+        boolean wasOnline = online;
+        online = value;
+        if (value && !wasOnline) {
+            failures = 0;
+            requestFlush();
+        } else if (!value) {
+            updateState();
+        }
+    }
+
+    // Runs a flush as soon as possible, unless we're backing off after a failure.
+    void requestFlush() {
+        if (failures > 0 && System.currentTimeMillis() < nextAttemptAt) {
+            notifyStatus();
+            return;
+        }
+        schedule(0);
+    }
+
+    // Explicit user request ("sync now"): ignores backoff.
+    void flushNow() {
+        schedule(0);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    JSONObject status() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("state", state.name().toLowerCase(Locale.ROOT));
+            o.put("pending", outbox.size());
+            o.put("oldestPendingAt", outbox.oldestEnqueuedAt());
+            o.put("coalesced", outbox.getCoalesced());
+            o.put("online", online);
+            o.put("configured", endpoint != null);
+            o.put("lastSuccessAt", lastSuccessAt);
+            o.put("nextAttemptAt", (state == State.BACKOFF) ? nextAttemptAt : 0);
+            o.put("failures", failures);
+            o.put("lastError", lastError == null ? JSONObject.NULL : lastError);
+            o.put("rowsSent", rowsSent);
+            o.put("requests", requests);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    private synchronized void schedule(long delayMs) {
+        if (executor.isShutdown()) return;
+        // A pending run that starts soon enough covers this request. One that is already running
+        // (delay <= 0) doesn't: it may have taken its last batch before the new write arrived.
+        if (scheduled != null && !scheduled.isDone()) {
+            long pending = scheduled.getDelay(TimeUnit.MILLISECONDS);
+            if (pending > 0 && pending <= delayMs) return;
+            if (pending > 0) scheduled.cancel(false);
+        }
+        scheduled = executor.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        if (!updateState()) return;
+        state = State.SYNCING;
+        notifyStatus();
+
+        while (true) {
+            String url = endpoint;
+            if (url == null || !online) break;
+            List<SheetsOutbox.Entry> batch = outbox.takeBatch(batchSize);
+            if (batch.isEmpty()) break;
+            try {
+                post(url, batch);
+                outbox.complete(batch);
+                rowsSent += batch.size();
+                lastSuccessAt = System.currentTimeMillis();
+                lastError = null;
+                failures = 0;
+            } catch (Exception e) {
+                lastError = (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage();
+                try {
+                    outbox.fail(batch, lastError);
+                } catch (IOException ignored) {
+                }
+                failures++;
+                long delay = backoffDelay(failures);
+                nextAttemptAt = System.currentTimeMillis() + delay;
+                state = State.BACKOFF;
+                notifyStatus();
+                schedule(delay);
+                return;
+            }
+            notifyStatus();
+        }
+        updateState();
+        notifyStatus();
+    }
+
+    // Sets the resting state; returns true when there is something to send and we can send it.
+    private boolean updateState() {
+        if (endpoint == null) {
+            state = State.NOT_CONFIGURED;
+        } else if (!online) {
+            state = State.OFFLINE;
+        } else if (outbox.waiting() == 0) {
+            state = State.IDLE;
+        } else {
+            return true;
+        }
+        return false;
+    }
+
+    private long backoffDelay(int failureCount) {
+        int shift = Math.min(20, failureCount - 1);
+        long delay = Math.min(backoffMaxMs, backoffBaseMs << shift);
+        // +-20% jitter so several tablets don't retry in lockstep.
+        long jitter = delay / 5;
+        return (jitter > 0) ? delay - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1) : delay;
+    }
+
+    // One request: action=writeBatch, sheet, key (column), rows (JSON array of row objects).
+    private void post(String url, List<SheetsOutbox.Entry> batch) throws Exception {
+        SheetsOutbox.Entry first = batch.get(0);
+        JSONArray rows = new JSONArray();
+        for (SheetsOutbox.Entry e : batch) rows.put(e.row);
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("action", "writeBatch");
+        params.put("sheet", first.sheet);
+        params.put("key", first.keyColumn);
+        params.put("rows", rows.toString());
+        requests++;
+        SheetsHttp.post(url, params);
+    }
+
+    private void notifyStatus() {
+        if (listener != null) listener.onSyncStatus(status());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.titantagpoc;
+
+import java.util.ArrayList;
+import java.util.function.LongSupplier;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Named points of the cold start, in ms since origin (process start for the first activity,
+// otherwise activity creation). Only the first mark of each name counts, so callers on
+// repeated paths (page reloads, lazy getters) can mark unconditionally.
+// Thread-safe.
+class StartupTrace {
+
+    private final LongSupplier clock;
+    private final long origin;
+    private final String originName;
+    private final ArrayList<String> names = new ArrayList<>();
+    private final ArrayList<Long> times = new ArrayList<>();
+
+    StartupTrace(LongSupplier clock, long origin, String originName) {
+        this.clock = clock;
+        this.origin = origin;
+        this.originName = originName;
+    }
+
+    // Returns the mark's offset, or -1 if name was already marked.
+    synchronized long mark(String name) {
+        if (names.contains(name)) return -1;
+        long at = clock.getAsLong() - origin;
+        names.add(name);
+        times.add(at);
+        return at;
+    }
+
+    synchronized long get(String name) {
+        int i = names.indexOf(name);
+        return (i < 0) ? -1 : times.get(i);
+    }
+
+    // {origin, marks:[{name, ms}]} in the order marked.
+    synchronized JSONObject toJson() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("origin", originName);
+            JSONArray marks = new JSONArray();
+            for (int i = 0; i < names.size(); i++) {
+                JSONObject m = new JSONObject();
+                m.put("name", names.get(i));
+                m.put("ms", times.get(i));
+                marks.put(m);
+            }
+            o.put("marks", marks);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    // "name=12ms name2=40ms ..." for the log.
+    synchronized String summary() {
+        StringBuilder sb = new StringBuilder(originName).append(':');
+        for (int i = 0; i < names.size(); i++) {
+            sb.append(' ').append(names.get(i)).append('=').append(times.get(i)).append("ms");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.titantagpoc;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+// Owns the TextToSpeech engine: one progress listener for the app's lifetime, an UtteranceQueue
+// deciding what plays next, and a cache of synthesized prompts.
+// Prompts (ttsPrewarm, or any text spoken PROMOTE_AFTER times) are rendered once with
+// synthesizeToFile into cache/tts and registered with addSpeech, so speaking that exact text plays
+// the WAV instead of running synthesis again, through the same queue and callbacks.
+// Synthesis runs on a second engine instance, so it neither queues ahead of spoken prompts nor is
+// cancelled when they are flushed. Registered files are never deleted while the engine may play
+// them; the cache is trimmed to MAX_CACHED_PROMPTS (least recently used) at the next start.
+class TtsManager {
+
+    private static final String TAG = "TtsManager";
+    private static final String CACHE_ID_PREFIX = "cache:";
+    private static final String UTTERANCE_ID_PREFIX = "tts_";
+    private static final int PROMOTE_AFTER = 2;
+    private static final int MAX_PROMPT_CHARS = 200;
+    private static final int MAX_CACHED_PROMPTS = 32;
+
+    private final Context context;
+    private final TextToSpeech tts;
+    // Created on the first prompt to synthesize. Guarded by this.
+    private TextToSpeech synth;
+    private boolean synthReady;
+    private final Locale locale;
+    private final File cacheDir;
+    private final Metrics metrics;
+    private final Runnable onReady;
+    private final UtteranceQueue queue = new UtteranceQueue();
+    private final AtomicLong nextId = new AtomicLong(1);
+    // Metrics.now() when the current utterance was handed to the engine.
+    private volatile long speakingSince;
+
+    // Guarded by this.
+    private boolean ready;
+    private boolean failed;
+    // Answered once at init: isLanguageAvailable is a call into the engine's service.
+    private boolean available;
+    private final Set<String> cachedTexts = new HashSet<>();
+    // Synthesis in progress: utterance id -> text.
+    private final Map<String, String> synthesizing = new HashMap<>();
+    // Prompts waiting for an engine to initialize.
+    private final Set<String> wanted = new HashSet<>();
+    private final LinkedHashMap<String, Integer> spokenCounts = new LinkedHashMap<String, Integer>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > 64;
+        }
+    };
+    private long cacheHits;
+    private long cacheMisses;
+    private long synthesized;
+
+    // onReady (may be null) runs once the engine has initialized or failed to.
+    TtsManager(Context context, Locale locale, File cacheDir, Metrics metrics, Runnable onReady) {
+        this.context = context.getApplicationContext();
+        this.locale = locale;
+        this.cacheDir = cacheDir;
+        this.metrics = metrics;
+        this.onReady = onReady;
+        this.tts = new TextToSpeech(context.getApplicationContext(), this::onInit);
+        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String id) {
+                UtteranceQueue.Utterance u = queue.current();
+                if (u == null || !u.id.equals(id)) return;
+                metrics.record(Metrics.Stage.TTS_START, speakingSince);
+                u.notify("start");
+            }
+
+            @Override
+            public void onDone(String id) {
+                onFinished(id, "done");
+            }
+
+            @Override
+            public void onError(String id) {
+                onFinished(id, "error");
+            }
+
+            @Override
+            public void onError(String id, int errorCode) {
+                Log.e(TAG, "TTS error code: " + errorCode + " for " + id);
+                onFinished(id, "error");
+            }
+
+            @Override
+            public void onStop(String id, boolean interrupted) {
+                onFinished(id, "stopped");
+            }
+        });
+    }
+
+    private void onInit(int status) {
+        List<UtteranceQueue.Utterance> dropped = null;
+        synchronized (this) {
+            if (status == TextToSpeech.SUCCESS) {
+                int result = tts.setLanguage(locale);
+                available = result != TextToSpeech.LANG_MISSING_DATA && result != TextToSpeech.LANG_NOT_SUPPORTED;
+                if (!available) Log.e(TAG, "Language not supported: " + locale);
+                tts.setSpeechRate(1.0f);
+                tts.setPitch(1.0f);
+                ready = true;
+                loadCache();
+                List<String> prompts = new ArrayList<>(wanted);
+                wanted.clear();
+                for (String text : prompts) cache(text);
+            } else {
+                Log.e(TAG, "TTS initialization failed");
+                failed = true;
+                dropped = queue.clear();
+            }
+        }
+        if (dropped != null) {
+            for (UtteranceQueue.Utterance u : dropped) u.notify("error");
+        }
+        if (onReady != null) onReady.run();
+        pump();
+    }
+
+    synchronized boolean isReady() {
+        return ready || failed;
+    }
+
+    synchronized boolean isAvailable() {
+        return ready && available;
+    }
+
+    // Queues text; returns its utterance id. The callback gets "start", then one of
+    // "done", "error" or "stopped" (flushed or stopped before finishing).
+    String speak(String text, UtteranceQueue.Mode mode, UtteranceQueue.Callback callback) {
+        String id = UTTERANCE_ID_PREFIX + nextId.getAndIncrement();
+        UtteranceQueue.Utterance u = new UtteranceQueue.Utterance(id, (text == null) ? "" : text, callback);
+        boolean isFailed;
+        synchronized (this) {
+            isFailed = failed;
+        }
+        if (isFailed) {
+            u.notify("error");
+            return id;
+        }
+        List<UtteranceQueue.Utterance> dropped = queue.submit(u, mode);
+        if (mode == UtteranceQueue.Mode.FLUSH && !dropped.isEmpty()) {
+            // onStop for the interrupted utterance finds nothing current and is ignored.
+            tts.stop();
+        }
+        for (UtteranceQueue.Utterance d : dropped) d.notify("stopped");
+        countSpoken(u.text);
+        pump();
+        return id;
+    }
+
+    void stop() {
+        List<UtteranceQueue.Utterance> dropped = queue.clear();
+        tts.stop();
+        for (UtteranceQueue.Utterance d : dropped) d.notify("stopped");
+    }
+
+    // Renders the prompts into the cache (in the background, via the engine) if they aren't there yet.
+    synchronized void prewarm(List<String> prompts) {
+        for (String p : prompts) {
+            if (p == null || p.trim().isEmpty() || p.length() > MAX_PROMPT_CHARS) continue;
+            if (ready) cache(p);
+            else wanted.add(p);
+        }
+    }
+
+    synchronized JSONObject stats() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("ready", ready);
+            o.put("queued", queue.size());
+            o.put("cachedPrompts", cachedTexts.size());
+            o.put("cacheHits", cacheHits);
+            o.put("cacheMisses", cacheMisses);
+            o.put("synthesized", synthesized);
+        } catch (Exception ignored) {
+        }
+        return o;
+    }
+
+    void shutdown() {
+        stop();
+        tts.shutdown();
+        synchronized (this) {
+            if (synth != null) synth.shutdown();
+        }
+    }
+
+    private void pump() {
+        UtteranceQueue.Utterance u;
+        boolean hit;
+        synchronized (this) {
+            if (!ready) return;
+            u = queue.next();
+            if (u == null) return;
+            hit = cachedTexts.contains(u.text);
+            if (hit) cacheHits++;
+            else cacheMisses++;
+        }
+        if (hit) {
+            // Recently played prompts survive the trim at the next start.
+            fileFor(u.text).setLastModified(System.currentTimeMillis());
+        }
+        speakingSince = Metrics.now();
+        if (tts.speak(u.text, TextToSpeech.QUEUE_ADD, null, u.id) != TextToSpeech.SUCCESS) {
+            onFinished(u.id, "error");
+        }
+    }
+
+    private void onFinished(String id, String state) {
+        UtteranceQueue.Utterance u = queue.finish(id);
+        if (u == null) return;
+        u.notify(state);
+        pump();
+    }
+
+    private void countSpoken(String text) {
+        if (text.isEmpty() || text.length() > MAX_PROMPT_CHARS) return;
+        synchronized (this) {
+            if (cachedTexts.contains(text)) return;
+            Integer n = spokenCounts.get(text);
+            int count = (n == null) ? 1 : n + 1;
+            spokenCounts.put(text, count);
+            // Past the cap, only explicit prewarm adds prompts until the next start trims the cache.
+            if (count >= PROMOTE_AFTER && ready && cachedTexts.size() < MAX_CACHED_PROMPTS) cache(text);
+        }
+    }
+
+    // Caller holds the lock.
+    private void cache(String text) {
+        if (cachedTexts.contains(text) || synthesizing.containsValue(text)) return;
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) return;
+        File file = fileFor(text);
+        if (file.isFile() && file.length() > 0) {
+            register(text, file);
+            return;
+        }
+        if (!synthReady) {
+            wanted.add(text);
+            if (synth == null) synth = new TextToSpeech(context, this::onSynthInit);
+            return;
+        }
+        String id = CACHE_ID_PREFIX + file.getName();
+        Bundle params = new Bundle();
+        if (synth.synthesizeToFile(text, params, tmpFor(file), id) == TextToSpeech.SUCCESS) {
+            synthesizing.put(id, text);
+        }
+    }
+
+    // The synthesis engine uses the speaking engine's voice, so files match fileFor().
+    private void onSynthInit(int status) {
+        synchronized (this) {
+            if (status != TextToSpeech.SUCCESS) {
+                Log.e(TAG, "TTS synthesis engine initialization failed");
+                wanted.clear();
+                return;
+            }
+            synth.setLanguage(locale);
+            Voice v = tts.getVoice();
+            if (v != null) synth.setVoice(v);
+            synth.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+                @Override
+                public void onStart(String id) {
+                }
+
+                @Override
+                public void onDone(String id) {
+                    onSynthesized(id, true);
+                }
+
+                @Override
+                public void onError(String id) {
+                    onSynthesized(id, false);
+                }
+
+                @Override
+                public void onError(String id, int errorCode) {
+                    Log.e(TAG, "TTS synthesis error code: " + errorCode + " for " + id);
+                    onSynthesized(id, false);
+                }
+
+                @Override
+                public void onStop(String id, boolean interrupted) {
+                    onSynthesized(id, false);
+                }
+            });
+            synthReady = true;
+            if (!ready) return;
+            List<String> prompts = new ArrayList<>(wanted);
+            wanted.clear();
+            for (String text : prompts) cache(text);
+        }
+    }
+
+    private void onSynthesized(String id, boolean ok) {
+        synchronized (this) {
+            String text = synthesizing.remove(id);
+            if (text == null) return;
+            File file = fileFor(text);
+            File tmp = tmpFor(file);
+            if (ok && tmp.length() > 0 && tmp.renameTo(file)) {
+                register(text, file);
+                synthesized++;
+            } else {
+                tmp.delete();
+            }
+        }
+    }
+
+    private void register(String text, File file) {
+        tts.addSpeech(text, file);
+        cachedTexts.add(text);
+        textFileFor(file).delete();
+        try (FileOutputStream out = new FileOutputStream(textFileFor(file))) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot record cached prompt text", e);
+        }
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    // Registers prompts cached by an earlier run (the .txt next to each .wav holds its text), after
+    // trimming them to the MAX_CACHED_PROMPTS most recently used; nothing is registered yet here.
+    private void loadCache() {
+        File[] wavs = cacheDir.listFiles((d, n) -> n.endsWith(".wav"));
+        if (wavs != null && wavs.length > MAX_CACHED_PROMPTS) {
+            Arrays.sort(wavs, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < wavs.length - MAX_CACHED_PROMPTS; i++) {
+                wavs[i].delete();
+                textFileFor(wavs[i]).delete();
+            }
+        }
+        File[] files = cacheDir.listFiles((d, n) -> n.endsWith(".txt"));
+        if (files == null) return;
+        for (File txt : files) {
+            File wav = new File(cacheDir, txt.getName().replace(".txt", ".wav"));
+            try {
+                String text = new String(Files.readAllBytes(txt.toPath()), StandardCharsets.UTF_8);
+                if (wav.isFile() && fileFor(text).equals(wav)) {
+                    tts.addSpeech(text, wav);
+                    cachedTexts.add(text);
+                    continue;
+                }
+            } catch (Exception ignored) {
+            }
+            txt.delete();
+            wav.delete();
+        }
+    }
+
+    // The voice is part of the key: a different engine or voice must not replay stale audio.
+    private File fileFor(String text) {
+        Voice v = tts.getVoice();
+        String key = locale.toLanguageTag() + "|" + ((v == null) ? "" : v.getName()) + "|" + text;
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 10; i++) sb.append(String.format("%02x", d[i] & 0xff));
+            return new File(cacheDir, sb + ".wav");
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static File tmpFor(File file) {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    private static File textFileFor(File wav) {
+        return new File(wav.getPath().replace(".wav", ".txt"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.titantagpoc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Utterances waiting for the TTS engine, and the callback of each one. The engine gets one
+// utterance at a time, so ordering (and priority) is decided here rather than by its queue.
+//   ADD       after everything already queued
+//   PRIORITY  next, ahead of queued utterances, without interrupting the current one
+//   FLUSH     drops the current and queued utterances (their callbacks get "stopped")
+class UtteranceQueue {
+
+    enum Mode { ADD, PRIORITY, FLUSH }
+
+    interface Callback {
+        // state: "start", "done", "error" or "stopped"
+        void onState(String utteranceId, String state);
+    }
+
+    static final class Utterance {
+        final String id;
+        final String text;
+        final Callback callback;
+
+        Utterance(String id, String text, Callback callback) {
+            this.id = id;
+            this.text = text;
+            this.callback = callback;
+        }
+
+        void notify(String state) {
+            if (callback != null) callback.onState(id, state);
+        }
+    }
+
+    private final ArrayDeque<Utterance> pending = new ArrayDeque<>();
+    private Utterance current;
+
+    // Returns the utterances a FLUSH displaced (including the current one); callers report them stopped.
+    synchronized List<Utterance> submit(Utterance u, Mode mode) {
+        List<Utterance> dropped = new ArrayList<>();
+        if (mode == Mode.FLUSH) dropped = clear();
+        if (mode == Mode.PRIORITY) {
+            pending.addFirst(u);
+        } else {
+            pending.addLast(u);
+        }
+        return dropped;
+    }
+
+    // The next utterance to hand to the engine, or null if one is playing or none are waiting.
+    synchronized Utterance next() {
+        if (current != null || pending.isEmpty()) return null;
+        current = pending.pollFirst();
+        return current;
+    }
+
+    // The engine finished (or stopped) utterance id. Returns it if it was the current one.
+    synchronized Utterance finish(String id) {
+        if (current == null || !current.id.equals(id)) return null;
+        Utterance u = current;
+        current = null;
+        return u;
+    }
+
+    synchronized Utterance current() {
+        return current;
+    }
+
+    synchronized List<Utterance> clear() {
+        List<Utterance> dropped = new ArrayList<>();
+        if (current != null) dropped.add(current);
+        dropped.addAll(pending);
+        current = null;
+        pending.clear();
+        return dropped;
+    }
+
+    synchronized int size() {
+        return pending.size() + ((current == null) ? 0 : 1);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class BridgeEventQueueTest {
+
+    @Test
+    public void event_carriesCallbackNameAsData() throws Exception {
+        String e = BridgeEventQueue.event("speech", "cb'); alert(1); ('", "\"שלום\"", "false", null);
+        JSONObject o = new JSONObject(e);
+        assertEquals("speech", o.getString("type"));
+        assertEquals("cb'); alert(1); ('", o.getString("cb"));
+        JSONArray args = o.getJSONArray("args");
+        assertEquals("שלום", args.getString(0));
+        assertFalse(args.getBoolean(1));
+        assertTrue(args.isNull(2));
+        assertTrue(new JSONObject(BridgeEventQueue.event("sync", null)).isNull("cb"));
+    }
+
+    @Test
+    public void add_coalescesByKeyAndKeepsOrder() throws Exception {
+        BridgeEventQueue q = new BridgeEventQueue();
+        assertTrue(q.add("speech-partial", BridgeEventQueue.event("speech", "s", "\"a\"")));
+        assertFalse(q.add(null, BridgeEventQueue.event("print-batch", "p", "1")));
+        assertFalse(q.add("speech-partial", BridgeEventQueue.event("speech", "s", "\"ab\"")));
+        assertFalse(q.add(null, BridgeEventQueue.event("print-batch", "p", "2")));
+
+        JSONArray batch = new JSONArray(q.drain());
+        assertEquals(3, batch.length());
+        assertEquals("print-batch", batch.getJSONObject(0).getString("type"));
+        // The newer partial replaced the older one and moved after the event before it.
+        assertEquals("ab", batch.getJSONObject(1).getJSONArray("args").getString(0));
+        assertEquals(2, batch.getJSONObject(2).getJSONArray("args").getInt(0));
+
+        assertNull(q.drain());
+        assertTrue(q.add(null, BridgeEventQueue.event("tts", "t")));
+        JSONObject stats = q.stats();
+        assertEquals(5, stats.getLong("added"));
+        assertEquals(1, stats.getLong("coalesced"));
+        assertEquals(1, stats.getLong("batches"));
+    }
+}
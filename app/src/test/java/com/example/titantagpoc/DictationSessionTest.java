@@ -0,0 +1,79 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class DictationSessionTest {
+
+    private long now = 1_000;
+
+    @Test
+    public void segments_accumulateAndPartialsDeduplicate() {
+        DictationSession d = new DictationSession(() -> now);
+        d.onListening();
+        now += 50;
+        d.onReady();
+
+        now += 400;
+        assertTrue(d.onPartial("שבר"));
+        assertFalse(d.onPartial("שבר "));
+        assertFalse(d.onPartial(""));
+        assertTrue(d.onPartial("שבר כלי"));
+        assertEquals("שבר כלי", d.text());
+
+        now += 300;
+        assertTrue(d.onSegment("שבר כלי חרס"));
+        d.onListening();
+        assertTrue(d.onPartial("ליד"));
+        assertEquals("שבר כלי חרס ליד", d.text());
+        assertEquals("שבר כלי חרס", d.committed());
+
+        assertTrue(d.onSegment("ליד הקיר"));
+        assertEquals("שבר כלי חרס ליד הקיר", d.text());
+        // An empty result ends the segment without adding text.
+        assertFalse(d.onSegment(""));
+    }
+
+    @Test
+    public void metrics_timeFirstPartialAndRestartGap() throws Exception {
+        DictationSession d = new DictationSession(() -> now);
+        d.onListening();
+        now += 700;
+        d.onPartial("א");
+        now += 200;
+        d.onSegment("אב");
+
+        d.onListening();
+        now += 120;
+        d.onReady();
+        now += 300;
+        d.onPartial("ג");
+
+        assertEquals(2, d.firstPartial.count);
+        assertEquals(700, d.firstPartial.max);
+        assertEquals(420, d.firstPartial.last);
+        assertEquals(1, d.restartGap.count);
+        assertEquals(120, d.restartGap.last);
+
+        JSONObject m = d.metrics();
+        assertEquals(1, m.getInt("restarts"));
+        assertEquals(1, m.getInt("segments"));
+        assertEquals(560, m.getJSONObject("firstPartial").getLong("avgMs"));
+        assertFalse(d.event("partial").has("metrics"));
+        assertTrue(d.event("end").has("metrics"));
+    }
+
+    @Test
+    public void errors_rearmUntilTooManyInARow() {
+        DictationSession d = new DictationSession(() -> now);
+        d.onListening();
+        assertFalse(d.onError(false));
+        for (int i = 0; i < DictationSession.MAX_CONSECUTIVE_ERRORS; i++) assertTrue(d.onError(true));
+        assertFalse(d.onError(true));
+        // A recognized segment resets the count.
+        d.onSegment("שלום");
+        assertTrue(d.onError(true));
+    }
+}
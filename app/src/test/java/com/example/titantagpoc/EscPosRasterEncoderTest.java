@@ -0,0 +1,88 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class EscPosRasterEncoderTest {
+
+    private static final byte[] GAP = new byte[]{ 0x1D, 0x4A, 120 };
+
+    // Every character is a solid box half as wide as it is tall.
+    private static final LabelTemplate.TextRasterizer BOXES = (text, heightDots) -> {
+        LabelTemplate.Bitmap1 b = new LabelTemplate.Bitmap1(Math.max(1, text.length() * heightDots / 2), heightDots);
+        for (int y = 0; y < b.height; y++) {
+            for (int x = 0; x < b.width; x++) b.set(x, y);
+        }
+        return b;
+    };
+
+    private static BitMatrix modules(String text) throws Exception {
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.MARGIN, 0);
+        return new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0, hints);
+    }
+
+    @Test
+    public void encode_framesImageWithHeaderAndTrailer() {
+        EscPosRasterEncoder encoder = new EscPosRasterEncoder(203, 150, GAP);
+        int imageLength = 26 * 150;
+        int[] calls = { 0 };
+
+        byte[] out = encoder.encode((dest, offset) -> {
+            calls[0]++;
+            assertEquals(EscPosRasterEncoder.imageOffset(), offset);
+            for (int i = 0; i < imageLength; i++) dest[offset + i] = (byte) (i * 7);
+        });
+
+        assertEquals(1, calls[0]);
+        assertEquals(26, encoder.getBytesPerRow());
+        assertEquals(8 + imageLength + GAP.length, out.length);
+        assertArrayEquals(new byte[]{ 0x1D, 0x76, 0x30, 0x00, 26, 0, (byte) 150, 0 }, Arrays.copyOf(out, 8));
+        for (int i = 0; i < imageLength; i++) assertEquals((byte) (i * 7), out[8 + i]);
+        assertArrayEquals(GAP, Arrays.copyOfRange(out, out.length - GAP.length, out.length));
+    }
+
+    @Test
+    public void encode_carriesTemplateImageUnchanged() throws Exception {
+        LabelTemplate t = new LabelTemplate(LabelTemplate.spec("45x30"), 8, BOXES);
+        BitMatrix m = modules("FIND-1760000000000-A1B2C3");
+        byte[] image = new byte[t.bytesPerRow * t.heightDots];
+        t.render(m, "FIND-1760000000000-A1B2C3", "מגידו", "17.10.2026", image, 0);
+        EscPosRasterEncoder encoder = new EscPosRasterEncoder(t.widthDots, t.heightDots, GAP);
+
+        byte[] out = encoder.encode((dest, offset) -> t.render(m, "FIND-1760000000000-A1B2C3", "מגידו", "17.10.2026", dest, offset));
+
+        assertArrayEquals(image, Arrays.copyOfRange(out, EscPosRasterEncoder.imageOffset(), out.length - GAP.length));
+    }
+
+    @Test
+    public void encode_reusesBufferAndKeepsFraming() throws Exception {
+        LabelTemplate t = new LabelTemplate(LabelTemplate.spec("45x30"), 8, BOXES);
+        EscPosRasterEncoder encoder = new EscPosRasterEncoder(t.widthDots, t.heightDots, GAP);
+        BitMatrix first = modules("FIND-1760000000002-000001");
+        BitMatrix second = modules("FIND-1760000000003-000002");
+
+        byte[] a = encoder.encode((dest, offset) -> t.render(first, "FIND-1760000000002-000001", "", "", dest, offset));
+        byte[] header = Arrays.copyOf(a, 8);
+        byte[] b = encoder.encode((dest, offset) -> t.render(second, "FIND-1760000000003-000002", "", "", dest, offset));
+
+        assertSame(a, b);
+        byte[] expected = new byte[t.bytesPerRow * t.heightDots];
+        t.render(second, "FIND-1760000000003-000002", "", "", expected, 0);
+        assertArrayEquals(expected, Arrays.copyOfRange(b, 8, b.length - GAP.length));
+        assertArrayEquals(header, Arrays.copyOf(b, 8));
+        assertArrayEquals(GAP, Arrays.copyOfRange(b, b.length - GAP.length, b.length));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FindsExporterTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static FindsExporter.FindSource source(List<String> finds) {
+        return new FindsExporter.FindSource() {
+            @Override
+            public void forEachJson(Consumer<String> action) {
+                finds.forEach(action);
+            }
+
+            @Override
+            public String get(String id) {
+                for (String f : finds) {
+                    try {
+                        if (id.equals(new JSONObject(f).optString("id"))) return f;
+                    } catch (Exception ignored) {
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    private static String find(String id, String description, String... mediaIds) throws Exception {
+        JSONObject f = new JSONObject();
+        f.put("id", id);
+        f.put("site", "מגידו");
+        f.put("description", description);
+        JSONArray media = new JSONArray();
+        for (String m : mediaIds) media.put(new JSONObject().put("id", m).put("native", true));
+        f.put("media", media);
+        return f.toString();
+    }
+
+    @Test
+    public void export_writesFindsMediaAndQr() throws Exception {
+        File photo = tmp.newFile("M-1.jpg");
+        try (FileOutputStream out = new FileOutputStream(photo)) {
+            out.write(new byte[200_000]);
+        }
+        Map<String, File> media = new HashMap<>();
+        media.put("M-1", photo);
+        List<String> finds = Arrays.asList(
+            find("FIND-1", "שבר, \"חרס\"", "M-1", "M-missing"),
+            find("../FIND 2", "מטבע"));
+
+        List<Integer> progress = new ArrayList<>();
+        FindsExporter exporter = new FindsExporter(source(finds), media::get, id -> id.getBytes(StandardCharsets.UTF_8));
+        File zip = new File(tmp.getRoot(), "export.zip");
+        FindsExporter.Result r = exporter.export(zip, (done, total, bytes) -> progress.add(done));
+
+        assertEquals(2, r.finds);
+        assertEquals(1, r.mediaFiles);
+        assertEquals(1, r.missingMedia);
+        assertEquals(Integer.valueOf(2), progress.get(progress.size() - 1));
+        assertFalse(new File(zip.getPath() + ".tmp").exists());
+
+        try (ZipFile z = new ZipFile(zip)) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry e : Collections.list(z.entries())) names.add(e.getName());
+            assertEquals(Arrays.asList("finds.json", "finds.csv", "media/FIND-1/M-1.jpg", "qr/FIND-1.png", "qr/_._FIND_2.png"), names);
+            assertEquals(200_000, z.getEntry("media/FIND-1/M-1.jpg").getSize());
+
+            assertEquals(2, new JSONArray(read(z, "finds.json")).length());
+            String[] csv = read(z, "finds.csv").split("\r\n");
+            assertEquals("\uFEFF" + String.join(",", FindsExporter.CSV_COLUMNS), csv[0]);
+            assertEquals("FIND-1,מגידו,,,\"שבר, \"\"חרס\"\"\",,,,,,2", csv[1]);
+        }
+    }
+
+    @Test
+    public void export_skipsFindsDeletedAfterSnapshotInEverySection() throws Exception {
+        List<String> finds = new ArrayList<>(Arrays.asList(find("FIND-1", "a"), find("FIND-2", "b")));
+        FindsExporter.FindSource source = source(finds);
+        FindsExporter exporter = new FindsExporter(new FindsExporter.FindSource() {
+            @Override
+            public void forEachJson(Consumer<String> action) {
+                source.forEachJson(action);
+                // Deleted while the export runs, after the IDs were taken.
+                finds.remove(1);
+            }
+
+            @Override
+            public String get(String id) {
+                return source.get(id);
+            }
+        }, id -> null, id -> new byte[1]);
+        File zip = new File(tmp.getRoot(), "export.zip");
+
+        assertEquals(1, exporter.export(zip, null).finds);
+
+        try (ZipFile z = new ZipFile(zip)) {
+            assertEquals(1, new JSONArray(read(z, "finds.json")).length());
+            assertEquals(2, read(z, "finds.csv").split("\r\n").length);
+            assertNotNull(z.getEntry("qr/FIND-1.png"));
+            assertNull(z.getEntry("qr/FIND-2.png"));
+        }
+    }
+
+    @Test
+    public void cancel_leavesNoPartialArchive() throws Exception {
+        List<String> finds = Arrays.asList(find("FIND-1", "a"), find("FIND-2", "b"));
+        File zip = new File(tmp.getRoot(), "export.zip");
+        FindsExporter[] holder = new FindsExporter[1];
+        holder[0] = new FindsExporter(source(finds), id -> null, id -> {
+            holder[0].cancel();
+            return new byte[0];
+        });
+        try {
+            holder[0].export(zip, null);
+            fail("Expected cancellation");
+        } catch (FindsExporter.CancelledException expected) {
+        }
+        assertFalse(zip.exists());
+        assertFalse(new File(zip.getPath() + ".tmp").exists());
+    }
+
+    private static String read(ZipFile z, String name) throws Exception {
+        try (InputStream in = z.getInputStream(z.getEntry(name))) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) != -1) baos.write(buf, 0, n);
+            return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
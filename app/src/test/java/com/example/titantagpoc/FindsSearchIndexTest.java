@@ -0,0 +1,82 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class FindsSearchIndexTest {
+
+    private static Map<String, String> find(String site, String description) {
+        Map<String, String> f = new HashMap<>();
+        f.put(FindsSearchIndex.FIELD_SITE, site);
+        f.put(FindsSearchIndex.FIELD_DESCRIPTION, description);
+        return f;
+    }
+
+    @Test
+    public void normalize_stripsNiqqudAndUnifiesFinalLetters() {
+        assertEquals("שלומ", HebrewNormalizer.normalize("שָׁלוֹם"));
+        assertEquals("צהל", HebrewNormalizer.normalize("צה\"ל"));
+        assertEquals(Arrays.asList("בית", "כנסת"), HebrewNormalizer.tokenize("בית־כנסת"));
+        assertEquals(Arrays.asList("find", "1760000000000", "ab12"), HebrewNormalizer.tokenize("FIND-1760000000000-AB12"));
+    }
+
+    @Test
+    public void variants_stripUpToTwoParticles() {
+        assertEquals(Arrays.asList("והבית", "הבית", "בית"), Arrays.asList(HebrewNormalizer.variants("והבית").toArray()));
+        // Too short to strip.
+        assertEquals(Collections.singletonList("בו"), Arrays.asList(HebrewNormalizer.variants("בו").toArray()));
+        assertEquals(Collections.singletonList("find"), Arrays.asList(HebrewNormalizer.variants("find").toArray()));
+    }
+
+    @Test
+    public void search_matchesPrefixesAndParticles() {
+        FindsSearchIndex index = new FindsSearchIndex();
+        index.put("FIND-1", find("מגידו", "שבר כלי חרס ליד הקִיר"));
+        index.put("FIND-2", find("חצור", "מטבע ברונזה"));
+
+        assertEquals(Collections.singletonList("FIND-1"), index.search("קיר", 10));
+        assertEquals(Collections.singletonList("FIND-1"), index.search("וחרס", 10));
+        assertEquals(Collections.singletonList("FIND-2"), index.search("מטב", 10));
+        assertEquals(Collections.singletonList("FIND-2"), index.search("חצור ברונזה", 10));
+        assertTrue(index.search("חצור חרס", 10).isEmpty());
+    }
+
+    @Test
+    public void search_ranksExactAndHeavierFieldsFirst() {
+        FindsSearchIndex index = new FindsSearchIndex();
+        index.put("FIND-1", find("לכיש", "חרסים"));
+        index.put("FIND-2", find("חרס", "לכיש"));
+        index.put("FIND-3", find("ארד", "חרס"));
+
+        List<String> r = index.search("חרס", 10);
+        // Site outweighs description; an exact word beats a prefix in the same field.
+        assertEquals(Arrays.asList("FIND-2", "FIND-3", "FIND-1"), r);
+
+        Map<String, String> byId = new HashMap<>();
+        byId.put(FindsSearchIndex.FIELD_ID, "FIND-3");
+        index.put("FIND-3", byId);
+        assertEquals("FIND-3", index.search("FIND-3", 10).get(0));
+    }
+
+    @Test
+    public void putAndRemove_updateIncrementally() {
+        FindsSearchIndex index = new FindsSearchIndex();
+        index.put("FIND-1", find("גזר", "צלמית"));
+        index.put("FIND-1", find("גזר", "גולגולת"));
+
+        assertTrue(index.search("צלמית", 10).isEmpty());
+        assertEquals(Collections.singletonList("FIND-1"), index.search("גולגולת", 10));
+
+        assertTrue(index.remove("FIND-1"));
+        assertEquals(0, index.size());
+        assertEquals(0, index.termCount());
+        assertTrue(index.search("גזר", 10).isEmpty());
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class LabelTemplateTest {
+
+    private static final int DOTS_PER_MM = 8;
+
+    // Every character is a solid box, widthPercent of its height wide; counts what gets rasterized.
+    private static final class BoxRasterizer implements LabelTemplate.TextRasterizer {
+        final int widthPercent;
+        int calls;
+
+        BoxRasterizer() {
+            this(50);
+        }
+
+        BoxRasterizer(int widthPercent) {
+            this.widthPercent = widthPercent;
+        }
+
+        @Override
+        public LabelTemplate.Bitmap1 render(String text, int heightDots) {
+            calls++;
+            int w = Math.max(1, text.length() * heightDots * widthPercent / 100);
+            LabelTemplate.Bitmap1 b = new LabelTemplate.Bitmap1(w, heightDots);
+            for (int y = 0; y < heightDots; y++) {
+                for (int x = 0; x < w; x++) b.set(x, y);
+            }
+            return b;
+        }
+    }
+
+    private static BitMatrix modules(String text) throws Exception {
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.MARGIN, 0);
+        return new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0, hints);
+    }
+
+    private static boolean dot(LabelTemplate t, byte[] image, int x, int y) {
+        return (image[y * t.bytesPerRow + (x >> 3)] & (0x80 >> (x & 7))) != 0;
+    }
+
+    @Test
+    public void wrapId_breaksAfterDashAndCutsTheRest() {
+        LabelTemplate t = new LabelTemplate(LabelTemplate.spec("45x30"), DOTS_PER_MM, new BoxRasterizer());
+        // 14 box glyphs fit the column.
+        assertArrayEquals(new String[]{ "FIND-17-AB12CD" }, t.wrapId("FIND-17-AB12CD"));
+        assertArrayEquals(new String[]{ "FIND-1718-", "AB12CD" }, t.wrapId("FIND-1718-AB12CD"));
+        assertArrayEquals(new String[]{ "FIND-", "1718000000000-", "AB12CD" }, t.wrapId("FIND-1718000000000-AB12CD"));
+        // 42 glyphs only fit as three full lines; breaking after "FIND-" would lose the end.
+        String full = "FIND-171800000000000000000000000000-AB12CD";
+        assertArrayEquals(new String[]{ "FIND-171800000", "00000000000000", "0000000-AB12CD" }, t.wrapId(full));
+
+        String[] cut = t.wrapId("FIND-17180000000000000000000000000000000000000000");
+        assertEquals(3, cut.length);
+        assertEquals("FIND-171800000", cut[0]);
+        assertEquals(14, cut[2].length());
+        assertEquals(0, t.wrapId("").length);
+    }
+
+    // A real-length ID (findsStore.js newFindId) is never cut, on any spec, even with a wide font.
+    @Test
+    public void wrapId_fitsFullFindIdOnEverySpec() {
+        String[] ids = { "FIND-1718000000000-AB12CD", "FIND-9999999999999-DDDDDD", "FIND-1760000000000-0" };
+        for (int widthPercent : new int[]{ 50, 65, 90 }) {
+            for (LabelTemplate.Spec spec : LabelTemplate.SPECS) {
+                if (!spec.text) continue;
+                LabelTemplate t = new LabelTemplate(spec, DOTS_PER_MM, new BoxRasterizer(widthPercent));
+                for (String id : ids) {
+                    String[] lines = t.wrapId(id);
+                    assertEquals(spec.name + " @" + widthPercent + "%", id, String.join("", lines));
+                    assertTrue(lines.length <= 3);
+                }
+                // Text stays legible: never below 1.75 mm.
+                assertTrue(t.lineHeightDots() >= 14);
+            }
+        }
+    }
+
+    @Test
+    public void render_placesScaledQrAndTextBesideIt() throws Exception {
+        BoxRasterizer r = new BoxRasterizer();
+        LabelTemplate t = new LabelTemplate(LabelTemplate.spec("45x30"), DOTS_PER_MM, r);
+        assertEquals(360, t.widthDots);
+        assertEquals(240, t.heightDots);
+        assertEquals(120, t.gapDots);
+        int atlasCalls = r.calls;
+
+        String id = "FIND-1718000000000-AB12CD";
+        BitMatrix m = modules(id);
+        byte[] image = new byte[t.bytesPerRow * t.heightDots];
+        t.render(m, id, "תל דור", "12.06.2024", image, 0);
+
+        // Integer module scale, centred in the QR box at the top-left.
+        int scale = t.qrSizeDots() / m.getWidth();
+        int pad = (t.qrSizeDots() - m.getWidth() * scale) / 2;
+        for (int my = 0; my < m.getHeight(); my++) {
+            for (int mx = 0; mx < m.getWidth(); mx++) {
+                assertEquals(m.get(mx, my), dot(t, image, pad + mx * scale + scale / 2, pad + my * scale + scale / 2));
+            }
+        }
+        // Nothing below the QR box.
+        for (int y = t.qrSizeDots(); y < t.heightDots; y++) {
+            for (int x = 0; x < t.widthDots; x++) assertFalse(dot(t, image, x, y));
+        }
+        // Three ID lines, site and date start right of the QR, clipped a margin before the edge.
+        int textLeft = t.qrSizeDots() + 2 * DOTS_PER_MM;
+        int line = t.lineHeightDots();
+        assertEquals(3 * DOTS_PER_MM, line);
+        for (int i = 0; i < 5; i++) assertTrue(dot(t, image, textLeft, i * line + 1));
+        assertFalse(dot(t, image, textLeft - 1, 1));
+        for (int y = 0; y < t.qrSizeDots(); y++) {
+            for (int x = t.widthDots - DOTS_PER_MM; x < t.widthDots; x++) assertFalse(dot(t, image, x, y));
+        }
+
+        // Only the new site name was rasterized, and only once.
+        t.render(m, id, "תל דור", "13.06.2024", image, 0);
+        assertEquals(atlasCalls + 1, r.calls);
+    }
+
+    @Test
+    public void render_overwritesPreviousLabelAtOffset() throws Exception {
+        LabelTemplate t = new LabelTemplate(LabelTemplate.spec("40x25"), DOTS_PER_MM, new BoxRasterizer());
+        int size = t.bytesPerRow * t.heightDots;
+        byte[] dest = new byte[8 + size];
+        t.render(modules("FIND-1-a"), "FIND-1-a", "site", "01.01.2024", dest, 8);
+        byte[] first = java.util.Arrays.copyOfRange(dest, 8, 8 + size);
+
+        t.render(modules("FIND-2-b"), "FIND-2-b", "", "", dest, 8);
+        t.render(modules("FIND-1-a"), "FIND-1-a", "site", "01.01.2024", dest, 8);
+        assertArrayEquals(first, java.util.Arrays.copyOfRange(dest, 8, 8 + size));
+        for (int i = 0; i < 8; i++) assertEquals(0, dest[i]);
+    }
+
+    @Test
+    public void qrOnlySpec_centresCodeWithoutText() throws Exception {
+        BoxRasterizer r = new BoxRasterizer();
+        LabelTemplate t = new LabelTemplate(LabelTemplate.spec("45x30-qr"), DOTS_PER_MM, r);
+        assertEquals(0, r.calls);
+
+        BitMatrix m = modules("FIND-3-c");
+        byte[] image = new byte[t.bytesPerRow * t.heightDots];
+        t.render(m, "FIND-3-c", "site", "01.01.2024", image, 0);
+        assertEquals(0, r.calls);
+
+        int left = (t.widthDots - t.qrSizeDots()) / 2;
+        int scale = t.qrSizeDots() / m.getWidth();
+        int pad = (t.qrSizeDots() - m.getWidth() * scale) / 2;
+        // Finder pattern corner module is dark.
+        assertTrue(dot(t, image, left + pad, pad));
+        for (int y = 0; y < t.heightDots; y++) {
+            for (int x = 0; x < left; x++) assertFalse(dot(t, image, x, y));
+        }
+    }
+
+    @Test
+    public void spec_fallsBackToDefault() {
+        assertEquals("45x30", LabelTemplate.spec("nope").name);
+        assertEquals("45x30", LabelTemplate.spec(null).name);
+        for (LabelTemplate.Spec s : LabelTemplate.SPECS) assertTrue(s.widthMm <= 48);
+    }
+}
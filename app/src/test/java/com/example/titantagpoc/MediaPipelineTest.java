@@ -0,0 +1,69 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MediaPipelineTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void sampleSize_keepsDecodeAtLeastTargetSize() {
+        // 4000x3000 camera photo -> decoded at 2000x1500, then scaled to 1920.
+        assertEquals(2, MediaPipeline.sampleSizeFor(4000, 3000, 1920));
+        assertEquals(4, MediaPipeline.sampleSizeFor(3000, 8000, 1920));
+        assertEquals(1, MediaPipeline.sampleSizeFor(1920, 1080, 1920));
+        assertEquals(1, MediaPipeline.sampleSizeFor(640, 480, 1920));
+    }
+
+    @Test
+    public void fitWithin_capsLongestEdgeWithoutUpscaling() {
+        assertArrayEquals(new int[]{ 1920, 1440 }, MediaPipeline.fitWithin(4000, 3000, 1920));
+        assertArrayEquals(new int[]{ 1080, 1920 }, MediaPipeline.fitWithin(2160, 3840, 1920));
+        assertArrayEquals(new int[]{ 640, 480 }, MediaPipeline.fitWithin(640, 480, 1920));
+    }
+
+    @Test
+    public void upload_rejectsBadIdsAndOversizeStreams() throws Exception {
+        File dir = tmp.newFolder("media");
+        MediaPipeline media = new MediaPipeline(dir);
+        assertFalse(media.begin("../x", "image", "image/jpeg", ""));
+        assertFalse(media.begin("M-1.json", "image", "image/jpeg", ""));
+
+        assertTrue(media.begin("M-1", "image", "image/jpeg", "a.jpg"));
+        assertFalse(media.begin("M-1", "image", "image/jpeg", "a.jpg"));
+        byte[] chunk = new byte[1024 * 1024];
+        for (int i = 0; i < 15; i++) assertTrue(media.append("M-1", chunk));
+        // Past MAX_UPLOAD_BYTES the upload is dropped with its partial file.
+        assertFalse(media.append("M-1", new byte[1]));
+        assertFalse(media.append("M-1", new byte[1]));
+        assertEquals(0, new File(dir, ".incoming").list().length);
+        media.shutdown();
+    }
+
+    @Test
+    public void startup_sweepsOnlyAbandonedUploads() throws Exception {
+        File dir = tmp.newFolder("media");
+        File incoming = new File(dir, ".incoming");
+        assertTrue(incoming.mkdirs());
+        File abandoned = new File(incoming, "M-old");
+        File recent = new File(incoming, "M-new");
+        assertTrue(abandoned.createNewFile());
+        assertTrue(recent.createNewFile());
+        assertTrue(abandoned.setLastModified(System.currentTimeMillis() - MediaPipeline.ABANDONED_UPLOAD_MS - 60_000));
+
+        MediaPipeline media = new MediaPipeline(dir);
+
+        assertFalse(abandoned.exists());
+        assertTrue(recent.exists());
+        assertEquals(1, media.sweepIncoming(System.currentTimeMillis() + 1000));
+        assertFalse(recent.exists());
+        media.shutdown();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetricsTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static JSONObject stage(Metrics m, Metrics.Stage s) throws Exception {
+        return m.snapshot().getJSONObject("stages").getJSONObject(s.key);
+    }
+
+    @Test
+    public void percentile_nearestRank() {
+        long[] v = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 };
+        assertEquals(5, Metrics.percentile(v, 50));
+        assertEquals(10, Metrics.percentile(v, 95));
+        assertEquals(1, Metrics.percentile(v, 1));
+        assertEquals(0, Metrics.percentile(new long[0], 50));
+    }
+
+    @Test
+    public void snapshot_reportsPercentilesCountsAndBytes() throws Exception {
+        Metrics m = new Metrics();
+        for (int i = 1; i <= 100; i++) m.recordNanos(Metrics.Stage.SOCKET_WRITE, i * MS, 10);
+        m.fail(Metrics.Stage.SOCKET_WRITE);
+        JSONObject o = stage(m, Metrics.Stage.SOCKET_WRITE);
+        assertEquals(100, o.getLong("count"));
+        assertEquals(1, o.getLong("failures"));
+        assertEquals(50.0, o.getDouble("p50Ms"), 0.001);
+        assertEquals(95.0, o.getDouble("p95Ms"), 0.001);
+        assertEquals(100.0, o.getDouble("maxMs"), 0.001);
+        assertEquals(1000, o.getLong("bytes"));
+        assertEquals(0, stage(m, Metrics.Stage.QR_RENDER).getLong("count"));
+    }
+
+    @Test
+    public void ring_keepsOnlyRecentSamplesButLifetimeMax() throws Exception {
+        Metrics m = new Metrics();
+        m.recordNanos(Metrics.Stage.TTS_START, 900 * MS, 0);
+        for (int i = 0; i < Metrics.WINDOW; i++) m.recordNanos(Metrics.Stage.TTS_START, 2 * MS, 0);
+        JSONObject o = stage(m, Metrics.Stage.TTS_START);
+        assertEquals(Metrics.WINDOW + 1, o.getLong("count"));
+        assertEquals(2.0, o.getDouble("p95Ms"), 0.001);
+        assertEquals(900.0, o.getDouble("maxMs"), 0.001);
+
+        m.reset();
+        assertEquals(0, stage(m, Metrics.Stage.TTS_START).getLong("count"));
+        assertEquals(0.0, stage(m, Metrics.Stage.TTS_START).getDouble("maxMs"), 0.001);
+    }
+
+    @Test
+    public void dump_writesSnapshotFile() throws Exception {
+        File dir = tmp.newFolder("metrics");
+        Metrics m = new Metrics();
+        m.recordNanos(Metrics.Stage.QR_RENDER, 3 * MS, 0);
+        File f = m.dump(dir, m.snapshot());
+        assertTrue(f.getName().startsWith("metrics-"));
+        JSONObject o = new JSONObject(new String(Files.readAllBytes(f.toPath()), "UTF-8"));
+        assertEquals(1, o.getJSONObject("stages").getJSONObject("qrRender").getLong("count"));
+    }
+}
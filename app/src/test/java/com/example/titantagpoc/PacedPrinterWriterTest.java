@@ -0,0 +1,105 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+public class PacedPrinterWriterTest {
+
+    @Test
+    public void onJobHealthy_rampsUpToMaxRateAndStops() {
+        PacedPrinterWriter w = new PacedPrinterWriter(12 * 1024, 20 * 1024, true);
+
+        w.onJobHealthy();
+        assertEquals(12 * 1024 + 12 * 1024 / 8, w.getRate());
+        for (int i = 0; i < 20; i++) w.onJobHealthy();
+
+        assertEquals(20 * 1024, w.getRate());
+        int speedups = w.getSpeedups();
+        w.onJobHealthy();
+        assertEquals(20 * 1024, w.getRate());
+        assertEquals(speedups, w.getSpeedups());
+    }
+
+    @Test
+    public void onJobProblem_halvesDownToMinimum() {
+        PacedPrinterWriter w = new PacedPrinterWriter(12 * 1024, 20 * 1024, true);
+
+        w.onJobProblem();
+        assertEquals(6 * 1024, w.getRate());
+        for (int i = 0; i < 10; i++) w.onJobProblem();
+
+        assertEquals(PacedPrinterWriter.MIN_RATE_BYTES_PER_SEC, w.getRate());
+        assertEquals(11, w.getSlowdowns());
+    }
+
+    @Test
+    public void constructor_capsInitialRate() {
+        assertEquals(20 * 1024, new PacedPrinterWriter(64 * 1024, 20 * 1024, true).getRate());
+        assertEquals(PacedPrinterWriter.MIN_RATE_BYTES_PER_SEC, new PacedPrinterWriter(10, 20 * 1024, true).getRate());
+        assertEquals(0, new PacedPrinterWriter(0, 20 * 1024, true).getRate());
+    }
+
+    @Test
+    public void fixedRate_ignoresJobFeedback() {
+        PacedPrinterWriter w = new PacedPrinterWriter(8 * 1024, 20 * 1024, false);
+
+        w.onJobHealthy();
+        w.onJobProblem();
+
+        assertEquals(8 * 1024, w.getRate());
+    }
+
+    @Test
+    public void write_sendsEverythingInChunks() throws IOException {
+        PacedPrinterWriter w = new PacedPrinterWriter(64 * 1024, 64 * 1024, true);
+        byte[] job = new byte[10_000];
+        for (int i = 0; i < job.length; i++) job[i] = (byte) i;
+        CountingStream out = new CountingStream();
+
+        w.write(out, job);
+
+        assertArrayEquals(job, out.toByteArray());
+        assertEquals((job.length + w.getChunkSize() - 1) / w.getChunkSize(), out.writes);
+        assertEquals(job.length, w.getTotalBytes());
+    }
+
+    @Test
+    public void write_blockingLinkPullsRateDown() throws IOException {
+        PacedPrinterWriter w = new PacedPrinterWriter(20 * 1024, 20 * 1024, true);
+        // ~1 KB per 100 ms: far below the 20 KB/s target.
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+
+        w.write(slow, new byte[3 * PacedPrinterWriter.chunkSize(20 * 1024)]);
+
+        assertTrue(w.getRate() < 20 * 1024);
+        assertTrue(w.getSlowdowns() > 0);
+    }
+
+    private static final class CountingStream extends ByteArrayOutputStream {
+        int writes;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class PrintQueueTest {
+
+    // Renders a few bytes per job; holds the first job in render until released, so later ones stay pending.
+    private static final class GatedRunner implements PrintQueue.JobRunner {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        volatile String failId;
+
+        @Override
+        public byte[] render(PrintQueue.Job job) throws Exception {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return job.findId.getBytes("UTF-8");
+        }
+
+        @Override
+        public int send(PrintQueue.Job job, byte[] data) throws Exception {
+            if (job.findId.equals(failId)) throw new IllegalStateException("offline");
+            sent.add(job.findId);
+            return data.length;
+        }
+    }
+
+    private final List<PrintQueue.Job> finished = Collections.synchronizedList(new ArrayList<>());
+    private PrintQueue queue;
+
+    private PrintQueue newQueue(int capacity, GatedRunner runner) {
+        queue = new PrintQueue(capacity, runner, (job, state) -> {
+            if (state == PrintQueue.JobState.DONE || state == PrintQueue.JobState.FAILED
+                || state == PrintQueue.JobState.CANCELLED) finished.add(job);
+        });
+        return queue;
+    }
+
+    @After
+    public void shutdown() {
+        if (queue != null) queue.shutdown();
+    }
+
+    @Test
+    public void enqueue_dedupesPendingFindIdAndHonoursCapacity() throws Exception {
+        GatedRunner runner = new GatedRunner();
+        PrintQueue q = newQueue(2, runner);
+        PrintQueue.Job first = q.enqueue("FIND-1", 0);
+        assertTrue(runner.started.await(5, TimeUnit.SECONDS));
+
+        PrintQueue.Job a = q.enqueue("FIND-2", 7);
+        assertSame(a, q.enqueue("FIND-2", 8));
+        assertEquals(7, a.batchId);
+        // The active job no longer counts as pending, so the same ID queues again.
+        assertNotSame(first, q.enqueue("FIND-1", 0));
+        assertNull(q.enqueue("FIND-3", 0));
+        assertEquals(2, q.pendingJobs().size());
+
+        runner.release.countDown();
+        waitFor(() -> finished.size() == 3);
+        assertEquals(3, runner.sent.size());
+    }
+
+    @Test
+    public void cancel_onlyTouchesPendingJobs() throws Exception {
+        GatedRunner runner = new GatedRunner();
+        PrintQueue q = newQueue(PrintQueue.DEFAULT_CAPACITY, runner);
+        PrintQueue.Job active = q.enqueue("FIND-1", 0);
+        assertTrue(runner.started.await(5, TimeUnit.SECONDS));
+        PrintQueue.Job single = q.enqueue("FIND-2", 0);
+        q.enqueue("FIND-3", 5);
+        q.enqueue("FIND-4", 5);
+        PrintQueue.Job other = q.enqueue("FIND-5", 6);
+
+        assertFalse(q.cancel(active.id));
+        assertTrue(q.cancel(single.id));
+        assertFalse(q.cancel(single.id));
+        assertEquals(PrintQueue.JobState.CANCELLED, single.state);
+        assertEquals(2, q.cancelBatch(5));
+        assertEquals(1, q.pendingJobs().size());
+        assertSame(other, q.pendingJobs().get(0));
+
+        runner.release.countDown();
+        waitFor(() -> finished.size() == 5);
+        assertEquals(List.of("FIND-1", "FIND-5"), runner.sent);
+    }
+
+    @Test
+    public void batch_everyJobFinishesOnceWithItsOutcome() throws Exception {
+        GatedRunner runner = new GatedRunner();
+        runner.failId = "FIND-2";
+        runner.release.countDown();
+        PrintQueue q = newQueue(PrintQueue.DEFAULT_CAPACITY, runner);
+        for (int i = 1; i <= 4; i++) assertNotNull(q.enqueue("FIND-" + i, 3));
+
+        waitFor(() -> finished.size() == 4);
+        Thread.sleep(50);
+        assertEquals(4, finished.size());
+        int done = 0;
+        for (PrintQueue.Job j : finished) {
+            assertEquals(3, j.batchId);
+            if (j.state == PrintQueue.JobState.DONE) done++;
+            else assertEquals("offline", j.error);
+        }
+        assertEquals(3, done);
+        assertTrue(q.pendingJobs().isEmpty());
+        assertTrue(q.activeJobs().isEmpty());
+        assertEquals(4, q.recentJobs().size());
+    }
+
+    @Test
+    public void cancelAll_andShutdownStopAcceptingJobs() throws Exception {
+        GatedRunner runner = new GatedRunner();
+        PrintQueue q = newQueue(PrintQueue.DEFAULT_CAPACITY, runner);
+        q.enqueue("FIND-1", 0);
+        assertTrue(runner.started.await(5, TimeUnit.SECONDS));
+        q.enqueue("FIND-2", 0);
+        q.enqueue("FIND-3", 0);
+        assertEquals(2, q.cancelAll());
+
+        q.shutdown();
+        assertNull(q.enqueue("FIND-4", 0));
+        runner.release.countDown();
+    }
+
+    @Test
+    public void shutdown_dropsPendingJobsAndWaitsForRunningOne() throws Exception {
+        GatedRunner runner = new GatedRunner();
+        PrintQueue q = newQueue(PrintQueue.DEFAULT_CAPACITY, runner);
+        PrintQueue.Job running = q.enqueue("FIND-1", 0);
+        assertTrue(runner.started.await(5, TimeUnit.SECONDS));
+        PrintQueue.Job pending = q.enqueue("FIND-2", 0);
+
+        // The worker held in render is interrupted and has ended by the time shutdown returns.
+        assertTrue(q.shutdown(5000));
+        assertTrue(running.isFinished());
+        assertTrue(q.activeJobs().isEmpty());
+        assertEquals(PrintQueue.JobState.CANCELLED, pending.state);
+        assertEquals(PrintQueue.ERROR_SHUTDOWN, pending.error);
+        assertFalse(runner.sent.contains("FIND-2"));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("Timed out waiting for the print queue");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PrintSpoolTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static byte[] job(int seed, int length) {
+        byte[] b = new byte[length];
+        for (int i = 0; i < length; i++) b[i] = (byte) (seed * 31 + i);
+        return b;
+    }
+
+    @Test
+    public void append_readsBackAndReclaimsFinishedJobs() throws Exception {
+        PrintSpool spool = new PrintSpool(new File(tmp.getRoot(), "spool.bin"), 64 * 1024);
+        PrintSpool.Record a = spool.append("FIND-1", job(1, 10_803));
+        PrintSpool.Record b = spool.append("FIND-2", job(2, 10_803));
+        assertEquals(PrintSpool.State.QUEUED, a.state);
+        assertTrue(b.seq > a.seq);
+        assertArrayEquals(job(2, 10_803), spool.read(b));
+        assertSame(a, spool.pending("FIND-1"));
+
+        spool.setState(a, PrintSpool.State.SENDING);
+        spool.setState(a, PrintSpool.State.DONE);
+        assertNull(spool.pending("FIND-1"));
+        assertEquals(b.length, spool.usedBytes());
+        // A finished job stays finished.
+        spool.setState(a, PrintSpool.State.HELD);
+        assertEquals(PrintSpool.State.DONE, a.state);
+
+        spool.setState(b, PrintSpool.State.CANCELLED);
+        assertEquals(0, spool.usedBytes());
+        assertEquals(0, spool.toJson().getJSONArray("jobs").length());
+    }
+
+    @Test
+    public void reopen_holdsUnsentJobsAndRequeuesInterruptedOnce() throws Exception {
+        File file = new File(tmp.getRoot(), "spool.bin");
+        PrintSpool spool = new PrintSpool(file, 64 * 1024);
+        PrintSpool.Record queued = spool.append("FIND-1", job(1, 500));
+        PrintSpool.Record sending = spool.append("FIND-2", job(2, 700));
+        PrintSpool.Record done = spool.append("FIND-3", job(3, 300));
+        spool.setState(sending, PrintSpool.State.SENDING);
+        spool.setState(done, PrintSpool.State.DONE);
+        // No close(): the process dies here.
+
+        PrintSpool reopened = new PrintSpool(file, 64 * 1024);
+        List<PrintSpool.Record> held = reopened.held();
+        assertEquals(2, held.size());
+        assertEquals(queued.seq, held.get(0).seq);
+        assertEquals(0, held.get(0).requeues);
+        assertEquals("FIND-2", held.get(1).findId);
+        assertEquals(1, held.get(1).requeues);
+        assertArrayEquals(job(2, 700), reopened.read(held.get(1)));
+
+        // Interrupted again after its one requeue: it fails rather than looping.
+        reopened.setState(held.get(1), PrintSpool.State.SENDING);
+        PrintSpool third = new PrintSpool(file, 64 * 1024);
+        assertEquals(1, third.held().size());
+        assertNull(third.pending("FIND-2"));
+        assertTrue(third.append("FIND-4", job(4, 10)).seq > done.seq);
+    }
+
+    @Test
+    public void ring_wrapsAroundAndSurvivesReopen() throws Exception {
+        File file = new File(tmp.getRoot(), "spool.bin");
+        PrintSpool spool = new PrintSpool(file, 16 * 1024);
+        // Each record is 4 KB with its header; three fit behind the file header.
+        PrintSpool.Record[] r = new PrintSpool.Record[3];
+        for (int i = 0; i < 3; i++) r[i] = spool.append("FIND-" + i, job(i, 4096 - 40));
+        assertNull(spool.append("FIND-x", job(9, 4096 - 40)));
+
+        spool.setState(r[0], PrintSpool.State.DONE);
+        spool.setState(r[1], PrintSpool.State.DONE);
+        PrintSpool.Record wrapped = spool.append("FIND-3", job(3, 4096 - 40));
+        assertNotNull(wrapped);
+        assertTrue(wrapped.offset < r[2].offset);
+        // The tail may not run into the head.
+        assertNull(spool.append("FIND-y", job(9, 4096 - 40)));
+
+        PrintSpool reopened = new PrintSpool(file, 16 * 1024);
+        List<PrintSpool.Record> held = reopened.held();
+        assertEquals(Arrays.asList("FIND-2", "FIND-3"), Arrays.asList(held.get(0).findId, held.get(1).findId));
+        assertArrayEquals(job(3, 4096 - 40), reopened.read(held.get(1)));
+    }
+
+    @Test
+    public void close_refusesReadsAndKeepsJobsForNextRun() throws Exception {
+        File file = new File(tmp.getRoot(), "spool.bin");
+        PrintSpool spool = new PrintSpool(file, 64 * 1024);
+        PrintSpool.Record r = spool.append("FIND-1", job(1, 500));
+        spool.close();
+
+        try {
+            spool.read(r);
+            fail("Expected a closed spool to refuse reads");
+        } catch (IllegalStateException expected) {
+        }
+        spool.setState(r, PrintSpool.State.CANCELLED);
+
+        List<PrintSpool.Record> held = new PrintSpool(file, 64 * 1024).held();
+        assertEquals(1, held.size());
+        assertEquals("FIND-1", held.get(0).findId);
+    }
+
+    @Test
+    public void reopen_dropsTornAppend() throws Exception {
+        File file = new File(tmp.getRoot(), "spool.bin");
+        PrintSpool spool = new PrintSpool(file, 64 * 1024);
+        PrintSpool.Record a = spool.append("FIND-1", job(1, 100));
+        spool.append("FIND-2", job(2, 100));
+        spool.close();
+        // Corrupt the second record's magic, as if the process died before it was written.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(a.offset + a.length);
+            raf.writeInt(0);
+        }
+
+        PrintSpool reopened = new PrintSpool(file, 64 * 1024);
+        assertEquals(1, reopened.held().size());
+        assertNotNull(reopened.append("FIND-3", job(3, 100)));
+        JSONObject json = reopened.toJson();
+        assertEquals(2, json.getJSONArray("jobs").length());
+        assertEquals("held", json.getJSONArray("jobs").getJSONObject(0).getString("state"));
+    }
+}
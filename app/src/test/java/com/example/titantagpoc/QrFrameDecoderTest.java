@@ -0,0 +1,85 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QrFrameDecoderTest {
+
+    private static final int W = 1280;
+    private static final int H = 720;
+    // Camera planes are usually padded past the width.
+    private static final int STRIDE = 1344;
+
+    // A camera-like Y plane: the label's QR (as printed: ECC M, no quiet zone of its own) on a
+    // grey background, at the given module size and offset from the centre, with sensor noise.
+    private static byte[] frame(String text, int modulePx, int dx, int dy, long seed) throws Exception {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.MARGIN, 0);
+        BitMatrix m = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0, hints);
+
+        Random rnd = new Random(seed);
+        byte[] y = new byte[STRIDE * H];
+        int size = m.getWidth() * modulePx;
+        int x0 = (W - size) / 2 + dx;
+        int y0 = (H - size) / 2 + dy;
+        for (int row = 0; row < H; row++) {
+            for (int col = 0; col < W; col++) {
+                int v = 150;
+                int mx = col - x0;
+                int my = row - y0;
+                // Paper label with a white border around the code.
+                if (mx >= -3 * modulePx && my >= -3 * modulePx && mx < size + 3 * modulePx && my < size + 3 * modulePx) v = 215;
+                if (mx >= 0 && my >= 0 && mx < size && my < size && m.get(mx / modulePx, my / modulePx)) v = 35;
+                v += rnd.nextInt(31) - 15;
+                y[row * STRIDE + col] = (byte) Math.max(0, Math.min(255, v));
+            }
+        }
+        return y;
+    }
+
+    @Test
+    public void decode_readsLabelFromPaddedLuminancePlane() throws Exception {
+        QrFrameDecoder d = new QrFrameDecoder();
+        String id = "FIND-1718000000000-ab12cd";
+        assertEquals(id, d.decode(frame(id, 6, 0, 0, 1), STRIDE, W, H));
+        assertEquals(1, d.decoded());
+        assertTrue(d.lastDecodeNanos() > 0);
+    }
+
+    @Test
+    public void decode_ignoresCodesOutsideTheRoi() throws Exception {
+        QrFrameDecoder d = new QrFrameDecoder();
+        assertNull(d.decode(frame("FIND-1-x", 4, 520, 0, 2), STRIDE, W, H));
+        assertNull(d.decode(new byte[STRIDE * H], STRIDE, W, H));
+        assertEquals(2, d.frames());
+        assertEquals(0, d.decoded());
+    }
+
+    // A synthetic corpus of labels at several distances and offsets: every frame must decode.
+    // Decode latency is measured by QrDecodeBenchmark in the benchmarks module.
+    @Test
+    public void decode_readsWholeLabelCorpus() throws Exception {
+        QrFrameDecoder d = new QrFrameDecoder();
+        Random rnd = new Random(42);
+        for (int i = 0; i < 24; i++) {
+            String id = "FIND-" + (1718000000000L + i * 7919L) + "-" + String.format(Locale.ROOT, "%06X", rnd.nextInt(1 << 24));
+            int module = 3 + (i % 5);
+            byte[] plane = frame(id, module, rnd.nextInt(61) - 30, rnd.nextInt(41) - 20, i);
+            assertEquals("module " + module + "px", id, d.decode(plane, STRIDE, W, H));
+        }
+        assertEquals(24, d.decoded());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QrImageCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static String key(String findId) {
+        return QrImageCache.key(QrImageCache.Kind.PNG, findId, "256", "M");
+    }
+
+    @Test
+    public void get_countsMemoryHitsAndMisses() throws Exception {
+        QrImageCache cache = new QrImageCache(tmp.newFolder("qr"), 1024, 4096);
+
+        assertNull(cache.get(key("FIND-1")));
+        cache.put(key("FIND-1"), new byte[100]);
+        assertNotNull(cache.get(key("FIND-1")));
+
+        QrImageCache.Stats st = cache.stats();
+        assertEquals(1, st.misses);
+        assertEquals(1, st.memoryHits);
+        assertEquals(0, st.diskHits);
+    }
+
+    @Test
+    public void memoryBudget_evictsLeastRecentlyUsedAndFallsBackToDisk() throws Exception {
+        QrImageCache cache = new QrImageCache(tmp.newFolder("qr"), 250, 4096);
+        cache.put(key("A"), new byte[]{ 1 });
+        cache.put(key("B"), new byte[100]);
+        cache.get(key("A"));
+        cache.put(key("C"), new byte[200]);
+
+        QrImageCache.Stats st = cache.stats();
+        assertTrue(st.memoryBytes <= 250);
+        assertEquals(1, st.memoryEvictions);
+
+        byte[] b = cache.get(key("B"));
+        assertNotNull(b);
+        assertEquals(100, b.length);
+        assertEquals(1, cache.stats().diskHits);
+    }
+
+    @Test
+    public void diskBudget_evictsOldestFiles() throws Exception {
+        File dir = tmp.newFolder("qr");
+        QrImageCache cache = new QrImageCache(dir, 0, 300);
+        cache.put(key("A"), new byte[100]);
+        cache.put(key("B"), new byte[100]);
+        cache.put(key("C"), new byte[100]);
+        cache.put(key("D"), new byte[100]);
+
+        QrImageCache.Stats st = cache.stats();
+        assertEquals(3, st.diskEntries);
+        assertEquals(1, st.diskEvictions);
+        assertNull(cache.get(key("A")));
+        assertNotNull(cache.get(key("D")));
+    }
+
+    @Test
+    public void diskTier_survivesNewInstance() throws Exception {
+        File dir = tmp.newFolder("qr");
+        new QrImageCache(dir, 1024, 4096).put(key("FIND-7"), new byte[]{ 7, 8, 9 });
+
+        QrImageCache reopened = new QrImageCache(dir, 1024, 4096);
+        assertArrayEquals(new byte[]{ 7, 8, 9 }, reopened.get(key("FIND-7")));
+        assertEquals(1, reopened.stats().diskHits);
+    }
+}
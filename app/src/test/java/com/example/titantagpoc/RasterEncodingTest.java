@@ -0,0 +1,127 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class RasterEncodingTest {
+
+    private static final byte[] GAP = new byte[]{ 0x1D, 0x4A, 120 };
+
+    private static byte[] labelJob() throws Exception {
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.MARGIN, 0);
+        BitMatrix m = new QRCodeWriter().encode("FIND-1760000000000-ABCDEF", BarcodeFormat.QR_CODE, 160, 160, hints);
+        EscPosRasterEncoder encoder = new EscPosRasterEncoder(360, 240, GAP);
+        int bytesPerRow = encoder.getBytesPerRow();
+        // The QR alone, 100 dots from the left edge: blank rows below it and blank columns around it.
+        byte[] job = encoder.encode((dest, offset) -> {
+            for (int y = 0; y < m.getHeight(); y++) {
+                for (int x = 0; x < m.getWidth(); x++) {
+                    int dx = 100 + x;
+                    if (m.get(x, y)) dest[offset + y * bytesPerRow + (dx >> 3)] |= (byte) (0x80 >> (dx & 7));
+                }
+            }
+        });
+        return Arrays.copyOf(job, job.length);
+    }
+
+    // Replays GS v 0 / ESC J / GS L on a paper model; returns {dots, trailer bytes}.
+    private static final class Paper {
+        final int bytesPerRow;
+        byte[] dots = new byte[0];
+        int y;
+        int leftDots;
+        byte[] trailer = new byte[0];
+
+        Paper(int bytesPerRow) {
+            this.bytesPerRow = bytesPerRow;
+        }
+
+        void run(byte[] cmds) {
+            int i = 0;
+            while (i < cmds.length) {
+                if (cmds[i] == 0x1D && cmds[i + 1] == 0x76 && cmds[i + 2] == 0x30) {
+                    int w = (cmds[i + 4] & 0xFF) | ((cmds[i + 5] & 0xFF) << 8);
+                    int h = (cmds[i + 6] & 0xFF) | ((cmds[i + 7] & 0xFF) << 8);
+                    i += 8;
+                    grow(y + h);
+                    assertEquals("GS L must be byte aligned", 0, leftDots % 8);
+                    for (int r = 0; r < h; r++) {
+                        System.arraycopy(cmds, i + r * w, dots, (y + r) * bytesPerRow + leftDots / 8, w);
+                    }
+                    i += w * h;
+                    y += h;
+                } else if (cmds[i] == 0x1B && cmds[i + 1] == 0x4A) {
+                    y += cmds[i + 2] & 0xFF;
+                    i += 3;
+                } else if (cmds[i] == 0x1D && cmds[i + 1] == 0x4C) {
+                    leftDots = (cmds[i + 2] & 0xFF) | ((cmds[i + 3] & 0xFF) << 8);
+                    i += 4;
+                } else {
+                    trailer = Arrays.copyOfRange(cmds, i, cmds.length);
+                    return;
+                }
+            }
+        }
+
+        void grow(int rows) {
+            if (dots.length < rows * bytesPerRow) dots = Arrays.copyOf(dots, rows * bytesPerRow);
+        }
+    }
+
+    private static void assertReproduces(byte[] job, byte[] wire) {
+        Paper p = new Paper(45);
+        p.run(wire);
+        p.grow(240);
+        assertEquals(240, p.y);
+        assertArrayEquals(Arrays.copyOfRange(job, 8, 8 + 45 * 240), p.dots);
+        assertArrayEquals(GAP, p.trailer);
+        assertEquals(0, p.leftDots);
+    }
+
+    @Test
+    public void uncompressed_isUnchanged() throws Exception {
+        byte[] job = labelJob();
+        assertSame(job, RasterEncoding.UNCOMPRESSED.encode(job, 0));
+    }
+
+    @Test
+    public void uncompressed_splitsIntoBands() throws Exception {
+        byte[] job = labelJob();
+        byte[] wire = RasterEncoding.UNCOMPRESSED.encode(job, 64);
+        assertReproduces(job, wire);
+    }
+
+    @Test
+    public void skipBlankRows_reproducesLabelWithFewerBytes() throws Exception {
+        byte[] job = labelJob();
+        byte[] wire = RasterEncoding.SKIP_BLANK_ROWS.encode(job, 0);
+        assertReproduces(job, wire);
+        assertTrue(wire.length < job.length * 0.75);
+    }
+
+    @Test
+    public void cropBands_reproducesLabelWithFewerBytes() throws Exception {
+        byte[] job = labelJob();
+        byte[] wire = RasterEncoding.CROP_BANDS.encode(job, 100);
+        assertReproduces(job, wire);
+        assertTrue(wire.length < job.length * 0.4);
+    }
+
+    @Test
+    public void profile_matchesLongestPrefix() {
+        assertSame(RasterEncoding.SKIP_BLANK_ROWS, PrinterProfile.forDeviceName("SK58-1234").encoding);
+        assertSame(PrinterProfile.DEFAULT, PrinterProfile.forDeviceName("MPT-II"));
+        assertSame(PrinterProfile.DEFAULT, PrinterProfile.forDeviceName(null));
+    }
+}
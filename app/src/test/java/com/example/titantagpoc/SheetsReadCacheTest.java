@@ -0,0 +1,170 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Runs the read cache against a local HTTP server that answers with canned readSince deltas.
+public class SheetsReadCacheTest {
+
+    private static final String SHEET = "ממצאים";
+    private static final String KEY = "מזהה_ממצא";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private String url;
+    private final List<Map<String, String>> requests = Collections.synchronizedList(new ArrayList<>());
+    // Response bodies in order.
+    private final ConcurrentLinkedQueue<String> responses = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/exec", exchange -> {
+            String body;
+            try {
+                requests.add(parseQuery(exchange.getRequestURI().getRawQuery()));
+                body = responses.poll();
+                if (body == null) body = "{\"status\":\"error\",\"data\":\"no response\"}";
+            } catch (Exception e) {
+                body = "{\"status\":\"error\",\"data\":\"bad request\"}";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/exec";
+    }
+
+    @After
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    private static JSONObject row(String id, String description) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put(KEY, id);
+        o.put("תיאור_טקסטואלי", description);
+        return o;
+    }
+
+    private static String answer(boolean full, long cursor, JSONArray rows, String... keys) throws Exception {
+        JSONObject data = new JSONObject();
+        data.put("full", full);
+        data.put("cursor", cursor);
+        data.put("key", KEY);
+        JSONArray k = new JSONArray();
+        for (String key : keys) k.put(key);
+        data.put("keys", k);
+        data.put("rows", rows);
+        JSONObject o = new JSONObject();
+        o.put("status", "success");
+        o.put("data", data);
+        return o.toString();
+    }
+
+    private static List<String> ids(JSONObject result) throws Exception {
+        List<String> ids = new ArrayList<>();
+        JSONArray rows = result.getJSONArray("rows");
+        for (int i = 0; i < rows.length(); i++) ids.add(rows.getJSONObject(i).getString(KEY));
+        return ids;
+    }
+
+    @Test
+    public void refresh_mergesDeltasAndDropsDeletedRows() throws Exception {
+        File dir = new File(tmp.getRoot(), "sheets");
+        SheetsReadCache cache = new SheetsReadCache(dir);
+        assertNull(cache.cached(SHEET));
+
+        responses.add(answer(true, 100, new JSONArray().put(row("FIND-1", "חרס")).put(row("FIND-2", "מטבע")), "FIND-1", "FIND-2"));
+        JSONObject first = cache.refresh(url, SHEET);
+        assertEquals("0", requests.get(0).get("since"));
+        assertEquals("readSince", requests.get(0).get("action"));
+        assertEquals(Arrays.asList("FIND-1", "FIND-2"), ids(first));
+
+        // FIND-2 edited, FIND-3 added, FIND-1 deleted from the sheet.
+        responses.add(answer(false, 200, new JSONArray().put(row("FIND-2", "מטבע ברונזה")).put(row("FIND-3", "צלמית")), "FIND-2", "FIND-3"));
+        JSONObject second = cache.refresh(url, SHEET);
+        assertEquals("100", requests.get(1).get("since"));
+        assertEquals(Arrays.asList("FIND-2", "FIND-3"), ids(second));
+        assertEquals("מטבע ברונזה", second.getJSONArray("rows").getJSONObject(0).getString("תיאור_טקסטואלי"));
+        assertEquals(2, second.getInt("changed"));
+        assertEquals(1, second.getInt("removed"));
+
+        // Served from disk after a restart, and the next refresh continues from the stored cursor.
+        SheetsReadCache reopened = new SheetsReadCache(dir);
+        assertEquals(Arrays.asList("FIND-2", "FIND-3"), ids(reopened.cached(SHEET)));
+        responses.add(answer(false, 200, new JSONArray(), "FIND-2", "FIND-3"));
+        reopened.refresh(url, SHEET);
+        assertEquals("200", requests.get(2).get("since"));
+    }
+
+    @Test
+    public void refresh_readsFromScratchWhenDeltaMissesAListedKey() throws Exception {
+        SheetsReadCache cache = new SheetsReadCache(new File(tmp.getRoot(), "sheets"));
+        responses.add(answer(true, 100, new JSONArray().put(row("FIND-1", "חרס")), "FIND-1"));
+        cache.refresh(url, SHEET);
+
+        // FIND-2 landed with a stamp older than the cursor: listed, but not in the delta.
+        responses.add(answer(false, 200, new JSONArray(), "FIND-1", "FIND-2"));
+        responses.add(answer(true, 200, new JSONArray().put(row("FIND-1", "חרס")).put(row("FIND-2", "מטבע")), "FIND-1", "FIND-2"));
+        JSONObject result = cache.refresh(url, SHEET);
+
+        assertEquals("100", requests.get(1).get("since"));
+        assertEquals("0", requests.get(2).get("since"));
+        assertEquals(Arrays.asList("FIND-1", "FIND-2"), ids(result));
+        assertTrue(result.getBoolean("full"));
+    }
+
+    @Test
+    public void refresh_fallsBackToFullReadOnOldScript() throws Exception {
+        SheetsReadCache cache = new SheetsReadCache(new File(tmp.getRoot(), "sheets"));
+        responses.add("{\"status\":\"error\",\"data\":\"פעולה לא חוקית\"}");
+        JSONObject read = new JSONObject();
+        read.put("status", "success");
+        read.put("data", new JSONArray().put(row("FIND-1", "חרס")));
+        responses.add(read.toString());
+
+        JSONObject result = cache.refresh(url, SHEET);
+        assertEquals("read", requests.get(1).get("action"));
+        assertEquals(Arrays.asList("FIND-1"), ids(result));
+        assertTrue(result.getBoolean("full"));
+    }
+
+    private static Map<String, String> parseQuery(String query) throws Exception {
+        Map<String, String> form = new HashMap<>();
+        if (query == null) return form;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) continue;
+            form.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+        return form;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Runs the sync engine against a local HTTP server standing in for the Apps Script endpoint.
+public class SheetsSyncEngineTest {
+
+    private static final String SHEET = "ממצאים";
+    private static final String KEY = "מזהה_ממצא";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private String url;
+    private final List<Map<String, String>> requests = Collections.synchronizedList(new ArrayList<>());
+    // HTTP status per request; 200 once empty.
+    private final ConcurrentLinkedQueue<Integer> responses = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/exec", exchange -> {
+            String body;
+            int status;
+            try {
+                Map<String, String> form = parseForm(readAll(exchange.getRequestBody()));
+                requests.add(form);
+                Integer code = responses.poll();
+                status = (code == null) ? 200 : code;
+                body = (status == 200)
+                    ? "{\"status\":\"success\",\"data\":{\"written\":" + new JSONArray(form.get("rows")).length() + "}}"
+                    : "{\"status\":\"error\",\"data\":\"boom\"}";
+            } catch (Exception e) {
+                status = 400;
+                body = "{\"status\":\"error\",\"data\":\"bad request\"}";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/exec";
+    }
+
+    @After
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    private static JSONObject row(String id, String field, String value) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put(KEY, id);
+        o.put(field, value);
+        return o;
+    }
+
+    @Test
+    public void flush_coalescesEditsAndSendsOneBatch() throws Exception {
+        SheetsOutbox outbox = new SheetsOutbox(new File(tmp.getRoot(), "outbox.json"));
+        outbox.enqueue(SHEET, KEY, row("FIND-1", "תיאור_טקסטואלי", "חרס"));
+        outbox.enqueue(SHEET, KEY, row("FIND-2", "תיאור_טקסטואלי", "מטבע"));
+        outbox.enqueue(SHEET, KEY, row("FIND-1", "תיאור_טקסטואלי", "חרס מצויר"));
+        assertEquals(2, outbox.size());
+        assertEquals(1, outbox.getCoalesced());
+
+        SheetsSyncEngine engine = new SheetsSyncEngine(outbox, null, 25, 50, 200);
+        engine.setEndpoint(url);
+        waitFor(() -> outbox.size() == 0 && engine.status().optString("state").equals("idle"));
+        engine.shutdown();
+
+        assertEquals(1, requests.size());
+        Map<String, String> form = requests.get(0);
+        assertEquals("writeBatch", form.get("action"));
+        assertEquals(SHEET, form.get("sheet"));
+        assertEquals(KEY, form.get("key"));
+        JSONArray rows = new JSONArray(form.get("rows"));
+        assertEquals(2, rows.length());
+        assertEquals("חרס מצויר", rows.getJSONObject(0).getString("תיאור_טקסטואלי"));
+        assertEquals(2, engine.status().getLong("rowsSent"));
+    }
+
+    @Test
+    public void failure_backsOffAndRetries() throws Exception {
+        responses.add(500);
+        responses.add(503);
+        SheetsOutbox outbox = new SheetsOutbox(new File(tmp.getRoot(), "outbox.json"));
+        outbox.enqueue(SHEET, KEY, row("FIND-1", "חלקה", "Area A"));
+
+        SheetsSyncEngine engine = new SheetsSyncEngine(outbox, null, 25, 20, 100);
+        engine.setEndpoint(url);
+        // The outbox empties just before the engine records the successful attempt.
+        waitFor(() -> outbox.size() == 0 && engine.status().optString("state").equals("idle"));
+        engine.shutdown();
+
+        assertEquals(3, requests.size());
+        JSONObject status = engine.status();
+        assertEquals("idle", status.getString("state"));
+        assertEquals(0, status.getInt("failures"));
+    }
+
+    @Test
+    public void offline_holdsWritesUntilConnectivityReturns() throws Exception {
+        SheetsOutbox outbox = new SheetsOutbox(new File(tmp.getRoot(), "outbox.json"));
+        SheetsSyncEngine engine = new SheetsSyncEngine(outbox, null, 25, 20, 100);
+        engine.setOnline(false);
+        engine.setEndpoint(url);
+        outbox.enqueue(SHEET, KEY, row("FIND-1", "שכבה", "Stratum IVA"));
+        engine.requestFlush();
+        Thread.sleep(200);
+        assertTrue(requests.isEmpty());
+        assertEquals("offline", engine.status().getString("state"));
+
+        engine.setOnline(true);
+        waitFor(() -> outbox.size() == 0);
+        engine.shutdown();
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void outbox_survivesReopen() throws Exception {
+        File file = new File(tmp.getRoot(), "outbox.json");
+        SheetsOutbox outbox = new SheetsOutbox(file);
+        outbox.enqueue(SHEET, KEY, row("FIND-1", "חלקה", "Area A"));
+        JSONObject image = new JSONObject();
+        image.put("מזהה_תמונה", "IMG-1");
+        image.put(KEY, "FIND-1");
+        assertTrue(outbox.enqueue("תמונות", "מזהה_תמונה", image));
+        // Sent batches leave the file; failed ones stay with their attempt count.
+        outbox.fail(outbox.takeBatch(10), "offline");
+
+        SheetsOutbox reopened = new SheetsOutbox(file);
+        assertEquals(2, reopened.size());
+        SheetsOutbox.Entry first = reopened.snapshot().get(0);
+        assertEquals("FIND-1", first.key);
+        assertEquals(1, first.attempts);
+        // One sheet per request.
+        assertEquals(1, reopened.takeBatch(10).size());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("Timed out waiting for sync");
+            Thread.sleep(10);
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) throws Exception {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) continue;
+            form.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+        return form;
+    }
+
+    private static String readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1) baos.write(buf, 0, n);
+        return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
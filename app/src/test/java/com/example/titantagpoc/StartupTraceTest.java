@@ -0,0 +1,41 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class StartupTraceTest {
+
+    @Test
+    public void mark_isRelativeToOriginAndFirstWins() {
+        AtomicLong now = new AtomicLong(1_000);
+        StartupTrace trace = new StartupTrace(now::get, 400, "process");
+        assertEquals(600, trace.mark("activity-create"));
+        now.set(1_250);
+        assertEquals(850, trace.mark("first-frame"));
+        now.set(2_000);
+        assertEquals(-1, trace.mark("first-frame"));
+        assertEquals(850, trace.get("first-frame"));
+        assertEquals(-1, trace.get("tts-ready"));
+    }
+
+    @Test
+    public void toJson_keepsMarkOrder() throws Exception {
+        AtomicLong now = new AtomicLong(0);
+        StartupTrace trace = new StartupTrace(now::get, 0, "activity");
+        trace.mark("b");
+        now.set(5);
+        trace.mark("a");
+        JSONObject o = trace.toJson();
+        assertEquals("activity", o.getString("origin"));
+        JSONArray marks = o.getJSONArray("marks");
+        assertEquals(2, marks.length());
+        assertEquals("b", marks.getJSONObject(0).getString("name"));
+        assertEquals(5, marks.getJSONObject(1).getLong("ms"));
+        assertEquals("activity: b=0ms a=5ms", trace.summary());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.titantagpoc;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class UtteranceQueueTest {
+
+    private static UtteranceQueue.Utterance u(String id) {
+        return new UtteranceQueue.Utterance(id, "text " + id, null);
+    }
+
+    private static List<String> ids(List<UtteranceQueue.Utterance> list) {
+        List<String> out = new ArrayList<>();
+        for (UtteranceQueue.Utterance x : list) out.add(x.id);
+        return out;
+    }
+
+    @Test
+    public void next_handsOutOneAtATimeInOrder() {
+        UtteranceQueue q = new UtteranceQueue();
+        q.submit(u("a"), UtteranceQueue.Mode.ADD);
+        q.submit(u("b"), UtteranceQueue.Mode.ADD);
+        assertEquals("a", q.next().id);
+        assertNull(q.next());
+        assertEquals(2, q.size());
+        assertNull(q.finish("b"));
+        assertEquals("a", q.finish("a").id);
+        assertEquals("b", q.next().id);
+        assertEquals("b", q.finish("b").id);
+        assertNull(q.next());
+        assertEquals(0, q.size());
+    }
+
+    @Test
+    public void priority_goesNextWithoutInterrupting() {
+        UtteranceQueue q = new UtteranceQueue();
+        q.submit(u("a"), UtteranceQueue.Mode.ADD);
+        q.submit(u("b"), UtteranceQueue.Mode.ADD);
+        q.next();
+        assertTrue(q.submit(u("p"), UtteranceQueue.Mode.PRIORITY).isEmpty());
+        assertEquals("a", q.current().id);
+        q.finish("a");
+        assertEquals("p", q.next().id);
+        q.finish("p");
+        assertEquals("b", q.next().id);
+    }
+
+    @Test
+    public void flush_dropsCurrentAndQueued() {
+        UtteranceQueue q = new UtteranceQueue();
+        q.submit(u("a"), UtteranceQueue.Mode.ADD);
+        q.submit(u("b"), UtteranceQueue.Mode.ADD);
+        q.next();
+        List<UtteranceQueue.Utterance> dropped = q.submit(u("f"), UtteranceQueue.Mode.FLUSH);
+        assertEquals(Arrays.asList("a", "b"), ids(dropped));
+        assertNull(q.current());
+        // The engine's late onStop for "a" must not end "f".
+        assertNull(q.finish("a"));
+        assertEquals("f", q.next().id);
+        assertEquals(1, q.size());
+    }
+
+    @Test
+    public void notify_reachesCallbackWithId() {
+        List<String> seen = new ArrayList<>();
+        UtteranceQueue.Utterance x = new UtteranceQueue.Utterance("x", "t", (id, state) -> seen.add(id + ":" + state));
+        x.notify("start");
+        x.notify("done");
+        assertEquals(Arrays.asList("x:start", "x:done"), seen);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.titantagpoc;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+// PaintTextRasterizer on the JVM: the same steps (size the font to the line, draw anti-aliased into
+// an 8-bit buffer, threshold to 1 bpp) with java.awt in place of android.graphics.
+final class AwtTextRasterizer implements LabelTemplate.TextRasterizer {
+
+    private static final Font BASE = new Font(Font.SANS_SERIF, Font.BOLD, 100);
+    private final BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+
+    @Override
+    public synchronized LabelTemplate.Bitmap1 render(String text, int heightDots) {
+        Graphics2D probe = scratch.createGraphics();
+        FontMetrics base = probe.getFontMetrics(BASE);
+        Font font = BASE.deriveFont(100f * heightDots / (base.getAscent() + base.getDescent()));
+        FontMetrics fm = probe.getFontMetrics(font);
+        probe.dispose();
+
+        int width = Math.max(1, fm.stringWidth(text));
+        BufferedImage img = new BufferedImage(width, heightDots, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        // White text on black, so the gray value reads as coverage like Android's ALPHA_8.
+        g.setColor(Color.WHITE);
+        g.drawString(text, 0, fm.getAscent());
+        g.dispose();
+
+        byte[] gray = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+        LabelTemplate.Bitmap1 out = new LabelTemplate.Bitmap1(width, heightDots);
+        for (int y = 0; y < heightDots; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((gray[y * width + x] & 0xff) >= 128) out.set(x, y);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.titantagpoc;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// Inputs shared by the benchmarks; label geometry comes from LabelTemplate.SPECS, as in MainActivity.
+final class BenchFixtures {
+
+    static final int DOTS_PER_MM = 8;
+    static final int QR_PNG_SIZE_PX = 256;
+
+    private BenchFixtures() {
+    }
+
+    // Realistic find IDs as created by the web app (findsStore.js newFindId): FIND-<millis>-<6 hex>.
+    static String[] findIds(int count, long seed) {
+        Random random = new Random(seed);
+        long base = 1_760_000_000_000L;
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            long millis = base + random.nextInt(90 * 24 * 3600) * 1000L + random.nextInt(1000);
+            ids[i] = "FIND-" + millis + "-" + String.format(Locale.ROOT, "%06X", random.nextInt(1 << 24));
+        }
+        return ids;
+    }
+
+    static LabelTemplate labelTemplate(String spec) {
+        return new LabelTemplate(LabelTemplate.spec(spec), DOTS_PER_MM, new AwtTextRasterizer());
+    }
+
+    // Same as MainActivity.labelEncoder(): the template's raster plus its GS J gap feed.
+    static EscPosRasterEncoder labelEncoder(LabelTemplate t) {
+        return new EscPosRasterEncoder(t.widthDots, t.heightDots, new byte[]{ 0x1D, 0x4A, (byte) t.gapDots });
+    }
+
+    static BitMatrix encodeQr(QRCodeWriter writer, String text, int sizePx, ErrorCorrectionLevel ecc)
+            throws WriterException {
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.ERROR_CORRECTION, ecc);
+        hints.put(EncodeHintType.MARGIN, 0);
+        return writer.encode(text, BarcodeFormat.QR_CODE, sizePx, sizePx, hints);
+    }
+}
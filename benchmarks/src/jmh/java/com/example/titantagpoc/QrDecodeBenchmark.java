@@ -0,0 +1,109 @@
+package com.example.titantagpoc;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Scanner decode stage (QrFrameDecoder.decode) over a corpus of label frames, one frame per call.
+// Images in -Dqr.corpus=<dir> (PNG/JPEG photos of printed labels) are used as-is; otherwise
+// synthetic 1280x720 camera planes at several module sizes and offsets are generated.
+// The scanner's budget for this stage is 50 ms at p95 (avgt mode reports the mean).
+@State(Scope.Thread)
+public class QrDecodeBenchmark {
+
+    private static final int W = 1280;
+    private static final int H = 720;
+    // Camera planes are usually padded past the width.
+    private static final int STRIDE = 1344;
+
+    private final QrFrameDecoder decoder = new QrFrameDecoder();
+    private final List<byte[]> planes = new ArrayList<>();
+    // {width, height, rowStride} per plane.
+    private final List<int[]> dims = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        String dir = System.getProperty("qr.corpus");
+        File[] files = (dir == null) ? null : new File(dir).listFiles();
+        if (files != null) {
+            for (File f : files) {
+                BufferedImage img = ImageIO.read(f);
+                if (img == null) continue;
+                planes.add(luminance(img));
+                dims.add(new int[]{ img.getWidth(), img.getHeight(), img.getWidth() });
+            }
+        }
+        if (planes.isEmpty()) {
+            String[] ids = BenchFixtures.findIds(24, 42);
+            Random rnd = new Random(42);
+            for (int i = 0; i < ids.length; i++) {
+                planes.add(frame(ids[i], 3 + (i % 5), rnd.nextInt(61) - 30, rnd.nextInt(41) - 20, i));
+                dims.add(new int[]{ W, H, STRIDE });
+            }
+        }
+    }
+
+    @Benchmark
+    public String decode() {
+        int i = next;
+        next = (next + 1) % planes.size();
+        int[] d = dims.get(i);
+        return decoder.decode(planes.get(i), d[2], d[0], d[1]);
+    }
+
+    // A camera-like Y plane: the label's QR (as printed: ECC M, no quiet zone of its own) on a
+    // grey background, at the given module size and offset from the centre, with sensor noise.
+    private static byte[] frame(String text, int modulePx, int dx, int dy, long seed) throws WriterException {
+        BitMatrix m = BenchFixtures.encodeQr(new QRCodeWriter(), text, 0, ErrorCorrectionLevel.M);
+        Random rnd = new Random(seed);
+        byte[] y = new byte[STRIDE * H];
+        int size = m.getWidth() * modulePx;
+        int x0 = (W - size) / 2 + dx;
+        int y0 = (H - size) / 2 + dy;
+        for (int row = 0; row < H; row++) {
+            for (int col = 0; col < W; col++) {
+                int v = 150;
+                int mx = col - x0;
+                int my = row - y0;
+                // Paper label with a white border around the code.
+                if (mx >= -3 * modulePx && my >= -3 * modulePx && mx < size + 3 * modulePx && my < size + 3 * modulePx) v = 215;
+                if (mx >= 0 && my >= 0 && mx < size && my < size && m.get(mx / modulePx, my / modulePx)) v = 35;
+                v += rnd.nextInt(31) - 15;
+                y[row * STRIDE + col] = (byte) Math.max(0, Math.min(255, v));
+            }
+        }
+        return y;
+    }
+
+    // Photos come as RGB and are reduced to the Y a camera would give.
+    private static byte[] luminance(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        byte[] y = new byte[w * h];
+        for (int row = 0; row < h; row++) {
+            for (int col = 0; col < w; col++) {
+                int rgb = img.getRGB(col, row);
+                int r = (rgb >> 16) & 0xff;
+                int g = (rgb >> 8) & 0xff;
+                int b = rgb & 0xff;
+                y[row * w + col] = (byte) ((66 * r + 129 * g + 25 * b + 128 >> 8) + 16);
+            }
+        }
+        return y;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.titantagpoc;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Print path stages, as MainActivity.buildLabelJob runs them: QR module grid -> precompiled
+// LabelTemplate (QR, ID, site, date) into the GS v 0 buffer -> wire encoding.
+// Each invocation uses the next find ID so zxing can't settle on a single input.
+@State(Scope.Thread)
+public class QrLabelBenchmark {
+
+    // LabelTemplate.SPECS names.
+    @Param({ "45x30", "48x40", "40x25", "45x30-qr" })
+    public String spec;
+
+    @Param({ "L", "M", "Q", "H" })
+    public String ecc;
+
+    private static final String SITE = "תל דור";
+    private static final String DATE = "12.06.2024";
+
+    private final QRCodeWriter writer = new QRCodeWriter();
+    private String[] ids;
+    private int next;
+    private ErrorCorrectionLevel level;
+    private LabelTemplate template;
+    private EscPosRasterEncoder encoder;
+    private BitMatrix modules;
+    private byte[] job;
+
+    @Setup
+    public void setup() throws WriterException {
+        ids = BenchFixtures.findIds(256, 42);
+        level = ErrorCorrectionLevel.valueOf(ecc);
+        template = BenchFixtures.labelTemplate(spec);
+        encoder = BenchFixtures.labelEncoder(template);
+        modules = BenchFixtures.encodeQr(writer, ids[0], 0, level);
+        job = labelJob();
+    }
+
+    private String nextId() {
+        String id = ids[next];
+        next = (next + 1) & (ids.length - 1);
+        return id;
+    }
+
+    @Benchmark
+    public BitMatrix qrModules() throws WriterException {
+        return BenchFixtures.encodeQr(writer, nextId(), 0, level);
+    }
+
+    // Template copy + QR blit + ID/site/date glyphs, into the encoder's reused buffer.
+    @Benchmark
+    public byte[] templateRender() {
+        String id = ids[next];
+        return encoder.encode((dest, offset) -> template.render(modules, id, SITE, DATE, dest, offset));
+    }
+
+    // What MainActivity.buildLabelJob does on a cache miss.
+    @Benchmark
+    public byte[] labelJob() throws WriterException {
+        String id = nextId();
+        BitMatrix m = BenchFixtures.encodeQr(writer, id, 0, level);
+        byte[] raster = encoder.encode((dest, offset) -> template.render(m, id, SITE, DATE, dest, offset));
+        return Arrays.copyOf(raster, raster.length);
+    }
+
+    // One-off cost of compiling a template (glyph atlas included) when the label size changes.
+    @Benchmark
+    public LabelTemplate templateCompile() {
+        return BenchFixtures.labelTemplate(spec);
+    }
+
+    // Label job -> bytes on the wire for the SK58 profile.
+    @Benchmark
+    public byte[] wireSkipBlankRows() {
+        return RasterEncoding.SKIP_BLANK_ROWS.encode(job, 0);
+    }
+
+    @Benchmark
+    public byte[] wireCropBands() {
+        return RasterEncoding.CROP_BANDS.encode(job, 0);
+    }
+}
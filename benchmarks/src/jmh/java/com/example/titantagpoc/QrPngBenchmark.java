@@ -0,0 +1,79 @@
+package com.example.titantagpoc;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// On-screen QR path (renderQrPng / getQrPngDataUrl).
+// android.graphics.Bitmap isn't available on the JVM, so a 1-bpp BufferedImage + ImageIO PNG stands in
+// for Bitmap.compress; compare runs against each other, not against device numbers.
+@State(Scope.Thread)
+public class QrPngBenchmark {
+
+    @Param({ "L", "M", "H" })
+    public String ecc;
+
+    private final QRCodeWriter writer = new QRCodeWriter();
+    private String[] ids;
+    private int next;
+    private ErrorCorrectionLevel level;
+    private byte[] png;
+
+    @Setup
+    public void setup() throws Exception {
+        ids = BenchFixtures.findIds(256, 7);
+        level = ErrorCorrectionLevel.valueOf(ecc);
+        png = encodePng(BenchFixtures.encodeQr(writer, ids[0], BenchFixtures.QR_PNG_SIZE_PX, level));
+    }
+
+    private String nextId() {
+        String id = ids[next];
+        next = (next + 1) & (ids.length - 1);
+        return id;
+    }
+
+    @Benchmark
+    public byte[] png() throws Exception {
+        return encodePng(BenchFixtures.encodeQr(writer, nextId(), BenchFixtures.QR_PNG_SIZE_PX, level));
+    }
+
+    @Benchmark
+    public String dataUrl() throws Exception {
+        byte[] bytes = encodePng(BenchFixtures.encodeQr(writer, nextId(), BenchFixtures.QR_PNG_SIZE_PX, level));
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(bytes);
+    }
+
+    // Cache hit: only the Base64 step remains.
+    @Benchmark
+    public String dataUrlCached() {
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+    }
+
+    private static byte[] encodePng(BitMatrix m) throws IOException {
+        int w = m.getWidth();
+        int h = m.getHeight();
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                img.setRGB(x, y, m.get(x, y) ? 0xFF000000 : 0xFFFFFFFF);
+            }
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", baos);
+        return baos.toByteArray();
+    }
+}